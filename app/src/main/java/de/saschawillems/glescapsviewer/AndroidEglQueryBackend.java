@@ -0,0 +1,61 @@
+/*
+*
+* OpenGL ES hardware capability viewer and database
+*
+* Copyright (C) 2011-2018 by Sascha Willems (www.saschawillems.de)
+*
+* This code is free software, you can redistribute it and/or
+* modify it under the terms of the GNU Lesser General Public
+* License version 3 as published by the Free Software Foundation.
+*
+* Please review the following information to ensure the GNU Lesser
+* General Public License version 3 requirements will be met:
+* http://opensource.org/licenses/lgpl-3.0.html
+*
+* The code is distributed WITHOUT ANY WARRANTY; without even the
+* implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+* PURPOSE.  See the GNU LGPL 3.0 for more details.
+*
+*/
+
+package de.saschawillems.glescapsviewer;
+
+import javax.microedition.khronos.egl.EGL10;
+import javax.microedition.khronos.egl.EGLConfig;
+import javax.microedition.khronos.egl.EGLContext;
+import javax.microedition.khronos.egl.EGLDisplay;
+
+// Queries the EGL implementation of the default display
+class AndroidEglQueryBackend implements EglQueryBackend {
+
+	private EGL10 mEGL;
+	private EGLDisplay mDisplay;
+	private EGLConfig[] mConfigs;
+
+	@Override
+	public boolean eglInitialize() {
+		mEGL = (EGL10) EGLContext.getEGL();
+		mDisplay = mEGL.eglGetDisplay(EGL10.EGL_DEFAULT_DISPLAY);
+		return mEGL.eglInitialize(mDisplay, null);
+	}
+
+	@Override
+	public String eglQueryString(int name) {
+		return mEGL.eglQueryString(mDisplay, name);
+	}
+
+	@Override
+	public int eglGetConfigCount() {
+		int[] numConfigs = new int[1];
+		mEGL.eglGetConfigs(mDisplay, null, 0, numConfigs);
+		mConfigs = new EGLConfig[numConfigs[0]];
+		mEGL.eglGetConfigs(mDisplay, mConfigs, mConfigs.length, numConfigs);
+		return numConfigs[0];
+	}
+
+	@Override
+	public boolean eglGetConfigAttrib(int config, int attribute, int[] value) {
+		return mEGL.eglGetConfigAttrib(mDisplay, mConfigs[config], attribute, value);
+	}
+
+}
@@ -0,0 +1,64 @@
+/*
+*
+* OpenGL ES hardware capability viewer and database
+*
+* Copyright (C) 2011-2018 by Sascha Willems (www.saschawillems.de)
+*
+* This code is free software, you can redistribute it and/or
+* modify it under the terms of the GNU Lesser General Public
+* License version 3 as published by the Free Software Foundation.
+*
+* Please review the following information to ensure the GNU Lesser
+* General Public License version 3 requirements will be met:
+* http://opensource.org/licenses/lgpl-3.0.html
+*
+* The code is distributed WITHOUT ANY WARRANTY; without even the
+* implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+* PURPOSE.  See the GNU LGPL 3.0 for more details.
+*
+*/
+
+package de.saschawillems.glescapsviewer;
+
+import android.opengl.GLES20;
+import android.opengl.GLES30;
+
+// Queries the OpenGL ES implementation of the current context
+class AndroidGlQueryBackend implements GlQueryBackend {
+
+	@Override
+	public String glGetString(int name) {
+		return GLES20.glGetString(name);
+	}
+
+	@Override
+	public void glGetIntegerv(int pname, int[] params, int offset) {
+		GLES20.glGetIntegerv(pname, params, offset);
+	}
+
+	@Override
+	public void glGetIntegeri_v(int target, int index, int[] data, int offset) {
+		GLES30.glGetIntegeri_v(target, index, data, offset);
+	}
+
+	@Override
+	public void glGetInteger64v(int pname, long[] params, int offset) {
+		GLES30.glGetInteger64v(pname, params, offset);
+	}
+
+	@Override
+	public void glGetInteger64i_v(int target, int index, long[] data, int offset) {
+		GLES30.glGetInteger64i_v(target, index, data, offset);
+	}
+
+	@Override
+	public void glGetFloatv(int pname, float[] params, int offset) {
+		GLES20.glGetFloatv(pname, params, offset);
+	}
+
+	@Override
+	public int glGetError() {
+		return GLES20.glGetError();
+	}
+
+}
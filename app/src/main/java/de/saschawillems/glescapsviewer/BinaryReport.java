@@ -0,0 +1,721 @@
+/*
+*
+* OpenGL ES hardware capability viewer and database
+*
+* Copyright (C) 2011-2018 by Sascha Willems (www.saschawillems.de)
+*
+* This code is free software, you can redistribute it and/or
+* modify it under the terms of the GNU Lesser General Public
+* License version 3 as published by the Free Software Foundation.
+*
+* Please review the following information to ensure the GNU Lesser
+* General Public License version 3 requirements will be met:
+* http://opensource.org/licenses/lgpl-3.0.html
+*
+* The code is distributed WITHOUT ANY WARRANTY; without even the
+* implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+* PURPOSE.  See the GNU LGPL 3.0 for more details.
+*
+*/
+
+package de.saschawillems.glescapsviewer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.Adler32;
+
+// Versioned binary report format, same content as the XML report plus the EGL configs
+//
+// Layout: magic, format version (varint), extension dictionary size and signature (varints), then a list of
+// sections, each stored as id (varint), payload length (varint) and payload, so readers can skip sections they
+// don't need or don't know. Integers are (zigzag) varints, floats raw 32 bit, strings length + 1 prefixed UTF-8
+// (0 = null)
+// Extensions are stored as delta coded dictionary ids with inline names for all others, followed by the driver
+// order as positions in the sorted names. Dictionary ids are the positions in the append-only extension spec
+// (see ExtensionTables.DICTIONARY_ID), so a report can be read by every version whose dictionary starts with the
+// one it was written with, the signature (Adler-32 of the names) checks that. Ids beyond the dictionary of the
+// reader (reports of newer versions) are rejected
+// caps are keyed by GL enum and value type, so reports stay readable when caps are added to the spec
+// Uses no Android APIs, so it also runs on a plain JVM (e.g. for archive tooling)
+final class BinaryReport {
+
+	static final int MAGIC = 0x474C4252; // "GLBR"
+	static final int FORMAT_VERSION = 2; // 2 : dictionary ids in spec order, dictionary size in the header
+
+	// Section ids
+	static final int SECTION_REPORT = 1;
+	static final int SECTION_SYSTEM = 2;
+	static final int SECTION_FEATURES = 3;
+	static final int SECTION_SENSORS = 4;
+	static final int SECTION_GLES = 5;
+	static final int SECTION_GLES_EXTENSIONS = 6;
+	static final int SECTION_CAPS = 7; // One per cap table section (ES version)
+	static final int SECTION_FORMATS = 8;
+	static final int SECTION_EGL = 9;
+	static final int SECTION_EGL_EXTENSIONS = 10;
+	static final int SECTION_EGL_CONFIGS = 11;
+
+	// Section mask for read() (bit per section id)
+	static final long ALL_SECTIONS = -1L;
+
+	// Signature of the first n names of the dictionary at index n
+	private static int[] sDictionarySignatures;
+
+	private final GLESInfo mInfo;
+	private final String mSubmitter;
+
+	private BinaryReport(GLESInfo info, String submitter) {
+		mInfo = info;
+		mSubmitter = submitter;
+	}
+
+	public GLESInfo getInfo() {
+		return mInfo;
+	}
+
+	public String getSubmitter() {
+		return mSubmitter;
+	}
+
+	// Signature of the first size names of the dictionary (in dictionary id order)
+	static synchronized int dictionarySignature(int size) {
+		if (sDictionarySignatures == null) {
+			final int[] signatures = new int[ExtensionTables.COUNT + 1];
+			Adler32 adler = new Adler32();
+			signatures[0] = (int) adler.getValue();
+			for (int position = 0; position < ExtensionTables.COUNT; position++) {
+				adler.update(ExtensionTables.name(ExtensionTables.BY_DICTIONARY_ID[position]).getBytes(StandardCharsets.UTF_8));
+				adler.update(' ');
+				signatures[position + 1] = (int) adler.getValue();
+			}
+			sDictionarySignatures = signatures;
+		}
+		return sDictionarySignatures[size];
+	}
+
+	// Growable byte buffer with the primitive encodings of the format
+	private static final class Output {
+		byte[] mData = new byte[4096];
+		int mLength;
+
+		void ensure(int count) {
+			if (mLength + count > mData.length) {
+				byte[] data = new byte[Math.max(mData.length * 2, mLength + count)];
+				System.arraycopy(mData, 0, data, 0, mLength);
+				mData = data;
+			}
+		}
+
+		void writeByte(int b) {
+			ensure(1);
+			mData[mLength++] = (byte) b;
+		}
+
+		void writeBytes(byte[] bytes, int offset, int count) {
+			ensure(count);
+			System.arraycopy(bytes, offset, mData, mLength, count);
+			mLength += count;
+		}
+
+		void writeVarint(long value) {
+			ensure(10);
+			while ((value & ~0x7FL) != 0) {
+				mData[mLength++] = (byte) ((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			mData[mLength++] = (byte) value;
+		}
+
+		void writeZigzag(long value) {
+			writeVarint((value << 1) ^ (value >> 63));
+		}
+
+		void writeFloat(float value) {
+			final int bits = Float.floatToRawIntBits(value);
+			ensure(4);
+			mData[mLength++] = (byte) bits;
+			mData[mLength++] = (byte) (bits >> 8);
+			mData[mLength++] = (byte) (bits >> 16);
+			mData[mLength++] = (byte) (bits >> 24);
+		}
+
+		void writeString(String s) {
+			if (s == null) {
+				writeVarint(0);
+				return;
+			}
+			final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+			writeVarint(bytes.length + 1);
+			writeBytes(bytes, 0, bytes.length);
+		}
+
+		void writeStringList(List<String> list) {
+			writeVarint(list.size());
+			for (int i = 0; i < list.size(); i++) {
+				writeString(list.get(i));
+			}
+		}
+	}
+
+	// Bounds checked reader of the primitive encodings
+	private static final class Input {
+		final byte[] mData;
+		int mPos;
+		int mEnd;
+
+		Input(byte[] data, int offset, int length) {
+			mData = data;
+			mPos = offset;
+			mEnd = offset + length;
+		}
+
+		int readByte() throws IOException {
+			if (mPos >= mEnd) {
+				throw new IOException("Truncated binary report");
+			}
+			return mData[mPos++] & 0xFF;
+		}
+
+		long readVarint() throws IOException {
+			long value = 0;
+			for (int shift = 0; shift < 64; shift += 7) {
+				final int b = readByte();
+				value |= (long) (b & 0x7F) << shift;
+				if (b < 0x80) {
+					return value;
+				}
+			}
+			throw new IOException("Invalid varint in binary report");
+		}
+
+		int readInt() throws IOException {
+			return (int) readVarint();
+		}
+
+		long readZigzag() throws IOException {
+			final long value = readVarint();
+			return (value >>> 1) ^ -(value & 1);
+		}
+
+		// Counts and lengths, checked against the remaining data so corrupt input can't trigger huge allocations
+		int readCount() throws IOException {
+			final long count = readVarint();
+			if (count < 0 || count > mEnd - mPos) {
+				throw new IOException("Invalid count in binary report");
+			}
+			return (int) count;
+		}
+
+		float readFloat() throws IOException {
+			if (mEnd - mPos < 4) {
+				throw new IOException("Truncated binary report");
+			}
+			final int bits = (mData[mPos] & 0xFF) | (mData[mPos + 1] & 0xFF) << 8 | (mData[mPos + 2] & 0xFF) << 16 | (mData[mPos + 3] & 0xFF) << 24;
+			mPos += 4;
+			return Float.intBitsToFloat(bits);
+		}
+
+		String readString() throws IOException {
+			final long length = readVarint();
+			if (length == 0) {
+				return null;
+			}
+			if (length < 0 || length - 1 > mEnd - mPos) {
+				throw new IOException("Truncated binary report");
+			}
+			final String s = new String(mData, mPos, (int) length - 1, StandardCharsets.UTF_8);
+			mPos += (int) length - 1;
+			return s;
+		}
+
+		void readStringList(List<String> list) throws IOException {
+			final int count = readCount();
+			for (int i = 0; i < count; i++) {
+				list.add(readString());
+			}
+		}
+	}
+
+	static byte[] write(GLESInfo info, String submitter) {
+		return write(info, submitter, ExtensionTables.COUNT);
+	}
+
+	// Only the first dictionarySize names of the dictionary are stored as ids, 0 stores all names inline (the report
+	// can then be read with any dictionary)
+	static byte[] write(GLESInfo info, String submitter, int dictionarySize) {
+		if (dictionarySize < 0 || dictionarySize > ExtensionTables.COUNT) {
+			throw new IllegalArgumentException("Invalid dictionary size " + dictionarySize);
+		}
+		final Output out = new Output();
+		final Output section = new Output();
+
+		out.writeByte(MAGIC >>> 24);
+		out.writeByte(MAGIC >>> 16);
+		out.writeByte(MAGIC >>> 8);
+		out.writeByte(MAGIC);
+		out.writeVarint(FORMAT_VERSION);
+		out.writeVarint(dictionarySize);
+		out.writeVarint(dictionarySignature(dictionarySize) & 0xFFFFFFFFL);
+
+		section.writeVarint(info.mReportVersion);
+		section.writeString(submitter);
+		endSection(out, SECTION_REPORT, section);
+
+		section.writeString(info.mDeviceName);
+		section.writeString(info.mDeviceOS);
+		section.writeZigzag(info.mScreenWidth);
+		section.writeZigzag(info.mScreenHeight);
+		section.writeFloat(info.mDeviceCPUSpeed);
+		section.writeZigzag(info.mDeviceCPUCores);
+		section.writeString(info.mDeviceCPUArch);
+		section.writeZigzag(info.mDeviceTotalRAM);
+		endSection(out, SECTION_SYSTEM, section);
+
+		section.writeStringList(info.mDeviceFeatures);
+		endSection(out, SECTION_FEATURES, section);
+
+		section.writeVarint(info.mDeviceSensors.size());
+		for (int i = 0; i < info.mDeviceSensors.size(); i++) {
+			final SensorInfo sensor = info.mDeviceSensors.get(i);
+			section.writeString(sensor.mName);
+			section.writeFloat(sensor.mMaxRange);
+			section.writeFloat(sensor.mResolution);
+		}
+		endSection(out, SECTION_SENSORS, section);
+
+		section.writeString(info.mVendor);
+		section.writeString(info.mRenderer);
+		section.writeString(info.mVersion);
+		section.writeZigzag(info.mMajorVersion);
+		section.writeZigzag(info.mMinorVersion);
+		section.writeString(info.mShadingLanguageVersion);
+		section.writeZigzag(info.mShadingLanguageMajorVersion);
+		section.writeZigzag(info.mShadingLanguageMinorVersion);
+		endSection(out, SECTION_GLES, section);
+
+		writeExtensions(section, info.mExtensions, dictionarySize);
+		endSection(out, SECTION_GLES_EXTENSIONS, section);
+
+		for (CapStore caps : new CapStore[] { info.mGLES20Caps, info.mGLES30Caps, info.mGLES31Caps, info.mGLES32Caps }) {
+			writeCaps(section, caps);
+			endSection(out, SECTION_CAPS, section);
+		}
+
+		section.writeStringList(info.mGLCompressedFormats);
+		section.writeStringList(info.mGLShaderBinaryFormats);
+		section.writeStringList(info.mGLProgramBinaryFormats);
+		endSection(out, SECTION_FORMATS, section);
+
+		section.writeByte(info.mEGLAvailable ? 1 : 0);
+		section.writeString(info.mEGLVendor);
+		section.writeString(info.mEGLVersion);
+		section.writeString(info.mEGLClientAPIs);
+		endSection(out, SECTION_EGL, section);
+
+		writeExtensions(section, info.mEGLExtensions, dictionarySize);
+		endSection(out, SECTION_EGL_EXTENSIONS, section);
+
+		if (info.mEGLConfigs != null) {
+			writeConfigs(section, info.mEGLConfigs);
+			endSection(out, SECTION_EGL_CONFIGS, section);
+		}
+
+		final byte[] data = new byte[out.mLength];
+		System.arraycopy(out.mData, 0, data, 0, data.length);
+		return data;
+	}
+
+	static void write(GLESInfo info, String submitter, OutputStream out) throws IOException {
+		out.write(write(info, submitter));
+	}
+
+	private static void endSection(Output out, int id, Output section) {
+		out.writeVarint(id);
+		out.writeVarint(section.mLength);
+		out.writeBytes(section.mData, 0, section.mLength);
+		section.mLength = 0;
+	}
+
+	private static void writeExtensions(Output out, ExtensionSet extensions, int dictionarySize) {
+		final int[] positions = new int[extensions.size() - extensions.unknownCount()];
+		int count = 0;
+		for (int id = extensions.nextId(0); id != ExtensionSet.NOT_FOUND; id = extensions.nextId(id + 1)) {
+			if (ExtensionTables.DICTIONARY_ID[id] < dictionarySize) {
+				positions[count++] = ExtensionTables.DICTIONARY_ID[id];
+			}
+		}
+		Arrays.sort(positions, 0, count);
+		out.writeVarint(count);
+		int previous = -1;
+		for (int i = 0; i < count; i++) {
+			out.writeVarint(positions[i] - previous);
+			previous = positions[i];
+		}
+		out.writeVarint(extensions.size() - count);
+		for (int id = extensions.nextId(0); id != ExtensionSet.NOT_FOUND; id = extensions.nextId(id + 1)) {
+			if (ExtensionTables.DICTIONARY_ID[id] >= dictionarySize) {
+				out.writeString(ExtensionTables.name(id));
+			}
+		}
+		for (int i = 0; i < extensions.unknownCount(); i++) {
+			out.writeString(extensions.unknown(i));
+		}
+		// Driver order: count + 1 (0 = not known), then the position + 1 of each name of ExtensionSet.list() in the
+		// sorted names (0 = empty name)
+		if (extensions.source() == null) {
+			out.writeVarint(0);
+			return;
+		}
+		final String[] sorted = extensions.toArray();
+		final String[] names = extensions.list();
+		out.writeVarint(names.length + 1);
+		for (String name : names) {
+			out.writeVarint(name.isEmpty() ? 0 : Arrays.binarySearch(sorted, name) + 1);
+		}
+	}
+
+	// Cap key: GL enum << 3 | indexed << 2 | value type, the index follows for indexed caps
+	// Only valid values are stored, missing caps read back as unknown
+	private static void writeCaps(Output out, CapStore caps) {
+		out.writeVarint(caps.mSection);
+		out.writeByte(caps.size() > 0 ? 1 : 0);
+		int valid = 0;
+		for (int slot = 0; slot < caps.size(); slot++) {
+			if (caps.isValid(slot)) {
+				valid++;
+			}
+		}
+		out.writeVarint(valid);
+		for (int slot = 0; slot < caps.size(); slot++) {
+			if (!caps.isValid(slot)) {
+				continue;
+			}
+			final int type = caps.type(slot);
+			final boolean indexed = caps.index(slot) >= 0;
+			out.writeVarint(((caps.glEnum(slot) & 0xFFFFFFFFL) << 3) | (indexed ? 4 : 0) | type);
+			if (indexed) {
+				out.writeVarint(caps.index(slot));
+			}
+			switch (type) {
+				case CapTables.TYPE_INT64:
+					out.writeZigzag(caps.getLong(slot));
+					break;
+				case CapTables.TYPE_FLOAT:
+					out.writeFloat(caps.getFloat(slot));
+					break;
+				case CapTables.TYPE_RANGE:
+					out.writeZigzag(caps.getRangeMin(slot));
+					out.writeZigzag(caps.getRangeMax(slot));
+					break;
+				default:
+					out.writeZigzag(caps.getInt(slot));
+			}
+		}
+	}
+
+	// Column wise, keyed by EGL attribute, values delta coded against the previous config
+	private static void writeConfigs(Output out, EGLConfigTable configs) {
+		out.writeVarint(configs.size());
+		out.writeVarint(EGLConfigTable.COLUMN_COUNT);
+		for (int column = 0; column < EGLConfigTable.COLUMN_COUNT; column++) {
+			out.writeVarint(EGLConfigTable.ATTRIBUTES[column] & 0xFFFFFFFFL);
+			int previous = 0;
+			for (int config = 0; config < configs.size(); config++) {
+				final int value = configs.get(column, config);
+				out.writeZigzag(value - previous);
+				previous = value;
+			}
+		}
+	}
+
+	static BinaryReport read(InputStream in) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(8192);
+		final byte[] buffer = new byte[8192];
+		int count;
+		while ((count = in.read(buffer)) >= 0) {
+			bytes.write(buffer, 0, count);
+		}
+		final byte[] data = bytes.toByteArray();
+		return read(data, 0, data.length, ALL_SECTIONS);
+	}
+
+	// Sections not in the mask (bit per section id) are skipped without decoding
+	static BinaryReport read(byte[] data, int offset, int length, long sectionMask) throws IOException {
+		final Input in = new Input(data, offset, length);
+		int magic = 0;
+		for (int i = 0; i < 4; i++) {
+			magic = (magic << 8) | in.readByte();
+		}
+		if (magic != MAGIC) {
+			throw new IOException("Not a binary report");
+		}
+		final long version = in.readVarint();
+		if (version != FORMAT_VERSION) {
+			throw new IOException("Unsupported binary report version " + version);
+		}
+		// Dictionaries of newer versions can't be checked, ids beyond this dictionary are rejected when reading them
+		final long dictionarySize = in.readVarint();
+		final int signature = (int) in.readVarint();
+		if (dictionarySize <= ExtensionTables.COUNT && signature != dictionarySignature((int) dictionarySize)) {
+			throw new IOException("Binary report was written with an incompatible extension dictionary");
+		}
+
+		// Data only, the backends are never used
+		final GLESInfo info = new GLESInfo(null, null);
+		String submitter = null;
+		int capSections = 0;
+
+		while (in.mPos < in.mEnd) {
+			final int id = in.readInt();
+			final int sectionLength = in.readCount();
+			final int sectionEnd = in.mPos + sectionLength;
+			if (id < 0 || id >= 64 || (sectionMask & (1L << id)) == 0) {
+				in.mPos = sectionEnd;
+				continue;
+			}
+			final int end = in.mEnd;
+			in.mEnd = sectionEnd;
+			switch (id) {
+				case SECTION_REPORT:
+					info.mReportVersion = in.readInt();
+					submitter = in.readString();
+					break;
+				case SECTION_SYSTEM:
+					info.mDeviceName = in.readString();
+					info.mDeviceOS = in.readString();
+					info.mScreenWidth = (int) in.readZigzag();
+					info.mScreenHeight = (int) in.readZigzag();
+					info.mDeviceCPUSpeed = in.readFloat();
+					info.mDeviceCPUCores = (int) in.readZigzag();
+					info.mDeviceCPUArch = in.readString();
+					info.mDeviceTotalRAM = (int) in.readZigzag();
+					break;
+				case SECTION_FEATURES:
+					in.readStringList(info.mDeviceFeatures);
+					break;
+				case SECTION_SENSORS: {
+					final int count = in.readCount();
+					for (int i = 0; i < count; i++) {
+						SensorInfo sensor = new SensorInfo();
+						sensor.mName = in.readString();
+						sensor.mMaxRange = in.readFloat();
+						sensor.mResolution = in.readFloat();
+						info.mDeviceSensors.add(sensor);
+					}
+					break;
+				}
+				case SECTION_GLES:
+					info.mVendor = in.readString();
+					info.mRenderer = in.readString();
+					info.mVersion = in.readString();
+					info.mMajorVersion = (int) in.readZigzag();
+					info.mMinorVersion = (int) in.readZigzag();
+					info.mShadingLanguageVersion = in.readString();
+					info.mShadingLanguageMajorVersion = (int) in.readZigzag();
+					info.mShadingLanguageMinorVersion = (int) in.readZigzag();
+					break;
+				case SECTION_GLES_EXTENSIONS:
+					info.mExtensions = readExtensions(in);
+					break;
+				case SECTION_CAPS:
+					readCaps(in, info);
+					capSections++;
+					break;
+				case SECTION_FORMATS:
+					in.readStringList(info.mGLCompressedFormats);
+					in.readStringList(info.mGLShaderBinaryFormats);
+					in.readStringList(info.mGLProgramBinaryFormats);
+					break;
+				case SECTION_EGL:
+					info.mEGLAvailable = in.readByte() != 0;
+					info.mEGLVendor = in.readString();
+					info.mEGLVersion = in.readString();
+					info.mEGLClientAPIs = in.readString();
+					break;
+				case SECTION_EGL_EXTENSIONS:
+					info.mEGLExtensions = readExtensions(in);
+					break;
+				case SECTION_EGL_CONFIGS:
+					info.mEGLConfigs = readConfigs(in);
+					break;
+			}
+			// Newer writers may append fields to a section
+			in.mPos = sectionEnd;
+			in.mEnd = end;
+		}
+		if (in.mPos != in.mEnd) {
+			throw new IOException("Truncated binary report");
+		}
+		return new BinaryReport(info, submitter);
+	}
+
+	private static ExtensionSet readExtensions(Input in) throws IOException {
+		final int count = in.readCount();
+		int[] ids = new int[count];
+		long dictionaryId = -1;
+		for (int i = 0; i < count; i++) {
+			dictionaryId += in.readVarint();
+			if (dictionaryId < 0 || dictionaryId >= ExtensionTables.COUNT) {
+				throw new IOException("Extension dictionary id " + dictionaryId + " beyond the dictionary of this version");
+			}
+			ids[i] = ExtensionTables.BY_DICTIONARY_ID[(int) dictionaryId];
+		}
+		// Inline names may be in this version's dictionary (written with a smaller one)
+		final int inlineCount = in.readCount();
+		int idCount = count;
+		ArrayList<String> unknown = new ArrayList<>();
+		for (int i = 0; i < inlineCount; i++) {
+			final String name = in.readString();
+			if (name == null) {
+				throw new IOException("Invalid extension name");
+			}
+			final int id = ExtensionSet.id(name);
+			if (id == ExtensionSet.NOT_FOUND) {
+				unknown.add(name);
+			} else {
+				if (idCount == ids.length) {
+					ids = Arrays.copyOf(ids, idCount + inlineCount);
+				}
+				ids[idCount++] = id;
+			}
+		}
+		final ExtensionSet extensions;
+		try {
+			extensions = ExtensionSet.of(ids, idCount, unknown);
+		} catch (IllegalArgumentException e) {
+			throw new IOException(e.getMessage());
+		}
+		// Reports written before the driver order was stored end here
+		if (in.mPos == in.mEnd) {
+			return extensions;
+		}
+		final int orderCount = in.readInt() - 1;
+		if (orderCount < 0) {
+			return extensions;
+		}
+		if (orderCount > in.mEnd - in.mPos) {
+			throw new IOException("Invalid count in binary report");
+		}
+		final String[] sorted = extensions.toArray();
+		final StringBuilder source = new StringBuilder();
+		for (int i = 0; i < orderCount; i++) {
+			final int position = in.readInt();
+			if (position < 0 || position > sorted.length) {
+				throw new IOException("Invalid extension position " + position);
+			}
+			if (i > 0) {
+				source.append(' ');
+			}
+			if (position > 0) {
+				source.append(sorted[position - 1]);
+			}
+		}
+		return extensions.withSource(source.toString());
+	}
+
+	private static void readCaps(Input in, GLESInfo info) throws IOException {
+		final int section = in.readInt();
+		final CapStore caps;
+		switch (section) {
+			case CapTables.SECTION_ES20:
+				caps = info.mGLES20Caps;
+				break;
+			case CapTables.SECTION_ES30:
+				caps = info.mGLES30Caps;
+				break;
+			case CapTables.SECTION_ES31:
+				caps = info.mGLES31Caps;
+				break;
+			case CapTables.SECTION_ES32:
+				caps = info.mGLES32Caps;
+				break;
+			default:
+				return;
+		}
+		caps.setAvailable(in.readByte() != 0);
+		final int count = in.readCount();
+		// Caps are written in slot order, so the next slot is checked first
+		int slot = 0;
+		for (int i = 0; i < count; i++) {
+			final long key = in.readVarint();
+			final int glEnum = (int) (key >>> 3);
+			final int type = (int) (key & 3);
+			final int index = (key & 4) != 0 ? in.readInt() : -1;
+			long value = 0;
+			long max = 0;
+			float floatValue = 0;
+			switch (type) {
+				case CapTables.TYPE_FLOAT:
+					floatValue = in.readFloat();
+					break;
+				case CapTables.TYPE_RANGE:
+					value = in.readZigzag();
+					max = in.readZigzag();
+					break;
+				default:
+					value = in.readZigzag();
+			}
+			slot = findSlot(caps, slot, glEnum, index);
+			if (slot < 0) {
+				// Cap not in this build's spec
+				slot = 0;
+				continue;
+			}
+			if (caps.type(slot) == type) {
+				switch (type) {
+					case CapTables.TYPE_INT64:
+						caps.setLong(slot, value);
+						break;
+					case CapTables.TYPE_FLOAT:
+						caps.setFloat(slot, floatValue);
+						break;
+					case CapTables.TYPE_RANGE:
+						caps.setRange(slot, (int) value, (int) max);
+						break;
+					default:
+						caps.setInt(slot, (int) value);
+				}
+			}
+			slot++;
+		}
+	}
+
+	private static int findSlot(CapStore caps, int start, int glEnum, int index) {
+		final int slotCount = caps.size();
+		for (int i = 0; i < slotCount; i++) {
+			final int slot = (start + i) % slotCount;
+			if (caps.glEnum(slot) == glEnum && caps.index(slot) == index) {
+				return slot;
+			}
+		}
+		return -1;
+	}
+
+	private static EGLConfigTable readConfigs(Input in) throws IOException {
+		final int count = in.readCount();
+		final int columnCount = in.readCount();
+		final EGLConfigTable configs = new EGLConfigTable(count);
+		for (int i = 0; i < columnCount; i++) {
+			final int attribute = in.readInt();
+			int column = EGLConfigTable.COLUMN_COUNT - 1;
+			while (column >= 0 && EGLConfigTable.ATTRIBUTES[column] != attribute) {
+				column--;
+			}
+			int value = 0;
+			for (int config = 0; config < count; config++) {
+				value += (int) in.readZigzag();
+				if (column >= 0) {
+					configs.set(column, config, value);
+				}
+			}
+		}
+		return configs;
+	}
+
+}
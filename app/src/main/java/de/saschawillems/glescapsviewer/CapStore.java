@@ -0,0 +1,284 @@
+/*
+*
+* OpenGL ES hardware capability viewer and database
+*
+* Copyright (C) 2011-2018 by Sascha Willems (www.saschawillems.de)
+*
+* This code is free software, you can redistribute it and/or
+* modify it under the terms of the GNU Lesser General Public
+* License version 3 as published by the Free Software Foundation.
+*
+* Please review the following information to ensure the GNU Lesser
+* General Public License version 3 requirements will be met:
+* http://opensource.org/licenses/lgpl-3.0.html
+*
+* The code is distributed WITHOUT ANY WARRANTY; without even the
+* implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+* PURPOSE.  See the GNU LGPL 3.0 for more details.
+*
+*/
+
+package de.saschawillems.glescapsviewer;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+// Typed storage for the cap values of one section of the generated cap tables
+// Values are kept in one primitive column per type, names and text are only produced on request
+class CapStore {
+
+	// Slot layout of a section, shared by all stores of that section
+	// Indexed caps occupy one slot per index
+	private static class Layout {
+		int slotCount;
+		short[] cap;
+		byte[] index;
+		int[] column;
+		int intCount;
+		int longCount;
+		int floatCount;
+		int rangeCount;
+	}
+
+	private static final Layout[] sLayouts = new Layout[CapTables.SECTION_COUNT];
+
+	public final int mSection;
+	private final Layout mLayout;
+	private boolean mAvailable = false;
+
+	private final int[] mInts;
+	private final long[] mLongs;
+	private final float[] mFloats;
+	private final int[] mRanges; // Min/max pairs
+	private final long[] mValid;
+
+	public CapStore(int section) {
+		mSection = section;
+		mLayout = getLayout(section);
+		mInts = new int[mLayout.intCount];
+		mLongs = new long[mLayout.longCount];
+		mFloats = new float[mLayout.floatCount];
+		mRanges = new int[mLayout.rangeCount * 2];
+		mValid = new long[(mLayout.slotCount + 63) >> 6];
+	}
+
+	private static synchronized Layout getLayout(int section) {
+		if (sLayouts[section] != null) {
+			return sLayouts[section];
+		}
+		final int first = CapTables.SECTION_OFFSET[section];
+		final int last = CapTables.SECTION_OFFSET[section + 1];
+
+		Layout layout = new Layout();
+		for (int i = first; i < last; i++) {
+			layout.slotCount += CapTables.COUNT[i];
+		}
+		layout.cap = new short[layout.slotCount];
+		layout.index = new byte[layout.slotCount];
+		layout.column = new int[layout.slotCount];
+
+		int slot = 0;
+		for (int i = first; i < last; i++) {
+			for (int j = 0; j < CapTables.COUNT[i]; j++) {
+				layout.cap[slot] = (short) i;
+				layout.index[slot] = (byte) (CapTables.COUNT[i] > 1 ? j : -1);
+				switch (CapTables.TYPE[i]) {
+					case CapTables.TYPE_INT64:
+						layout.column[slot] = layout.longCount++;
+						break;
+					case CapTables.TYPE_FLOAT:
+						layout.column[slot] = layout.floatCount++;
+						break;
+					case CapTables.TYPE_RANGE:
+						layout.column[slot] = layout.rangeCount++;
+						break;
+					default:
+						layout.column[slot] = layout.intCount++;
+				}
+				slot++;
+			}
+		}
+		sLayouts[section] = layout;
+		return layout;
+	}
+
+	// Marks the section as supported by the implementation, stores of unsupported sections report no slots
+	public void setAvailable(boolean available) {
+		mAvailable = available;
+	}
+
+	public int size() {
+		return mAvailable ? mLayout.slotCount : 0;
+	}
+
+	// Index into the generated cap tables
+	public int cap(int slot) {
+		return mLayout.cap[slot];
+	}
+
+	// Value index of indexed caps, -1 for plain caps
+	public int index(int slot) {
+		return mLayout.index[slot];
+	}
+
+	public int type(int slot) {
+		return CapTables.TYPE[mLayout.cap[slot]];
+	}
+
+	public int glEnum(int slot) {
+		return CapTables.ENUM[mLayout.cap[slot]];
+	}
+
+	public String name(int slot) {
+		final int index = mLayout.index[slot];
+		if (index < 0) {
+			return CapTables.name(mLayout.cap[slot]);
+		}
+		return CapTables.name(mLayout.cap[slot]) + "[" + String.valueOf(index) + "]";
+	}
+
+	public String displayName(int slot) {
+		final int index = mLayout.index[slot];
+		if (index < 0) {
+			return CapTables.displayName(mLayout.cap[slot]);
+		}
+		return CapTables.displayName(mLayout.cap[slot]) + "[" + String.valueOf(index) + "]";
+	}
+
+	public boolean isValid(int slot) {
+		return (mValid[slot >> 6] & (1L << slot)) != 0;
+	}
+
+	public void setInvalid(int slot) {
+		mValid[slot >> 6] &= ~(1L << slot);
+	}
+
+	private void setValid(int slot) {
+		mValid[slot >> 6] |= 1L << slot;
+	}
+
+	public int getInt(int slot) {
+		return mInts[mLayout.column[slot]];
+	}
+
+	public long getLong(int slot) {
+		return mLongs[mLayout.column[slot]];
+	}
+
+	public float getFloat(int slot) {
+		return mFloats[mLayout.column[slot]];
+	}
+
+	public int getRangeMin(int slot) {
+		return mRanges[mLayout.column[slot] * 2];
+	}
+
+	public int getRangeMax(int slot) {
+		return mRanges[mLayout.column[slot] * 2 + 1];
+	}
+
+	public void setInt(int slot, int value) {
+		mInts[mLayout.column[slot]] = value;
+		setValid(slot);
+	}
+
+	public void setLong(int slot, long value) {
+		mLongs[mLayout.column[slot]] = value;
+		setValid(slot);
+	}
+
+	public void setFloat(int slot, float value) {
+		mFloats[mLayout.column[slot]] = value;
+		setValid(slot);
+	}
+
+	public void setRange(int slot, int min, int max) {
+		mRanges[mLayout.column[slot] * 2] = min;
+		mRanges[mLayout.column[slot] * 2 + 1] = max;
+		setValid(slot);
+	}
+
+	// Raw columns for the snapshot cache, only valid for stores of the same cap table layout
+	public void write(DataOutputStream out) throws IOException {
+		out.writeBoolean(mAvailable);
+		out.writeInt(mLayout.slotCount);
+		for (int value : mInts) {
+			out.writeInt(value);
+		}
+		for (long value : mLongs) {
+			out.writeLong(value);
+		}
+		for (float value : mFloats) {
+			out.writeFloat(value);
+		}
+		for (int value : mRanges) {
+			out.writeInt(value);
+		}
+		for (long bits : mValid) {
+			out.writeLong(bits);
+		}
+	}
+
+	public void read(DataInputStream in) throws IOException {
+		mAvailable = in.readBoolean();
+		if (in.readInt() != mLayout.slotCount) {
+			throw new IOException("Cap store layout mismatch");
+		}
+		for (int i = 0; i < mInts.length; i++) {
+			mInts[i] = in.readInt();
+		}
+		for (int i = 0; i < mLongs.length; i++) {
+			mLongs[i] = in.readLong();
+		}
+		for (int i = 0; i < mFloats.length; i++) {
+			mFloats[i] = in.readFloat();
+		}
+		for (int i = 0; i < mRanges.length; i++) {
+			mRanges[i] = in.readInt();
+		}
+		for (int i = 0; i < mValid.length; i++) {
+			mValid[i] = in.readLong();
+		}
+	}
+
+	// Value as displayed in the UI, int64 caps are unsigned (e.g. GL_MAX_SERVER_WAIT_TIMEOUT)
+	public String valueText(int slot) {
+		if (!isValid(slot)) {
+			return "unknown";
+		}
+		switch (type(slot)) {
+			case CapTables.TYPE_INT64:
+				return Long.toUnsignedString(getLong(slot));
+			case CapTables.TYPE_FLOAT:
+				return String.valueOf(getFloat(slot));
+			case CapTables.TYPE_RANGE:
+				return String.valueOf(getRangeMin(slot)) + " x " + String.valueOf(getRangeMax(slot));
+			default:
+				return String.valueOf(getInt(slot));
+		}
+	}
+
+	// Value as stored in the report: report version 6 queried all caps with glGetIntegerv, so floats are rounded,
+	// int64 values are clamped to the int range and ranges only report their first value
+	public int reportValue(int slot) {
+		switch (type(slot)) {
+			case CapTables.TYPE_INT64: {
+				final long value = getLong(slot);
+				return (value < 0 || value > Integer.MAX_VALUE) ? Integer.MAX_VALUE : (int) value;
+			}
+			case CapTables.TYPE_FLOAT:
+				return Math.round(getFloat(slot));
+			case CapTables.TYPE_RANGE:
+				return getRangeMin(slot);
+			default:
+				return getInt(slot);
+		}
+	}
+
+	// Report text of a value, "unknown" for caps that could not be queried
+	public String serializedValue(int slot) {
+		return isValid(slot) ? String.valueOf(reportValue(slot)) : "unknown";
+	}
+
+}
@@ -0,0 +1,124 @@
+/*
+*
+* OpenGL ES hardware capability viewer and database
+*
+* Copyright (C) 2011-2018 by Sascha Willems (www.saschawillems.de)
+*
+* This code is free software, you can redistribute it and/or
+* modify it under the terms of the GNU Lesser General Public
+* License version 3 as published by the Free Software Foundation.
+*
+* Please review the following information to ensure the GNU Lesser
+* General Public License version 3 requirements will be met:
+* http://opensource.org/licenses/lgpl-3.0.html
+*
+* The code is distributed WITHOUT ANY WARRANTY; without even the
+* implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+* PURPOSE.  See the GNU LGPL 3.0 for more details.
+*
+*/
+
+package de.saschawillems.glescapsviewer;
+
+// Spreads the GL/EGL units of a capture over successive frames, runFrame() is called from onDrawFrame
+// Each frame runs units until the next one would exceed the frame budget (estimated by the duration of the
+// previous unit), at least one unit per frame so the capture always makes progress
+// Frames without pending units only wait for the device tasks, the capture finishes in the frame after they are done
+class CaptureScheduler {
+
+	private final CaptureSession mCapture;
+	private final long mFrameBudget;
+
+	private long mLastUnitTime = 0;
+	private boolean mDone = false;
+
+	// Per-frame stats (frames that ran units only)
+	private int mFrames = 0;
+	private int mUnits = 0;
+	private int mMinUnitsPerFrame = Integer.MAX_VALUE;
+	private int mMaxUnitsPerFrame = 0;
+	private long mMaxFrameTime = 0;
+	private int mOverBudgetFrames = 0;
+	private int mWaitFrames = 0;
+
+	// Frame budget in ns
+	public CaptureScheduler(CaptureSession capture, long frameBudget) {
+		mCapture = capture;
+		mFrameBudget = frameBudget;
+	}
+
+	// Must be called on the GL thread
+	public void start() {
+		mCapture.start();
+	}
+
+	// Runs the units of one frame on the GL thread, returns true once the capture is complete
+	public boolean runFrame() {
+		if (mDone) {
+			return true;
+		}
+		final long frameStart = System.nanoTime();
+		int units = 0;
+		while (mCapture.hasPendingUnits()) {
+			final long unitStart = System.nanoTime();
+			if ((units > 0) && (unitStart - frameStart + mLastUnitTime > mFrameBudget)) {
+				break;
+			}
+			mCapture.runNextUnit();
+			mLastUnitTime = System.nanoTime() - unitStart;
+			units++;
+		}
+		final long frameTime = System.nanoTime() - frameStart;
+
+		if (units > 0) {
+			mFrames++;
+			mUnits += units;
+			mMinUnitsPerFrame = Math.min(mMinUnitsPerFrame, units);
+			mMaxUnitsPerFrame = Math.max(mMaxUnitsPerFrame, units);
+			mMaxFrameTime = Math.max(mMaxFrameTime, frameTime);
+			if (frameTime > mFrameBudget) {
+				mOverBudgetFrames++;
+			}
+		} else {
+			mWaitFrames++;
+		}
+
+		if (!mCapture.hasPendingUnits() && mCapture.isDeviceInfoDone()) {
+			mCapture.finish();
+			mDone = true;
+		}
+		return mDone;
+	}
+
+	public boolean isDone() {
+		return mDone;
+	}
+
+	public int getFrameCount() {
+		return mFrames;
+	}
+
+	public int getUnitCount() {
+		return mUnits;
+	}
+
+	public float getAverageUnitsPerFrame() {
+		return (mFrames > 0) ? (float) mUnits / mFrames : 0;
+	}
+
+	public long getMaxFrameTime() {
+		return mMaxFrameTime;
+	}
+
+	// Total capture latency (ns), from start() until the capture was complete
+	public long getLatency() {
+		return mCapture.getWallTime();
+	}
+
+	public String statsText() {
+		return mUnits + " units in " + mFrames + " frames (" + (mFrames > 0 ? mMinUnitsPerFrame : 0) + "/" + String.format("%.1f", getAverageUnitsPerFrame()) + "/" + mMaxUnitsPerFrame + " min/avg/max units per frame), "
+			+ "max frame " + mMaxFrameTime / 1000 + " us (budget " + mFrameBudget / 1000 + " us, " + mOverBudgetFrames + " over), "
+			+ mWaitFrames + " frames waiting for device info, latency " + getLatency() / 1000 + " us";
+	}
+
+}
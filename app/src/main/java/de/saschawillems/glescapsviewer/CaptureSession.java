@@ -0,0 +1,319 @@
+/*
+*
+* OpenGL ES hardware capability viewer and database
+*
+* Copyright (C) 2011-2018 by Sascha Willems (www.saschawillems.de)
+*
+* This code is free software, you can redistribute it and/or
+* modify it under the terms of the GNU Lesser General Public
+* License version 3 as published by the Free Software Foundation.
+*
+* Please review the following information to ensure the GNU Lesser
+* General Public License version 3 requirements will be met:
+* http://opensource.org/licenses/lgpl-3.0.html
+*
+* The code is distributed WITHOUT ANY WARRANTY; without even the
+* implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+* PURPOSE.  See the GNU LGPL 3.0 for more details.
+*
+*/
+
+package de.saschawillems.glescapsviewer;
+
+import android.content.Context;
+import android.view.Display;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Captures one snapshot into a GLESInfo
+// GL and EGL queries run on the calling (GL) thread, device info that doesn't need a GL context (system/sysfs,
+// features, sensors) runs on worker threads in parallel, all tasks are joined before run() returns
+// The GL/EGL work is split into small units (strings, cap batches, format lists, EGL config chunks), so it can also
+// be spread over several frames instead of run() (see CaptureScheduler)
+// Each display section (see ReportRows) is reported to the listener as soon as its part of the snapshot is
+// complete, so the UI can show it while the rest is still being captured
+class CaptureSession {
+
+	public interface Listener {
+		// Called on the capturing thread (GL or worker), the section's part of the snapshot is not changed afterwards
+		void sectionReady(int section);
+	}
+
+	public static final int TASK_GL = 0;
+	public static final int TASK_EGL = 1;
+	public static final int TASK_SYSTEM = 2;
+	public static final int TASK_FEATURES = 3;
+	public static final int TASK_SENSORS = 4;
+	public static final int TASK_COUNT = 5;
+
+	private static final String[] TASK_NAMES = {"gl", "egl", "system", "features", "sensors"};
+
+	// Number of caps queried per unit
+	static final int CAP_BATCH_SIZE = 16;
+
+	// Number of EGL configs queried per unit (all attributes of each config)
+	static final int EGL_CONFIG_CHUNK_SIZE = 8;
+
+	private final GLESInfo mGLESInfo;
+	private final Display mDisplay;
+	private final Context mContext;
+
+	// Task durations (ns), each slot is only written by the thread running the task and read after the join
+	// The GL and EGL tasks are the sum of their units
+	private final long[] mTaskTimes = new long[TASK_COUNT];
+	private long mWallTime = 0;
+
+	// Time from the start of the capture until each section was ready (ns), written like the task times
+	private final long[] mSectionTimes = new long[ReportRows.SECTION_COUNT];
+	private long mStart = 0;
+
+	private Listener mListener;
+
+	// GL/EGL units in the order they run, units that depend on earlier results (ES version, EGL config count)
+	// are added by the unit that produces them, all on the GL thread
+	private final List<Task> mUnits = new ArrayList<Task>();
+	private int mNextUnit = 0;
+	private final List<Future<?>> mDeviceTasks = new ArrayList<Future<?>>();
+
+	public CaptureSession(GLESInfo glesInfo, Display display, Context context) {
+		mGLESInfo = glesInfo;
+		mDisplay = display;
+		mContext = context;
+	}
+
+	public void setListener(Listener listener) {
+		mListener = listener;
+	}
+
+	private void sectionReady(int section) {
+		mSectionTimes[section] = System.nanoTime() - mStart;
+		if (mListener != null) {
+			mListener.sectionReady(section);
+		}
+	}
+
+	private abstract class Task implements Runnable {
+		private final int mTask;
+
+		Task(int task) {
+			mTask = task;
+		}
+
+		abstract void capture();
+
+		@Override
+		public void run() {
+			final long start = System.nanoTime();
+			capture();
+			mTaskTimes[mTask] += System.nanoTime() - start;
+		}
+	}
+
+	// Must be called on the GL thread with a current context
+	public void run() {
+		start();
+		while (hasPendingUnits()) {
+			runNextUnit();
+		}
+		finish();
+	}
+
+	// Starts the device tasks and queues the first GL unit, must be called on the GL thread
+	public void start() {
+		mStart = System.nanoTime();
+
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		mDeviceTasks.add(executor.submit(new Task(TASK_SYSTEM) {
+			@Override
+			void capture() {
+				mGLESInfo.getSystemInfo(mDisplay);
+				sectionReady(ReportRows.SECTION_DEVICE);
+			}
+		}));
+		mDeviceTasks.add(executor.submit(new Task(TASK_FEATURES) {
+			@Override
+			void capture() {
+				mGLESInfo.getDeviceFeatures(mContext);
+				sectionReady(ReportRows.SECTION_FEATURES);
+			}
+		}));
+		mDeviceTasks.add(executor.submit(new Task(TASK_SENSORS) {
+			@Override
+			void capture() {
+				mGLESInfo.getDeviceSensors(mContext);
+				sectionReady(ReportRows.SECTION_SENSORS);
+			}
+		}));
+		executor.shutdown();
+
+		mUnits.add(new Task(TASK_GL) {
+			@Override
+			void capture() {
+				// Same steps as GLESInfo.getOpenGLImplementationInfo(), sections of unsupported ES versions are ready right away
+				mGLESInfo.getOpenGLImplementationStrings();
+				sectionReady(ReportRows.SECTION_IMPLEMENTATION);
+				sectionReady(ReportRows.SECTION_EXTENSIONS);
+				addCapUnits(mGLESInfo.mGLES20Caps, ReportRows.SECTION_ES20_CAPS);
+				addCapUnits(mGLESInfo.mGLES30Caps, ReportRows.SECTION_ES30_CAPS);
+				addCapUnits(mGLESInfo.mGLES31Caps, ReportRows.SECTION_ES31_CAPS);
+				addCapUnits(mGLESInfo.mGLES32Caps, ReportRows.SECTION_ES32_CAPS);
+				addFormatUnits();
+				addEGLUnits();
+			}
+		});
+	}
+
+	private void addCapUnits(final CapStore caps, final int section) {
+		if (!mGLESInfo.isCapSectionSupported(caps)) {
+			sectionReady(section);
+			return;
+		}
+		// Stores only report their slots once available, the section is not shown before its last batch anyway
+		caps.setAvailable(true);
+		for (int from = 0; from < caps.size(); from += CAP_BATCH_SIZE) {
+			final int batchFrom = from;
+			final int batchTo = Math.min(from + CAP_BATCH_SIZE, caps.size());
+			mUnits.add(new Task(TASK_GL) {
+				@Override
+				void capture() {
+					mGLESInfo.getOpenGLESCaps(caps, batchFrom, batchTo);
+					if (batchTo == caps.size()) {
+						sectionReady(section);
+					}
+				}
+			});
+		}
+	}
+
+	private void addFormatUnits() {
+		for (int list = 0; list < GLESInfo.FORMAT_LIST_COUNT; list++) {
+			final int formatList = list;
+			mUnits.add(new Task(TASK_GL) {
+				@Override
+				void capture() {
+					mGLESInfo.getOpenGLFormats(formatList);
+					if (formatList == GLESInfo.FORMAT_LIST_COUNT - 1) {
+						sectionReady(ReportRows.SECTION_FORMATS);
+					}
+				}
+			});
+		}
+	}
+
+	private void addEGLUnits() {
+		mUnits.add(new Task(TASK_EGL) {
+			@Override
+			void capture() {
+				if (!mGLESInfo.getEGLImplementationStrings() || (mGLESInfo.mEGLConfigs.size() == 0)) {
+					sectionReady(ReportRows.SECTION_EGL);
+					return;
+				}
+				final int count = mGLESInfo.mEGLConfigs.size();
+				for (int from = 0; from < count; from += EGL_CONFIG_CHUNK_SIZE) {
+					final int chunkFrom = from;
+					final int chunkTo = Math.min(from + EGL_CONFIG_CHUNK_SIZE, count);
+					mUnits.add(new Task(TASK_EGL) {
+						@Override
+						void capture() {
+							mGLESInfo.getEGLConfigs(chunkFrom, chunkTo);
+							if (chunkTo == count) {
+								sectionReady(ReportRows.SECTION_EGL);
+							}
+						}
+					});
+				}
+			}
+		});
+	}
+
+	public boolean hasPendingUnits() {
+		return mNextUnit < mUnits.size();
+	}
+
+	// Runs the next GL/EGL unit, must be called on the GL thread
+	public void runNextUnit() {
+		mUnits.get(mNextUnit++).run();
+	}
+
+	// Number of GL/EGL units so far (grows while the capture runs)
+	public int getUnitCount() {
+		return mUnits.size();
+	}
+
+	public boolean isDeviceInfoDone() {
+		for (Future<?> task : mDeviceTasks) {
+			if (!task.isDone()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// Joins the device tasks once all units ran, blocks if they are still running
+	public void finish() {
+		// Failed device tasks leave their part of the snapshot empty
+		for (Future<?> task : mDeviceTasks) {
+			try {
+				task.get();
+			} catch (ExecutionException e) {
+				e.printStackTrace();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+
+		mWallTime = System.nanoTime() - mStart;
+	}
+
+	// Duration of a single task (ns)
+	public long getTaskTime(int task) {
+		return mTaskTimes[task];
+	}
+
+	// Time from the start of the capture until a section was ready (ns)
+	public long getSectionTime(int section) {
+		return mSectionTimes[section];
+	}
+
+	// Duration of the whole capture as seen by the GL thread (ns), from start() to finish()
+	public long getWallTime() {
+		return mWallTime;
+	}
+
+	// Duration if all tasks had run one after another on the GL thread (ns)
+	public long getSerialTime() {
+		long time = 0;
+		for (long taskTime : mTaskTimes) {
+			time += taskTime;
+		}
+		return time;
+	}
+
+	public String statsText() {
+		StringBuilder stats = new StringBuilder();
+		for (int i = 0; i < TASK_COUNT; i++) {
+			stats.append(TASK_NAMES[i]).append(' ').append(mTaskTimes[i] / 1000).append(" us, ");
+		}
+		stats.append("wall ").append(mWallTime / 1000).append(" us (serial ").append(getSerialTime() / 1000).append(" us)");
+		return stats.toString();
+	}
+
+	// Section readiness relative to the start of the capture
+	public String sectionStatsText() {
+		StringBuilder stats = new StringBuilder();
+		for (int i = 0; i < ReportRows.SECTION_COUNT; i++) {
+			if (i > 0) {
+				stats.append(", ");
+			}
+			stats.append(ReportRows.SECTION_NAMES[i]).append(' ').append(mSectionTimes[i] / 1000).append(" us");
+		}
+		return stats.toString();
+	}
+
+}
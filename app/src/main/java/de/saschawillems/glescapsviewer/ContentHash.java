@@ -0,0 +1,228 @@
+/*
+*
+* OpenGL ES hardware capability viewer and database
+*
+* Copyright (C) 2011-2018 by Sascha Willems (www.saschawillems.de)
+*
+* This code is free software, you can redistribute it and/or
+* modify it under the terms of the GNU Lesser General Public
+* License version 3 as published by the Free Software Foundation.
+*
+* Please review the following information to ensure the GNU Lesser
+* General Public License version 3 requirements will be met:
+* http://opensource.org/licenses/lgpl-3.0.html
+*
+* The code is distributed WITHOUT ANY WARRANTY; without even the
+* implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+* PURPOSE.  See the GNU LGPL 3.0 for more details.
+*
+*/
+
+package de.saschawillems.glescapsviewer;
+
+import java.util.List;
+
+// Canonical content hash of the capability relevant parts of a report, used for duplicate detection
+// Covers the GL/EGL implementation (strings, extensions, formats, caps and configs) plus device model and OS,
+// leaves out the submitter and values that change between runs of the same device (CPU speed, screen
+// orientation, features, sensors)
+// Every element is hashed on its own and the element hashes are summed, so the result does not depend on the
+// order of extensions, formats or configs, nor on the order elements are added in: the capture feeds it
+// incrementally from the GL and the device info threads, of() computes the same value from a loaded report
+final class ContentHash {
+
+	// Element tags, part of the hash (never reorder)
+	private static final int TAG_DEVICE_NAME = 1;
+	private static final int TAG_DEVICE_OS = 2;
+	private static final int TAG_VENDOR = 3;
+	private static final int TAG_RENDERER = 4;
+	private static final int TAG_VERSION = 5;
+	private static final int TAG_SHADING_LANGUAGE_VERSION = 6;
+	private static final int TAG_EXTENSION = 7;
+	private static final int TAG_COMPRESSED_FORMAT = 8;
+	private static final int TAG_SHADER_BINARY_FORMAT = 9;
+	private static final int TAG_PROGRAM_BINARY_FORMAT = 10;
+	private static final int TAG_CAP_SECTION = 11;
+	private static final int TAG_CAP = 12;
+	private static final int TAG_EGL_VENDOR = 13;
+	private static final int TAG_EGL_VERSION = 14;
+	private static final int TAG_EGL_EXTENSION = 15;
+	private static final int TAG_EGL_CLIENT_APIS = 16;
+	private static final int TAG_EGL_CONFIG = 17;
+
+	// Tags of the format lists, indexed by GLESInfo.FORMATS_*
+	private static final int[] FORMAT_TAGS = {TAG_COMPRESSED_FORMAT, TAG_SHADER_BINARY_FORMAT, TAG_PROGRAM_BINARY_FORMAT};
+
+	private static final long SEED = 0x9E3779B97F4A7C15L;
+	private static final long FNV_PRIME = 0x100000001B3L;
+
+	private long mSum = 0;
+	private int mCount = 0;
+
+	// Hash of a report that was not captured in this run (snapshot cache, report files)
+	public static ContentHash of(GLESInfo info) {
+		ContentHash hash = new ContentHash();
+		hash.addDevice(info);
+		hash.addImplementation(info);
+		hash.addExtensions(info.mExtensions);
+		hash.addFormats(info);
+		hash.addCaps(info.mGLES20Caps);
+		hash.addCaps(info.mGLES30Caps);
+		hash.addCaps(info.mGLES31Caps);
+		hash.addCaps(info.mGLES32Caps);
+		hash.addEGL(info);
+		return hash;
+	}
+
+	// Finalizer of MurmurHash3 (64 bit)
+	private static long mix(long h) {
+		h ^= h >>> 33;
+		h *= 0xFF51AFD7ED558CCDL;
+		h ^= h >>> 33;
+		h *= 0xC4CEB9FE1A85EC53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	private static long start(int tag) {
+		return mix(SEED + tag);
+	}
+
+	private static long step(long h, long value) {
+		return mix(h ^ value) * FNV_PRIME;
+	}
+
+	// Null and empty strings hash the same, loaded reports can't tell them apart
+	private static long step(long h, String s) {
+		if (s == null) {
+			return step(h, 0);
+		}
+		for (int i = 0; i < s.length(); i++) {
+			h = (h ^ s.charAt(i)) * FNV_PRIME;
+		}
+		return step(h, s.length());
+	}
+
+	// Capture threads add concurrently (see CaptureSession)
+	private synchronized void add(long h) {
+		mSum += mix(h);
+		mCount++;
+	}
+
+	private void addText(int tag, String s) {
+		add(step(start(tag), s));
+	}
+
+	public void addDevice(GLESInfo info) {
+		addText(TAG_DEVICE_NAME, info.mDeviceName);
+		addText(TAG_DEVICE_OS, info.mDeviceOS);
+	}
+
+	public void addImplementation(GLESInfo info) {
+		addText(TAG_VENDOR, info.mVendor);
+		addText(TAG_RENDERER, info.mRenderer);
+		addText(TAG_VERSION, info.mVersion);
+		addText(TAG_SHADING_LANGUAGE_VERSION, info.mShadingLanguageVersion);
+	}
+
+	public void addExtensions(ExtensionSet extensions) {
+		addExtensions(TAG_EXTENSION, extensions);
+	}
+
+	private void addExtensions(int tag, ExtensionSet extensions) {
+		for (int id = extensions.nextId(0); id != ExtensionSet.NOT_FOUND; id = extensions.nextId(id + 1)) {
+			addText(tag, ExtensionTables.name(id));
+		}
+		for (int i = 0; i < extensions.unknownCount(); i++) {
+			addText(tag, extensions.unknown(i));
+		}
+	}
+
+	public void addFormats(GLESInfo info) {
+		for (int list = 0; list < GLESInfo.FORMAT_LIST_COUNT; list++) {
+			addFormats(info, list);
+		}
+	}
+
+	// A single format list (GLESInfo.FORMATS_*)
+	public void addFormats(GLESInfo info, int list) {
+		addFormats(FORMAT_TAGS[list], info.getFormats(list));
+	}
+
+	private void addFormats(int tag, List<String> formats) {
+		for (int i = 0; i < formats.size(); i++) {
+			addText(tag, formats.get(i));
+		}
+	}
+
+	// All valid caps of a section, call once the section is complete
+	public void addCaps(CapStore caps) {
+		addCaps(caps, 0, caps.size());
+	}
+
+	// Valid caps in slots [from, to) of a section, the section itself is counted with its first slot
+	public void addCaps(CapStore caps, int from, int to) {
+		if ((from == 0) && (caps.size() > 0)) {
+			add(step(start(TAG_CAP_SECTION), caps.mSection));
+		}
+		for (int slot = from; slot < to; slot++) {
+			if (caps.isValid(slot)) {
+				addCap(caps, slot);
+			}
+		}
+	}
+
+	// Caps are keyed by enum and index rather than slot, so the hash survives changes of the cap spec layout
+	// Caps only contribute the value stored in the report (see CapStore.reportValue), so reports read back from XML hash the same
+	private void addCap(CapStore caps, int slot) {
+		long h = start(TAG_CAP);
+		h = step(h, caps.mSection);
+		h = step(h, caps.glEnum(slot));
+		h = step(h, caps.index(slot));
+		h = step(h, caps.reportValue(slot));
+		add(h);
+	}
+
+	public void addEGL(GLESInfo info) {
+		addEGLStrings(info);
+		if (info.mEGLAvailable && (info.mEGLConfigs != null)) {
+			addEGLConfigs(info.mEGLConfigs, 0, info.mEGLConfigs.size());
+		}
+	}
+
+	public void addEGLStrings(GLESInfo info) {
+		if (!info.mEGLAvailable) {
+			return;
+		}
+		addText(TAG_EGL_VENDOR, info.mEGLVendor);
+		addText(TAG_EGL_VERSION, info.mEGLVersion);
+		addText(TAG_EGL_CLIENT_APIS, info.mEGLClientAPIs);
+		addExtensions(TAG_EGL_EXTENSION, info.mEGLExtensions);
+	}
+
+	// Configs [from, to) of the table
+	public void addEGLConfigs(EGLConfigTable configs, int from, int to) {
+		for (int config = from; config < to; config++) {
+			long h = start(TAG_EGL_CONFIG);
+			for (int column = 0; column < EGLConfigTable.COLUMN_COUNT; column++) {
+				h = step(h, configs.get(column, config));
+			}
+			add(h);
+		}
+	}
+
+	public synchronized boolean isEmpty() {
+		return mCount == 0;
+	}
+
+	public synchronized long value() {
+		return mix(mSum ^ mix(mCount));
+	}
+
+	// 16 hex digits, as sent with the report
+	@Override
+	public String toString() {
+		return String.format("%016x", value());
+	}
+
+}
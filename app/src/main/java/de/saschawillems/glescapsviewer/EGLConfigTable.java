@@ -0,0 +1,238 @@
+/*
+*
+* OpenGL ES hardware capability viewer and database
+*
+* Copyright (C) 2011-2018 by Sascha Willems (www.saschawillems.de)
+*
+* This code is free software, you can redistribute it and/or
+* modify it under the terms of the GNU Lesser General Public
+* License version 3 as published by the Free Software Foundation.
+*
+* Please review the following information to ensure the GNU Lesser
+* General Public License version 3 requirements will be met:
+* http://opensource.org/licenses/lgpl-3.0.html
+*
+* The code is distributed WITHOUT ANY WARRANTY; without even the
+* implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+* PURPOSE.  See the GNU LGPL 3.0 for more details.
+*
+*/
+
+package de.saschawillems.glescapsviewer;
+
+import android.opengl.EGL14;
+import android.opengl.EGLExt;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+// EGL configs of the display as struct-of-arrays table, one int column per config attribute
+// Values are stored raw, bitmasks and enums (renderable type, surface type, caveat, ...) are only decoded for display
+class EGLConfigTable {
+
+	// Queried config attributes (EGL 1.4/1.5), position in this list is the column index
+	public static final int[] ATTRIBUTES = {
+		EGL14.EGL_CONFIG_ID,
+		EGL14.EGL_BUFFER_SIZE,
+		EGL14.EGL_RED_SIZE,
+		EGL14.EGL_GREEN_SIZE,
+		EGL14.EGL_BLUE_SIZE,
+		EGL14.EGL_ALPHA_SIZE,
+		EGL14.EGL_LUMINANCE_SIZE,
+		EGL14.EGL_ALPHA_MASK_SIZE,
+		EGL14.EGL_DEPTH_SIZE,
+		EGL14.EGL_STENCIL_SIZE,
+		EGL14.EGL_SAMPLE_BUFFERS,
+		EGL14.EGL_SAMPLES,
+		EGL14.EGL_COLOR_BUFFER_TYPE,
+		EGL14.EGL_RENDERABLE_TYPE,
+		EGL14.EGL_CONFORMANT,
+		EGL14.EGL_SURFACE_TYPE,
+		EGL14.EGL_CONFIG_CAVEAT,
+		EGL14.EGL_LEVEL,
+		EGL14.EGL_NATIVE_RENDERABLE,
+		EGL14.EGL_NATIVE_VISUAL_ID,
+		EGL14.EGL_NATIVE_VISUAL_TYPE,
+		EGL14.EGL_MAX_PBUFFER_WIDTH,
+		EGL14.EGL_MAX_PBUFFER_HEIGHT,
+		EGL14.EGL_MAX_PBUFFER_PIXELS,
+		EGL14.EGL_MIN_SWAP_INTERVAL,
+		EGL14.EGL_MAX_SWAP_INTERVAL,
+		EGL14.EGL_BIND_TO_TEXTURE_RGB,
+		EGL14.EGL_BIND_TO_TEXTURE_RGBA,
+		EGL14.EGL_TRANSPARENT_TYPE,
+		EGL14.EGL_TRANSPARENT_RED_VALUE,
+		EGL14.EGL_TRANSPARENT_GREEN_VALUE,
+		EGL14.EGL_TRANSPARENT_BLUE_VALUE
+	};
+
+	// Column indices (into ATTRIBUTES)
+	public static final int CONFIG_ID = 0;
+	public static final int BUFFER_SIZE = 1;
+	public static final int RED_SIZE = 2;
+	public static final int GREEN_SIZE = 3;
+	public static final int BLUE_SIZE = 4;
+	public static final int ALPHA_SIZE = 5;
+	public static final int LUMINANCE_SIZE = 6;
+	public static final int ALPHA_MASK_SIZE = 7;
+	public static final int DEPTH_SIZE = 8;
+	public static final int STENCIL_SIZE = 9;
+	public static final int SAMPLE_BUFFERS = 10;
+	public static final int SAMPLES = 11;
+	public static final int COLOR_BUFFER_TYPE = 12;
+	public static final int RENDERABLE_TYPE = 13;
+	public static final int CONFORMANT = 14;
+	public static final int SURFACE_TYPE = 15;
+	public static final int CONFIG_CAVEAT = 16;
+	public static final int LEVEL = 17;
+	public static final int NATIVE_RENDERABLE = 18;
+	public static final int NATIVE_VISUAL_ID = 19;
+	public static final int NATIVE_VISUAL_TYPE = 20;
+	public static final int MAX_PBUFFER_WIDTH = 21;
+	public static final int MAX_PBUFFER_HEIGHT = 22;
+	public static final int MAX_PBUFFER_PIXELS = 23;
+	public static final int MIN_SWAP_INTERVAL = 24;
+	public static final int MAX_SWAP_INTERVAL = 25;
+	public static final int BIND_TO_TEXTURE_RGB = 26;
+	public static final int BIND_TO_TEXTURE_RGBA = 27;
+	public static final int TRANSPARENT_TYPE = 28;
+	public static final int TRANSPARENT_RED_VALUE = 29;
+	public static final int TRANSPARENT_GREEN_VALUE = 30;
+	public static final int TRANSPARENT_BLUE_VALUE = 31;
+
+	public static final int COLUMN_COUNT = ATTRIBUTES.length;
+
+	// Attribute names per column, as in the EGL spec
+	public static final String[] ATTRIBUTE_NAMES = {
+		"EGL_CONFIG_ID", "EGL_BUFFER_SIZE", "EGL_RED_SIZE", "EGL_GREEN_SIZE", "EGL_BLUE_SIZE", "EGL_ALPHA_SIZE",
+		"EGL_LUMINANCE_SIZE", "EGL_ALPHA_MASK_SIZE", "EGL_DEPTH_SIZE", "EGL_STENCIL_SIZE", "EGL_SAMPLE_BUFFERS",
+		"EGL_SAMPLES", "EGL_COLOR_BUFFER_TYPE", "EGL_RENDERABLE_TYPE", "EGL_CONFORMANT", "EGL_SURFACE_TYPE",
+		"EGL_CONFIG_CAVEAT", "EGL_LEVEL", "EGL_NATIVE_RENDERABLE", "EGL_NATIVE_VISUAL_ID", "EGL_NATIVE_VISUAL_TYPE",
+		"EGL_MAX_PBUFFER_WIDTH", "EGL_MAX_PBUFFER_HEIGHT", "EGL_MAX_PBUFFER_PIXELS", "EGL_MIN_SWAP_INTERVAL",
+		"EGL_MAX_SWAP_INTERVAL", "EGL_BIND_TO_TEXTURE_RGB", "EGL_BIND_TO_TEXTURE_RGBA", "EGL_TRANSPARENT_TYPE",
+		"EGL_TRANSPARENT_RED_VALUE", "EGL_TRANSPARENT_GREEN_VALUE", "EGL_TRANSPARENT_BLUE_VALUE"
+	};
+
+	// Client API bits of EGL_RENDERABLE_TYPE / EGL_CONFORMANT and their display names
+	private static final int[] API_BITS = {
+		EGL14.EGL_OPENGL_ES_BIT,
+		EGL14.EGL_OPENGL_ES2_BIT,
+		EGLExt.EGL_OPENGL_ES3_BIT_KHR,
+		EGL14.EGL_OPENGL_BIT,
+		EGL14.EGL_OPENVG_BIT
+	};
+	private static final String[] API_NAMES = {"GLES", "GLES2", "GLES3", "OpenGL", "OpenVG"};
+
+	private static final int[] SURFACE_BITS = {
+		EGL14.EGL_WINDOW_BIT,
+		EGL14.EGL_PBUFFER_BIT,
+		EGL14.EGL_PIXMAP_BIT,
+		EGL14.EGL_MULTISAMPLE_RESOLVE_BOX_BIT,
+		EGL14.EGL_SWAP_BEHAVIOR_PRESERVED_BIT,
+		EGL14.EGL_VG_COLORSPACE_LINEAR_BIT,
+		EGL14.EGL_VG_ALPHA_FORMAT_PRE_BIT
+	};
+	private static final String[] SURFACE_NAMES = {"window", "pbuffer", "pixmap", "multisample resolve box", "swap behavior preserved", "VG colorspace linear", "VG alpha format pre"};
+
+	private final int mCount;
+	private final int[][] mColumns;
+
+	public EGLConfigTable(int count) {
+		mCount = count;
+		mColumns = new int[COLUMN_COUNT][count];
+	}
+
+	// Reads all attributes of the configs [from, to), one column (attribute) after another
+	public void query(EglQueryBackend egl, int from, int to) {
+		int[] value = new int[1];
+		for (int column = 0; column < COLUMN_COUNT; column++) {
+			final int attribute = ATTRIBUTES[column];
+			final int[] values = mColumns[column];
+			for (int config = from; config < to; config++) {
+				value[0] = 0;
+				egl.eglGetConfigAttrib(config, attribute, value);
+				values[config] = value[0];
+			}
+		}
+	}
+
+	public int size() {
+		return mCount;
+	}
+
+	public int get(int column, int config) {
+		return mColumns[column][config];
+	}
+
+	public void set(int column, int config, int value) {
+		mColumns[column][config] = value;
+	}
+
+	private static String bitsText(int mask, int[] bits, String[] names) {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < bits.length; i++) {
+			if ((mask & bits[i]) != 0) {
+				if (text.length() > 0) {
+					text.append(", ");
+				}
+				text.append(names[i]);
+				mask &= ~bits[i];
+			}
+		}
+		// Bits unknown to this version (e.g. vendor specific client APIs)
+		if (mask != 0) {
+			if (text.length() > 0) {
+				text.append(", ");
+			}
+			text.append("0x").append(Integer.toHexString(mask));
+		}
+		return text.toString();
+	}
+
+	// Client APIs of a renderable type or conformant bitmask, e.g. "GLES, GLES2, GLES3"
+	public static String apiText(int mask) {
+		return bitsText(mask, API_BITS, API_NAMES);
+	}
+
+	public static String surfaceTypeText(int mask) {
+		return bitsText(mask, SURFACE_BITS, SURFACE_NAMES);
+	}
+
+	public static String caveatText(int caveat) {
+		switch (caveat) {
+			case EGL14.EGL_NONE:
+				return "none";
+			case EGL14.EGL_SLOW_CONFIG:
+				return "slow";
+			case EGL14.EGL_NON_CONFORMANT_CONFIG:
+				return "non conformant";
+			default:
+				return "0x" + Integer.toHexString(caveat);
+		}
+	}
+
+	public void write(DataOutputStream out) throws IOException {
+		out.writeInt(COLUMN_COUNT);
+		out.writeInt(mCount);
+		for (int[] values : mColumns) {
+			for (int value : values) {
+				out.writeInt(value);
+			}
+		}
+	}
+
+	public static EGLConfigTable read(DataInputStream in) throws IOException {
+		if (in.readInt() != COLUMN_COUNT) {
+			throw new IOException("EGL config table layout mismatch");
+		}
+		EGLConfigTable table = new EGLConfigTable(in.readInt());
+		for (int[] values : table.mColumns) {
+			for (int i = 0; i < values.length; i++) {
+				values[i] = in.readInt();
+			}
+		}
+		return table;
+	}
+
+}
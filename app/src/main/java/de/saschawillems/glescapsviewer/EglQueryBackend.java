@@ -0,0 +1,35 @@
+/*
+*
+* OpenGL ES hardware capability viewer and database
+*
+* Copyright (C) 2011-2018 by Sascha Willems (www.saschawillems.de)
+*
+* This code is free software, you can redistribute it and/or
+* modify it under the terms of the GNU Lesser General Public
+* License version 3 as published by the Free Software Foundation.
+*
+* Please review the following information to ensure the GNU Lesser
+* General Public License version 3 requirements will be met:
+* http://opensource.org/licenses/lgpl-3.0.html
+*
+* The code is distributed WITHOUT ANY WARRANTY; without even the
+* implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+* PURPOSE.  See the GNU LGPL 3.0 for more details.
+*
+*/
+
+package de.saschawillems.glescapsviewer;
+
+// EGL queries issued by the capture code, configs are addressed by their index in the display's config list
+interface EglQueryBackend {
+
+	// Initializes the default display, false if EGL is not available
+	boolean eglInitialize();
+
+	String eglQueryString(int name);
+
+	int eglGetConfigCount();
+
+	boolean eglGetConfigAttrib(int config, int attribute, int[] value);
+
+}
@@ -0,0 +1,326 @@
+/*
+*
+* OpenGL ES hardware capability viewer and database
+*
+* Copyright (C) 2011-2018 by Sascha Willems (www.saschawillems.de)
+*
+* This code is free software, you can redistribute it and/or
+* modify it under the terms of the GNU Lesser General Public
+* License version 3 as published by the Free Software Foundation.
+*
+* Please review the following information to ensure the GNU Lesser
+* General Public License version 3 requirements will be met:
+* http://opensource.org/licenses/lgpl-3.0.html
+*
+* The code is distributed WITHOUT ANY WARRANTY; without even the
+* implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+* PURPOSE.  See the GNU LGPL 3.0 for more details.
+*
+*/
+
+package de.saschawillems.glescapsviewer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+// Immutable set of extension names
+// Known extensions (see src/main/spec/extensions.txt) are interned to their dictionary id and stored
+// as bits, unknown names go to a sorted overflow list, so membership tests and set operations on
+// the typical extension list are a few word operations
+// Sets read from a driver or a report also keep the extension string, so reports list the names in driver order
+final class ExtensionSet {
+
+	public static final int NOT_FOUND = -1;
+
+	// Overflow list operations of merge()
+	private static final int MERGE_UNION = 0;
+	private static final int MERGE_INTERSECTION = 1;
+	private static final int MERGE_DIFFERENCE = 2;
+
+	public static final ExtensionSet EMPTY = new ExtensionSet(new long[(ExtensionTables.COUNT + 63) >> 6], new String[0], "");
+
+	private final long[] mBits;
+	private final String[] mUnknown; // Sorted, no duplicates
+	private final int mSize;
+	private final String mSource; // Extension string in driver order, null for results of set operations
+
+	private ExtensionSet(long[] bits, String[] unknown, String source) {
+		mBits = bits;
+		mUnknown = unknown;
+		mSource = source;
+		int size = unknown.length;
+		for (long word : bits) {
+			size += Long.bitCount(word);
+		}
+		mSize = size;
+	}
+
+	// Dictionary id of a known extension, NOT_FOUND for unknown names
+	public static int id(CharSequence s) {
+		return id(s, 0, s.length());
+	}
+
+	// Same as id(CharSequence) for the range [start, end), without cutting out the name
+	public static int id(CharSequence s, int start, int end) {
+		int hash = 0;
+		for (int i = start; i < end; i++) {
+			hash = 31 * hash + s.charAt(i);
+		}
+		final int mask = ExtensionTables.NAME_HASH.length - 1;
+		int slot = ExtensionTables.hash(hash, ExtensionTables.NAME_HASH_SHIFT);
+		while (ExtensionTables.NAME_HASH[slot] != 0) {
+			final int id = ExtensionTables.NAME_HASH[slot] - 1;
+			if (regionEquals(ExtensionTables.name(id), s, start, end)) {
+				return id;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return NOT_FOUND;
+	}
+
+	private static boolean regionEquals(String name, CharSequence s, int start, int end) {
+		if (name.length() != end - start) {
+			return false;
+		}
+		for (int i = 0; i < name.length(); i++) {
+			if (name.charAt(i) != s.charAt(start + i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// Space separated extension string as returned by glGetString / eglQueryString, null gives an empty set
+	// Only names missing from the dictionary are cut out of the string
+	public static ExtensionSet parse(String list) {
+		if (list == null) {
+			return EMPTY;
+		}
+		final long[] bits = new long[(ExtensionTables.COUNT + 63) >> 6];
+		ArrayList<String> unknown = null;
+		final int length = list.length();
+		int pos = 0;
+		while (pos < length) {
+			while (pos < length && list.charAt(pos) <= ' ') {
+				pos++;
+			}
+			final int start = pos;
+			while (pos < length && list.charAt(pos) > ' ') {
+				pos++;
+			}
+			if (pos == start) {
+				break;
+			}
+			final int id = id(list, start, pos);
+			if (id != NOT_FOUND) {
+				bits[id >> 6] |= 1L << id;
+			} else {
+				if (unknown == null) {
+					unknown = new ArrayList<>();
+				}
+				unknown.add(list.substring(start, pos));
+			}
+		}
+		return new ExtensionSet(bits, sortedUnique(unknown), list);
+	}
+
+	// Set of dictionary ids and names missing from the dictionary (any order), for readers of stored reports
+	static ExtensionSet of(int[] ids, int idCount, ArrayList<String> unknown) {
+		final long[] bits = new long[(ExtensionTables.COUNT + 63) >> 6];
+		for (int i = 0; i < idCount; i++) {
+			if (ids[i] < 0 || ids[i] >= ExtensionTables.COUNT) {
+				throw new IllegalArgumentException("Invalid extension id " + ids[i]);
+			}
+			bits[ids[i] >> 6] |= 1L << ids[i];
+		}
+		return new ExtensionSet(bits, sortedUnique(unknown), null);
+	}
+
+	// Same set with the extension string it was read from (e.g. names of a stored report joined by single spaces)
+	ExtensionSet withSource(String source) {
+		return new ExtensionSet(mBits, mUnknown, source);
+	}
+
+	private static String[] sortedUnique(ArrayList<String> names) {
+		if (names == null || names.isEmpty()) {
+			return EMPTY.mUnknown;
+		}
+		String[] sorted = names.toArray(new String[0]);
+		Arrays.sort(sorted);
+		int count = 1;
+		for (int i = 1; i < sorted.length; i++) {
+			if (!sorted[i].equals(sorted[count - 1])) {
+				sorted[count++] = sorted[i];
+			}
+		}
+		return count == sorted.length ? sorted : Arrays.copyOf(sorted, count);
+	}
+
+	public int size() {
+		return mSize;
+	}
+
+	public boolean isEmpty() {
+		return mSize == 0;
+	}
+
+	public boolean has(int id) {
+		return id >= 0 && id < ExtensionTables.COUNT && (mBits[id >> 6] & (1L << id)) != 0;
+	}
+
+	public boolean has(String name) {
+		final int id = id(name);
+		if (id != NOT_FOUND) {
+			return has(id);
+		}
+		return Arrays.binarySearch(mUnknown, name) >= 0;
+	}
+
+	public ExtensionSet union(ExtensionSet other) {
+		final long[] bits = new long[mBits.length];
+		for (int i = 0; i < bits.length; i++) {
+			bits[i] = mBits[i] | other.mBits[i];
+		}
+		return new ExtensionSet(bits, merge(mUnknown, other.mUnknown, MERGE_UNION), null);
+	}
+
+	public ExtensionSet intersection(ExtensionSet other) {
+		final long[] bits = new long[mBits.length];
+		for (int i = 0; i < bits.length; i++) {
+			bits[i] = mBits[i] & other.mBits[i];
+		}
+		return new ExtensionSet(bits, merge(mUnknown, other.mUnknown, MERGE_INTERSECTION), null);
+	}
+
+	// Extensions of this set missing from the other one
+	public ExtensionSet difference(ExtensionSet other) {
+		final long[] bits = new long[mBits.length];
+		for (int i = 0; i < bits.length; i++) {
+			bits[i] = mBits[i] & ~other.mBits[i];
+		}
+		return new ExtensionSet(bits, merge(mUnknown, other.mUnknown, MERGE_DIFFERENCE), null);
+	}
+
+	// Single pass merge of two sorted overflow lists
+	private static String[] merge(String[] a, String[] b, int op) {
+		if (a.length == 0 && (b.length == 0 || op != MERGE_UNION)) {
+			return a;
+		}
+		final String[] result = new String[op == MERGE_UNION ? a.length + b.length : a.length];
+		int count = 0;
+		int i = 0;
+		int j = 0;
+		while (i < a.length || j < b.length) {
+			final int cmp = i == a.length ? 1 : j == b.length ? -1 : a[i].compareTo(b[j]);
+			if (cmp < 0) {
+				if (op != MERGE_INTERSECTION) {
+					result[count++] = a[i];
+				}
+				i++;
+			} else if (cmp > 0) {
+				if (op == MERGE_UNION) {
+					result[count++] = b[j];
+				}
+				j++;
+			} else {
+				if (op != MERGE_DIFFERENCE) {
+					result[count++] = a[i];
+				}
+				i++;
+				j++;
+			}
+		}
+		return count == result.length ? result : Arrays.copyOf(result, count);
+	}
+
+	// First known extension id >= from in the set, NOT_FOUND if there is none
+	// Ids are in name order, so walking the ids and the unknown names in parallel yields all names sorted
+	public int nextId(int from) {
+		int word = from >> 6;
+		if (from < 0 || word >= mBits.length) {
+			return NOT_FOUND;
+		}
+		long bits = mBits[word] & (-1L << from);
+		while (bits == 0) {
+			if (++word == mBits.length) {
+				return NOT_FOUND;
+			}
+			bits = mBits[word];
+		}
+		return (word << 6) + Long.numberOfTrailingZeros(bits);
+	}
+
+	public int unknownCount() {
+		return mUnknown.length;
+	}
+
+	// Names not in the dictionary, sorted
+	public String unknown(int index) {
+		return mUnknown[index];
+	}
+
+	// Extension string as reported by the driver, null if not known (results of set operations)
+	public String source() {
+		return mSource;
+	}
+
+	// Names as listed in reports: the extension string split at single spaces as with String.split(" ") in report
+	// version 6 (so an empty string gives one empty name), sorted names if the driver order is not known
+	public String[] list() {
+		return (mSource != null) ? mSource.split(" ") : toArray();
+	}
+
+	// All names in sorted order, known and unknown extensions merged
+	public String[] toArray() {
+		final String[] names = new String[mSize];
+		int count = 0;
+		int j = 0;
+		for (int word = 0; word < mBits.length; word++) {
+			long bits = mBits[word];
+			while (bits != 0) {
+				final String name = ExtensionTables.name((word << 6) + Long.numberOfTrailingZeros(bits));
+				while (j < mUnknown.length && mUnknown[j].compareTo(name) < 0) {
+					names[count++] = mUnknown[j++];
+				}
+				names[count++] = name;
+				bits &= bits - 1;
+			}
+		}
+		while (j < mUnknown.length) {
+			names[count++] = mUnknown[j++];
+		}
+		return names;
+	}
+
+	// Set equality, the driver order (source) is not compared
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (!(o instanceof ExtensionSet)) {
+			return false;
+		}
+		ExtensionSet other = (ExtensionSet) o;
+		return Arrays.equals(mBits, other.mBits) && Arrays.equals(mUnknown, other.mUnknown);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * Arrays.hashCode(mBits) + Arrays.hashCode(mUnknown);
+	}
+
+	// Space separated and sorted, parse() of the result gives an equal set
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (String name : toArray()) {
+			if (sb.length() > 0) {
+				sb.append(' ');
+			}
+			sb.append(name);
+		}
+		return sb.toString();
+	}
+
+}
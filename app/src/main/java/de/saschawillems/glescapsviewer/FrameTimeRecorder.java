@@ -0,0 +1,115 @@
+/*
+*
+* OpenGL ES hardware capability viewer and database
+*
+* Copyright (C) 2011-2018 by Sascha Willems (www.saschawillems.de)
+*
+* This code is free software, you can redistribute it and/or
+* modify it under the terms of the GNU Lesser General Public
+* License version 3 as published by the Free Software Foundation.
+*
+* Please review the following information to ensure the GNU Lesser
+* General Public License version 3 requirements will be met:
+* http://opensource.org/licenses/lgpl-3.0.html
+*
+* The code is distributed WITHOUT ANY WARRANTY; without even the
+* implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+* PURPOSE.  See the GNU LGPL 3.0 for more details.
+*
+*/
+
+package de.saschawillems.glescapsviewer;
+
+import android.view.Choreographer;
+
+import java.util.Arrays;
+
+// Records frame intervals with the Choreographer between start() and stop() (e.g. while the report list scrolls)
+class FrameTimeRecorder implements Choreographer.FrameCallback {
+
+	private final long mFrameTime;
+
+	private long[] mIntervals = new long[1024];
+	private int mCount = 0;
+	private long mLastFrame = 0;
+	private boolean mRunning = false;
+
+	// Refresh rate of the display, frames taking more than 1.5 refresh intervals count as janky
+	public FrameTimeRecorder(float refreshRate) {
+		mFrameTime = (long) (1000000000L / (refreshRate > 0 ? refreshRate : 60));
+	}
+
+	public boolean isRunning() {
+		return mRunning;
+	}
+
+	public void start() {
+		if (mRunning) {
+			return;
+		}
+		mRunning = true;
+		mCount = 0;
+		mLastFrame = 0;
+		Choreographer.getInstance().postFrameCallback(this);
+	}
+
+	public void stop() {
+		mRunning = false;
+		Choreographer.getInstance().removeFrameCallback(this);
+	}
+
+	@Override
+	public void doFrame(long frameTimeNanos) {
+		if (!mRunning) {
+			return;
+		}
+		if (mLastFrame != 0) {
+			if (mCount == mIntervals.length) {
+				mIntervals = Arrays.copyOf(mIntervals, mCount * 2);
+			}
+			mIntervals[mCount++] = frameTimeNanos - mLastFrame;
+		}
+		mLastFrame = frameTimeNanos;
+		Choreographer.getInstance().postFrameCallback(this);
+	}
+
+	public int frameCount() {
+		return mCount;
+	}
+
+	// Frame interval (ns) at the given percentile (0..100) of the last recording
+	public long percentile(int percentile) {
+		if (mCount == 0) {
+			return 0;
+		}
+		long[] sorted = Arrays.copyOf(mIntervals, mCount);
+		Arrays.sort(sorted);
+		return sorted[Math.min(mCount - 1, (int) ((long) mCount * percentile / 100))];
+	}
+
+	public int jankCount() {
+		int count = 0;
+		for (int i = 0; i < mCount; i++) {
+			if (mIntervals[i] * 2 > mFrameTime * 3) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	public String statsText() {
+		long total = 0;
+		for (int i = 0; i < mCount; i++) {
+			total += mIntervals[i];
+		}
+		StringBuilder stats = new StringBuilder();
+		stats.append(mCount).append(" frames, avg ").append(mCount > 0 ? total / mCount / 1000 : 0).append(" us");
+		stats.append(", p50 ").append(percentile(50) / 1000).append(" us");
+		stats.append(", p90 ").append(percentile(90) / 1000).append(" us");
+		stats.append(", p99 ").append(percentile(99) / 1000).append(" us");
+		stats.append(", max ").append(percentile(100) / 1000).append(" us");
+		stats.append(", janky ").append(jankCount());
+		return stats.toString();
+	}
+
+}
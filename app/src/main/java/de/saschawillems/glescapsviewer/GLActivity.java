@@ -25,51 +25,189 @@ import android.app.AlertDialog;
 import android.content.Context;
 import android.content.DialogInterface;
 import android.content.Intent;
+import android.net.ConnectivityManager;
+import android.net.Network;
 import android.net.Uri;
 import android.opengl.GLSurfaceView;
 import android.os.Bundle;
-import android.os.StrictMode;
-import android.view.LayoutInflater;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.util.Log;
 import android.view.Menu;
 import android.view.MenuInflater;
 import android.view.MenuItem;
 import android.view.View;
 import android.view.View.OnClickListener;
+import android.widget.AbsListView;
 import android.widget.EditText;
-import android.widget.TableLayout;
+import android.widget.ListView;
 import android.widget.TextView;
+import android.widget.Toast;
 
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
-import java.io.DataOutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.net.URLEncoder;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
 
 public class GLActivity extends Activity implements PropertyChangeListener {
 
 	public boolean mCapsVisible = false;
 	
+    // Report of the last capture of this run (uploaded), a cached snapshot shown at startup is never assigned here
+    // Null until the first capture finished, uploading is disabled until then
     public static GLESInfo mGLESInfo;
     private GLES20Renderer mRenderer;
 
+    private SnapshotCache mSnapshotCache;
+
+    // Content hashes of the reports uploaded from this device
+
+    // Report check and upload run on the pipeline's thread, the activity drops their results when it goes away
+    private UploadPipeline mUploadPipeline;
+
+    private ConnectivityManager mConnectivityManager;
+    private final ConnectivityManager.NetworkCallback mNetworkCallback = new ConnectivityManager.NetworkCallback() {
+        @Override
+        public void onAvailable(Network network) {
+            mUploadPipeline.drain(new UploadListener(null));
+        }
+    };
+
     public static String baseURL = "https://opengles.gpuinfo.org";
+
+    // Records all GL/EGL queries of the capture to a query trace in the app's files dir (replayable with ReplayQueryBackend)
+    private static final boolean RECORD_QUERY_TRACE = false;
+    private RecordingQueryBackend mQueryTrace;
+
+    // Upload reports deflated with the report dictionary once the report check response announced support for it (see ReportCompression)
+    private static final boolean COMPRESS_UPLOADS = false;
+
+    // Cap queries per glGetError check, 0 checks after every query (see QueryCache)
+    private static final int ERROR_CHECK_BATCH_SIZE = 0;
+
+    // GL/EGL capture work per frame (us), the capture is spread over several frames so the GL thread never blocks for long
+    // 0 runs the whole capture at once when the surface is created (see CaptureScheduler)
+    private static final int CAPTURE_FRAME_BUDGET_US = 4000;
     
     private Context mContext;
+
+    private ReportListAdapter mReportAdapter;
+
+    // Builds the list rows of a report on a worker thread
+    private ReportRowsLoader mRowsLoader;
+
+    // Set if the running capture is shown section by section (no cached snapshot)
+    private boolean mProgressiveReport = false;
+
+    // Logs frame time stats of every scroll gesture of the report list (see FrameTimeRecorder)
+    private static final boolean LOG_SCROLL_FRAME_TIMES = false;
+    private FrameTimeRecorder mFrameTimes;
+
+    // Logs the filter time of every search query
+    private static final boolean LOG_SEARCH_TIMES = false;
      
 	@Override
 	protected void onCreate(Bundle savedInstanceState) {
 		super.onCreate(savedInstanceState);			
-		mGLESInfo = new GLESInfo();
+		// Origin of the time-to-first-content metric
+		final long createTime = System.nanoTime();
+		// Target of the fresh capture, always run to verify the cached snapshot
+		GLESInfo capture = null;
+		if (RECORD_QUERY_TRACE) {
+			try {
+				mQueryTrace = new RecordingQueryBackend(new AndroidGlQueryBackend(), new AndroidEglQueryBackend(), new FileOutputStream(new File(getFilesDir(), "querytrace.bin")));
+				capture = new GLESInfo(mQueryTrace, mQueryTrace);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+		if (capture == null) {
+			capture = new GLESInfo();
+		}
+		capture.setErrorCheckBatchSize(ERROR_CHECK_BATCH_SIZE);
 		setContentView(R.layout.activity_gl);
 		        
 	    mContext = this;
 
         MyGLSurfaceView mGLSurfaceView = (MyGLSurfaceView) findViewById(R.id.glsurfaceview);
-		mRenderer = new GLES20Renderer(this, mGLESInfo);
+		mRenderer = new GLES20Renderer(this, capture);
 	    mRenderer.addChangeListener(this);       			
-		mRenderer.mTableLayout = (TableLayout) findViewById(R.id.tableLayout);
 		mRenderer.mDisplay = getWindowManager().getDefaultDisplay();
+		mRenderer.mSurfaceView = mGLSurfaceView;
+		mRenderer.mCaptureFrameBudget = CAPTURE_FRAME_BUDGET_US * 1000L;
+
+		// Report list, frame times are logged for every scroll gesture
+		mReportAdapter = new ReportListAdapter(this);
+		mRowsLoader = new ReportRowsLoader(mReportAdapter, new Handler(Looper.getMainLooper()));
+		ListView reportList = (ListView) findViewById(R.id.capsList);
+		reportList.setAdapter(mReportAdapter);
+		if (LOG_SCROLL_FRAME_TIMES) {
+			mFrameTimes = new FrameTimeRecorder(mRenderer.mDisplay.getRefreshRate());
+			reportList.setOnScrollListener(new AbsListView.OnScrollListener() {
+				@Override
+				public void onScrollStateChanged(AbsListView view, int scrollState) {
+					if (scrollState != SCROLL_STATE_IDLE) {
+						mFrameTimes.start();
+					} else if (mFrameTimes.isRunning()) {
+						mFrameTimes.stop();
+						Log.i("OpenGL ES CapsViewer", "Scroll frame times (" + mReportAdapter.getCount() + " rows): " + mFrameTimes.statsText());
+					}
+				}
+
+				@Override
+				public void onScroll(AbsListView view, int firstVisibleItem, int visibleItemCount, int totalItemCount) {
+				}
+			});
+		}
+
+		// Search box, every keystroke filters the rows already in the list
+		EditText searchBox = (EditText) findViewById(R.id.searchBox);
+		searchBox.addTextChangedListener(new TextWatcher() {
+			@Override
+			public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+			}
+
+			@Override
+			public void onTextChanged(CharSequence s, int start, int before, int count) {
+			}
+
+			@Override
+			public void afterTextChanged(Editable s) {
+				mReportAdapter.setQuery(s.toString());
+				if (LOG_SEARCH_TIMES) {
+					// The query itself is not logged, it may be anything the user typed
+					Log.i("OpenGL ES CapsViewer", "Search (" + mReportAdapter.getQuery().length() + " chars): " + mReportAdapter.getIndex().matchCount() + " matches, " + mReportAdapter.getCount() + " rows shown, filter " + mReportAdapter.getFilterTime() / 1000 + " us");
+				}
+			}
+		});
+
+		// Show the cached snapshot of this build right away, the capture below replaces it if anything changed
+		// The snapshot is not uploaded, mGLESInfo is only set once the capture verified it (the driver may have changed)
+		// Without a snapshot the capture is shown section by section while it is running
+		mSnapshotCache = new SnapshotCache(new File(getFilesDir(), "snapshot.bin"));
+		final GLESInfo snapshot = mSnapshotCache.load();
+		if (snapshot != null) {
+			showReport(snapshot);
+		} else {
+			mProgressiveReport = true;
+			mRowsLoader.beginSections(createTime);
+			final GLESInfo sections = capture;
+			mRenderer.mSectionListener = new CaptureSession.Listener() {
+				@Override
+				public void sectionReady(int section) {
+					mRowsLoader.loadSection(sections, section);
+				}
+			};
+		}
+
+		mUploadPipeline = new UploadPipeline(baseURL, COMPRESS_UPLOADS, new Handler(Looper.getMainLooper()), new File(getFilesDir(), "uploadqueue.bin"), new UploadHistory(new File(getFilesDir(), "uploaded.txt")));
+
+		// Reports queued while offline are uploaded whenever a network becomes available (also right away if there is one)
+		mConnectivityManager = (ConnectivityManager) getSystemService(Context.CONNECTIVITY_SERVICE);
+		mConnectivityManager.registerDefaultNetworkCallback(mNetworkCallback);
 	
 		mGLSurfaceView.setRenderer(mRenderer);
 	    mGLSurfaceView.setRenderMode(GLSurfaceView.RENDERMODE_WHEN_DIRTY);
@@ -77,6 +215,19 @@ public class GLActivity extends Activity implements PropertyChangeListener {
 	}
 	
 	
+	// Replaces the list content once the rows are built, only the visible rows are bound on the main thread
+	private void showReport(GLESInfo glesInfo) {
+		mRowsLoader.load(glesInfo);
+	}
+
+	@Override
+	protected void onDestroy() {
+		mConnectivityManager.unregisterNetworkCallback(mNetworkCallback);
+		mUploadPipeline.cancel();
+		mRowsLoader.cancel();
+		super.onDestroy();
+	}
+
 	@Override
 	public boolean onCreateOptionsMenu(Menu menu) {
 	//	getMenuInflater().inflate(R.menu.gl, menu);
@@ -84,17 +235,40 @@ public class GLActivity extends Activity implements PropertyChangeListener {
         inflater.inflate(R.menu.main_activity_actions, menu);
         return super.onCreateOptionsMenu(menu);
 	}
+
+	@Override
+	public boolean onPrepareOptionsMenu(Menu menu) {
+		menu.findItem(R.id.action_upload).setEnabled(mGLESInfo != null);
+		return super.onPrepareOptionsMenu(menu);
+	}
 	
 	@Override
 	public void propertyChange(PropertyChangeEvent event) {
-		if (event.getPropertyName().equals("surfaceCreated")) {
+		if (event.getPropertyName().equals("captureFinished")) {
+
+			if (mQueryTrace != null) {
+				try {
+					mQueryTrace.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+				mQueryTrace = null;
+			}
 
+            final GLESInfo capture = mRenderer.mGLESInfo;
             Thread t = new Thread() {
                 public void run() {
+                    // Verify the cached snapshot, the rows are only rebuilt if the capture differs
+                    // (a progressively shown capture already has all of its sections in the list)
+                    final boolean changed = mSnapshotCache.update(capture);
                     runOnUiThread(new Runnable() {
                         @Override
                         public void run() {
-                            mRenderer.fillTableLayout();
+                            mGLESInfo = capture;
+                            invalidateOptionsMenu();
+                            if (changed && !mProgressiveReport) {
+                                showReport(capture);
+                            }
                         }
                     });
                 }
@@ -151,129 +325,103 @@ public class GLActivity extends Activity implements PropertyChangeListener {
             .show();
     }
 
-    private String checkReportPresent() {
-        try {
-        	
-            StrictMode.ThreadPolicy policy = new StrictMode.
-                    ThreadPolicy.Builder().permitAll().build();
-            StrictMode.setThreadPolicy(policy);
-            
-            String paramString = URLEncoder.encode(mGLESInfo.deviceDescription(), "utf-8");          
-            
-			URL url = new URL(baseURL + "/gles_checkreport.php?description=" + paramString);
-			HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            int serverResponseCode = conn.getResponseCode();
-            String serverResponseMessage = conn.getResponseMessage();
-
-            String[] responsePart = serverResponseMessage.split(" ");
-            if (responsePart[0].equals("report_present")) {
-            	return baseURL + "/gles_generatereport.php?reportID=" + responsePart[1];
+    // Results of the upload pipeline for one report, delivered on the main thread
+    private class UploadListener implements UploadPipeline.Listener {
+        private final GLESInfo mReport;
+
+        UploadListener(GLESInfo report) {
+            mReport = report;
+        }
+
+        @Override
+        public void alreadyUploaded() {
+            new AlertDialog.Builder(mContext)
+            .setTitle("Already uploaded")
+            .setMessage("This report has already been uploaded from this device.")
+            .setNegativeButton("Close", new DialogInterface.OnClickListener() {
+                public void onClick(DialogInterface dialog, int which) {
+                }
+            })
+            .show();
+        }
+
+        @Override
+        public void reportChecked(final String reportURL) {
+            if (reportURL != null) {
+                new AlertDialog.Builder(mContext)
+                .setTitle("Device already present")
+                .setMessage("A hardware report for this device is already present in the database." + "\n" + "\n" + "Display it in the browser?")
+                .setNegativeButton("No", new DialogInterface.OnClickListener() {
+                    public void onClick(DialogInterface dialog, int which) {
+                    }
+                })
+                .setPositiveButton("Yes", new DialogInterface.OnClickListener() {
+                    public void onClick(DialogInterface dialog, int which) {
+                        Intent intent = new Intent(Intent.ACTION_VIEW, Uri.parse(reportURL));
+                        startActivity(intent);
+                    }
+                })
+                .show();
             } else {
-            	return "";
+                confirmUpload(mReport, this);
             }
-                        
-        } catch (Exception e) {
+        }
+
+        @Override
+        public void uploadFinished(int responseCode, String responseMessage) {
+            showUploadResult(responseCode, responseMessage);
+        }
+
+        @Override
+        public void uploadFailed(IOException e) {
             e.printStackTrace();
-            return "";
-        }    	
+            showUploadResult(-1, "Could not upload the report: " + e.getMessage());
+        }
+
+        @Override
+        public void uploadQueued(int queueSize) {
+            Toast.makeText(mContext, "No connection, the report will be uploaded once the device is online (" + queueSize + " queued)", Toast.LENGTH_LONG).show();
+        }
+
+        @Override
+        public void queueDrained(int uploaded, int remaining) {
+            if (uploaded > 0) {
+                Toast.makeText(mContext, "Uploaded " + uploaded + " queued report(s)", Toast.LENGTH_SHORT).show();
+            }
+        }
     }
-    
+
     private void uploadReport() {
-    	
-    	final String reportPresent = checkReportPresent() ;
-    	if (!reportPresent.equals("")) {
-            new AlertDialog.Builder(this)
-            .setTitle("Device already present")
-            .setMessage("A hardware report for this device is already present in the database." + "\n" + "\n" + "Display it in the browser?")
-            .setNegativeButton("No", new DialogInterface.OnClickListener() {
+    	if (mGLESInfo == null) {
+    		Toast.makeText(mContext, "The report is not complete yet, please wait for the capture to finish", Toast.LENGTH_SHORT).show();
+    		return;
+    	}
+
+    	// The check runs in the background, the upload dialog is shown once it finished
+    	// Reports already uploaded from this device are rejected without a server round trip (see UploadHistory)
+    	mUploadPipeline.checkReportPresent(mGLESInfo.deviceDescription(), mGLESInfo.contentHash(), new UploadListener(mGLESInfo));
+    }
+
+    private void confirmUpload(final GLESInfo report, final UploadPipeline.Listener listener) {
+        final EditText input = new EditText(this);
+        input.setHint("Your nickname (optional)");
+        new AlertDialog.Builder(mContext)
+            .setTitle("Upload")
+            .setMessage("Upload current report to database?")
+        	.setView(input)
+
+            .setPositiveButton("Upload", new DialogInterface.OnClickListener() {
                 public void onClick(DialogInterface dialog, int which) {
+                    mUploadPipeline.upload(report, input.getText().toString(), listener);
                 }
             })
-            .setPositiveButton("Yes", new DialogInterface.OnClickListener() {
+
+            .setNegativeButton("Cancel", new DialogInterface.OnClickListener() {
                 public void onClick(DialogInterface dialog, int which) {
-                	Intent intent = new Intent(Intent.ACTION_VIEW, Uri.parse(reportPresent)); 
-                	startActivity(intent);
-            }
+                }
             })
+
             .show();
-    	} else {    	
-	        LayoutInflater inflater = this.getLayoutInflater();
-	        final EditText input = new EditText(this);
-	        input.setHint("Your nickname (optional)");
-	        new AlertDialog.Builder(mContext)
-	            .setTitle("Upload")
-	//            .setView(inflater.inflate(R.layout.upload, null))
-	            .setMessage("Upload current report to database?")
-	        	.setView(input)           
-	
-	            .setPositiveButton("Upload", new DialogInterface.OnClickListener() {
-	                public void onClick(DialogInterface dialog, int which) {
-	
-	                    try {
-	                        StrictMode.ThreadPolicy policy = new StrictMode.
-	                                ThreadPolicy.Builder().permitAll().build();
-	                        StrictMode.setThreadPolicy(policy);
-	
-	
-	                        URL url = new URL(baseURL + "/gles_uploadreport.php");
-	
-	                        HttpURLConnection conn = null;
-	                        DataOutputStream dos = null;
-	                        String lineEnd = "\r\n";
-	                        String twoHyphens = "--";
-	                        String boundary = "*****";
-	                        String filename = "glescapsviewerreport.xml";
-	                        int bytesRead, bytesAvailable, bufferSize;
-	                        byte[] buffer;
-	                        int maxBufferSize = 1 * 1024 * 1024;
-	
-	                        // Open a HTTP  connection to  the URL
-	                        conn = (HttpURLConnection) url.openConnection();
-	                        conn.setDoInput(true); // Allow Inputs
-	                        conn.setDoOutput(true); // Allow Outputs
-	                        conn.setUseCaches(false); // Don't use a Cached Copy
-	                        conn.setRequestMethod("POST");
-	                        conn.setRequestProperty("Connection", "Keep-Alive");
-	                        conn.setRequestProperty("ENCTYPE", "multipart/form-data");
-	                        conn.setRequestProperty("Content-Type", "multipart/form-data;boundary=" + boundary);
-	                        conn.setRequestProperty("name", filename);
-	
-	                        dos = new DataOutputStream(conn.getOutputStream());
-	
-	                        dos.writeBytes(twoHyphens + boundary + lineEnd);
-	                        dos.writeBytes("Content-Disposition: form-data; name=\"data\";filename=\""
-	                                + filename + "\"" + lineEnd);
-	
-	                        dos.writeBytes(lineEnd);
-	
-	                        String xmlstring = mGLESInfo.saveToXML(input.getText().toString());
-	
-	                        dos.writeBytes(xmlstring);
-	
-	                        // send multipart form data necesssary after file data...
-	                        dos.writeBytes(lineEnd);
-	                        dos.writeBytes(twoHyphens + boundary + twoHyphens + lineEnd);
-	
-	                        // Responses from the server (code and message)
-	                        int serverResponseCode = conn.getResponseCode();
-	                        String serverResponseMessage = conn.getResponseMessage();
-	
-	                        showUploadResult(serverResponseCode, serverResponseMessage);
-	
-	                    } catch (Exception e) {
-	                        e.printStackTrace();
-	                    }
-	
-	                }
-	            })
-	
-	            .setNegativeButton("Cancel", new DialogInterface.OnClickListener() {
-	                public void onClick(DialogInterface dialog, int which) {
-	                }
-	            })
-	
-	            .show();
-    	}
     }
 
     private void showAbout() {
@@ -0,0 +1,118 @@
+/*
+*
+* OpenGL ES hardware capability viewer and database
+*
+* Copyright (C) 2011-2018 by Sascha Willems (www.saschawillems.de)
+*
+* This code is free software, you can redistribute it and/or
+* modify it under the terms of the GNU Lesser General Public
+* License version 3 as published by the Free Software Foundation.
+*
+* Please review the following information to ensure the GNU Lesser
+* General Public License version 3 requirements will be met:
+* http://opensource.org/licenses/lgpl-3.0.html
+*
+* The code is distributed WITHOUT ANY WARRANTY; without even the
+* implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+* PURPOSE.  See the GNU LGPL 3.0 for more details.
+*
+*/
+
+package de.saschawillems.glescapsviewer;
+
+// Lookups in the generated GL enum registry (see src/main/spec/glenums.txt)
+// Forward (enum -> name) and reverse (name -> enum) lookups are single hash probes without allocations
+final class GlEnumRegistry {
+
+	// Result of value() for unknown names, out of the range of enum values (0 to 0xffffffff)
+	public static final long NOT_FOUND = -1L;
+
+	// Hex names of enums not in the registry, direct mapped so repeated lookups of the same enum reuse the string
+	private static final int UNKNOWN_CACHE_BITS = 6;
+
+	private static final class UnknownName {
+		final int value;
+		final String name;
+
+		UnknownName(int value, String name) {
+			this.value = value;
+			this.name = name;
+		}
+	}
+
+	private static final UnknownName[] sUnknownNames = new UnknownName[1 << UNKNOWN_CACHE_BITS];
+
+	private GlEnumRegistry() {
+	}
+
+	// Registry entry of an enum value, -1 if not in the registry
+	private static int find(int value) {
+		final int mask = GlEnumTables.VALUE_HASH.length - 1;
+		int slot = GlEnumTables.hash(value, GlEnumTables.VALUE_HASH_SHIFT);
+		int entry;
+		while ((entry = GlEnumTables.VALUE_HASH[slot]) != 0) {
+			if (GlEnumTables.VALUE[entry - 1] == value) {
+				return entry - 1;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	public static boolean contains(int value) {
+		return find(value) >= 0;
+	}
+
+	// Name as used in reports, hex value (e.g. "0x8c92") for enums not in the registry
+	public static String name(int value) {
+		final int entry = find(value);
+		if (entry >= 0) {
+			return GlEnumTables.poolString(GlEnumTables.NAME[entry]);
+		}
+		final int slot = GlEnumTables.hash(value, 32 - UNKNOWN_CACHE_BITS);
+		UnknownName unknown = sUnknownNames[slot];
+		if (unknown == null || unknown.value != value) {
+			unknown = new UnknownName(value, "0x" + Integer.toHexString(value));
+			sUnknownNames[slot] = unknown;
+		}
+		return unknown.name;
+	}
+
+	// Name as used in the Khronos registry, null for enums not in the registry
+	public static String registryName(int value) {
+		final int entry = find(value);
+		return (entry >= 0) ? GlEnumTables.poolString(GlEnumTables.REGISTRY_NAME[entry]) : null;
+	}
+
+	// Enum value (unsigned) of a report name, registry name or hex value as returned by name(), NOT_FOUND if unknown
+	public static long value(String name) {
+		final int mask = GlEnumTables.NAME_HASH.length - 1;
+		int slot = GlEnumTables.hash(name.hashCode(), GlEnumTables.NAME_HASH_SHIFT);
+		int entry;
+		while ((entry = GlEnumTables.NAME_HASH[slot]) != 0) {
+			if (name.equals(GlEnumTables.poolString(GlEnumTables.NAME[entry - 1])) || name.equals(GlEnumTables.poolString(GlEnumTables.REGISTRY_NAME[entry - 1]))) {
+				return GlEnumTables.VALUE[entry - 1] & 0xFFFFFFFFL;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return parseHex(name);
+	}
+
+	// Parses "0x" followed by 1 to 8 hex digits, NOT_FOUND otherwise
+	private static long parseHex(String name) {
+		final int length = name.length();
+		if (length < 3 || length > 10 || name.charAt(0) != '0' || (name.charAt(1) != 'x' && name.charAt(1) != 'X')) {
+			return NOT_FOUND;
+		}
+		long value = 0;
+		for (int i = 2; i < length; i++) {
+			final int digit = Character.digit(name.charAt(i), 16);
+			if (digit < 0) {
+				return NOT_FOUND;
+			}
+			value = (value << 4) | digit;
+		}
+		return value;
+	}
+
+}
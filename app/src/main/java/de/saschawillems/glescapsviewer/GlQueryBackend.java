@@ -0,0 +1,42 @@
+/*
+*
+* OpenGL ES hardware capability viewer and database
+*
+* Copyright (C) 2011-2018 by Sascha Willems (www.saschawillems.de)
+*
+* This code is free software, you can redistribute it and/or
+* modify it under the terms of the GNU Lesser General Public
+* License version 3 as published by the Free Software Foundation.
+*
+* Please review the following information to ensure the GNU Lesser
+* General Public License version 3 requirements will be met:
+* http://opensource.org/licenses/lgpl-3.0.html
+*
+* The code is distributed WITHOUT ANY WARRANTY; without even the
+* implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+* PURPOSE.  See the GNU LGPL 3.0 for more details.
+*
+*/
+
+package de.saschawillems.glescapsviewer;
+
+// OpenGL ES queries issued by the capture code
+// Mirrors the android.opengl.GLES* signatures, so the device implementation is a plain pass-through
+interface GlQueryBackend {
+
+	String glGetString(int name);
+
+	// Fills params from offset up to the end of the array (as many values as the query returns)
+	void glGetIntegerv(int pname, int[] params, int offset);
+
+	void glGetIntegeri_v(int target, int index, int[] data, int offset);
+
+	void glGetInteger64v(int pname, long[] params, int offset);
+
+	void glGetInteger64i_v(int target, int index, long[] data, int offset);
+
+	void glGetFloatv(int pname, float[] params, int offset);
+
+	int glGetError();
+
+}
@@ -0,0 +1,447 @@
+/*
+*
+* OpenGL ES hardware capability viewer and database
+*
+* Copyright (C) 2011-2018 by Sascha Willems (www.saschawillems.de)
+*
+* This code is free software, you can redistribute it and/or
+* modify it under the terms of the GNU Lesser General Public
+* License version 3 as published by the Free Software Foundation.
+*
+* Please review the following information to ensure the GNU Lesser
+* General Public License version 3 requirements will be met:
+* http://opensource.org/licenses/lgpl-3.0.html
+*
+* The code is distributed WITHOUT ANY WARRANTY; without even the
+* implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+* PURPOSE.  See the GNU LGPL 3.0 for more details.
+*
+*/
+
+package de.saschawillems.glescapsviewer;
+
+// Per-capture cache of GL query results
+// Enums shared by several ES version sections (and the format counts) only cost one driver round trip
+// and one (synchronizing) glGetError, later reads are served from the cache
+//
+// With a batch size > 0 the cache runs in deferred error check mode: queued queries are issued as one batch
+// into preallocated slots and glGetError is only checked once per batch. Batches reporting an error are bisected
+// until the failing queries are found, so results are still exact per query
+class QueryCache {
+
+	private static final int GL_NO_ERROR = 0;
+
+	// Upper bound for draining the error flags after a failed check (implementations may keep one flag per error code)
+	private static final int MAX_ERROR_FLAGS = 8;
+
+	// Query kinds, part of the cache key
+	private static final byte INTEGER = 1;
+	private static final byte INTEGER_INDEXED = 2;
+	private static final byte INTEGER64 = 3;
+	private static final byte INTEGER64_INDEXED = 4;
+	private static final byte FLOAT = 5;
+
+	private static final byte EMPTY = 0;
+	private static final byte VALID = 1;
+	private static final byte INVALID = 2;
+	private static final byte PENDING = 4; // Queued, not yet issued
+	private static final byte FRESH = 8; // Issued by a batch, not yet read (already counted as miss)
+
+	private final GlQueryBackend mGL;
+
+	// Open addressing table, values hold up to two ints (packed), one int64 or one float (raw bits)
+	private long[] mKeys = new long[256];
+	private long[] mValues = new long[256];
+	private byte[] mStates = new byte[256];
+	private int mSize = 0;
+
+	private int mHits = 0;
+	private int mMisses = 0;
+
+	// Pending batch (deferred error check mode only)
+	private final int mBatchCapacity;
+	private final byte[] mBatchKinds;
+	private final int[] mBatchIndices;
+	private final int[] mBatchNames;
+	private final long[] mBatchKeys;
+	private final long[] mBatchValues;
+	private int mBatchSize = 0;
+
+	// Scratch buffers for single queries
+	private final int[] mInts = new int[2];
+	private final long[] mLongs = new long[1];
+	private final float[] mFloats = new float[1];
+
+	// Statistics
+	private int mErrorChecks = 0;
+	private int mBatches = 0;
+	private int mBatchedQueries = 0;
+	private int mMaxBatchSize = 0;
+	private int mFailedQueries = 0;
+	private int mMaxBisectionDepth = 0;
+	private int mReissuedQueries = 0;
+	private long mQueryTime = 0;
+
+	public QueryCache(GlQueryBackend gl) {
+		this(gl, 0);
+	}
+
+	// batchSize > 0 enables the deferred error check mode
+	public QueryCache(GlQueryBackend gl, int batchSize) {
+		mGL = gl;
+		mBatchCapacity = Math.max(batchSize, 0);
+		mBatchKinds = new byte[mBatchCapacity];
+		mBatchIndices = new int[mBatchCapacity];
+		mBatchNames = new int[mBatchCapacity];
+		mBatchKeys = new long[mBatchCapacity];
+		mBatchValues = new long[mBatchCapacity];
+	}
+
+	public boolean isDeferred() {
+		return mBatchCapacity > 0;
+	}
+
+	public int getHitCount() {
+		return mHits;
+	}
+
+	public int getMissCount() {
+		return mMisses;
+	}
+
+	// Number of glGetError calls issued
+	public int getErrorCheckCount() {
+		return mErrorChecks;
+	}
+
+	public int getBatchCount() {
+		return mBatches;
+	}
+
+	public int getMaxBatchSize() {
+		return mMaxBatchSize;
+	}
+
+	// Average number of queries per batch
+	public float getAverageBatchSize() {
+		return (mBatches > 0) ? (float) mBatchedQueries / mBatches : 0.0f;
+	}
+
+	// Number of queries that raised a GL error
+	public int getFailedQueryCount() {
+		return mFailedQueries;
+	}
+
+	public int getMaxBisectionDepth() {
+		return mMaxBisectionDepth;
+	}
+
+	// Number of queries issued again while bisecting failed batches
+	public int getReissuedQueryCount() {
+		return mReissuedQueries;
+	}
+
+	// Time spent in driver queries and error checks (ns)
+	public long getQueryTime() {
+		return mQueryTime;
+	}
+
+	public String statsText() {
+		StringBuilder stats = new StringBuilder();
+		stats.append(mHits).append(" hits, ").append(mMisses).append(" driver queries, ");
+		stats.append(mErrorChecks).append(" error checks, ").append(mFailedQueries).append(" failed, ");
+		if (isDeferred()) {
+			stats.append(mBatches).append(" batches (avg. size ").append(String.format("%.1f", getAverageBatchSize()));
+			stats.append(", max. size ").append(mMaxBatchSize).append("), ");
+			stats.append("max. bisection depth ").append(mMaxBisectionDepth).append(", ");
+			stats.append(mReissuedQueries).append(" reissued, ");
+		}
+		stats.append(mQueryTime / 1000).append(" us");
+		return stats.toString();
+	}
+
+	private static long key(byte kind, int index, int pname) {
+		return ((long) kind << 56) | ((long) (index & 0xFFFFFF) << 32) | (pname & 0xFFFFFFFFL);
+	}
+
+	private int find(long key) {
+		final int mask = mKeys.length - 1;
+		long h = key * 0x9E3779B97F4A7C15L;
+		int slot = (int) (h >>> 40) & mask;
+		while (mStates[slot] != EMPTY && mKeys[slot] != key) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private int put(long key, long value, byte state) {
+		if ((mSize + 1) * 2 > mKeys.length) {
+			long[] keys = mKeys;
+			long[] values = mValues;
+			byte[] states = mStates;
+			mKeys = new long[keys.length * 2];
+			mValues = new long[keys.length * 2];
+			mStates = new byte[keys.length * 2];
+			for (int i = 0; i < keys.length; i++) {
+				if (states[i] != EMPTY) {
+					int slot = find(keys[i]);
+					mKeys[slot] = keys[i];
+					mValues[slot] = values[i];
+					mStates[slot] = states[i];
+				}
+			}
+		}
+		int slot = find(key);
+		if (mStates[slot] == EMPTY) {
+			mSize++;
+		}
+		mKeys[slot] = key;
+		mValues[slot] = value;
+		mStates[slot] = state;
+		return slot;
+	}
+
+	// Looks up a cached result, returns the slot or -1 (and counts the hit or miss)
+	private int lookup(long key) {
+		int slot = find(key);
+		if (mStates[slot] == EMPTY) {
+			mMisses++;
+			return -1;
+		}
+		if (mStates[slot] == PENDING) {
+			flush();
+			slot = find(key);
+		}
+		if ((mStates[slot] & FRESH) != 0) {
+			mStates[slot] &= ~FRESH;
+		} else {
+			mHits++;
+		}
+		return slot;
+	}
+
+	private int checkError() {
+		final long start = System.nanoTime();
+		int error = mGL.glGetError();
+		mErrorChecks++;
+		if (error != GL_NO_ERROR) {
+			// Clear remaining error flags so they don't show up in the next check
+			int flags = 1;
+			while (flags < MAX_ERROR_FLAGS && mGL.glGetError() != GL_NO_ERROR) {
+				flags++;
+			}
+			mErrorChecks += flags;
+		}
+		mQueryTime += System.nanoTime() - start;
+		return error;
+	}
+
+	// Issues a single query into the scratch buffers and returns the (packed) value
+	private long issue(byte kind, int index, int pname) {
+		final long start = System.nanoTime();
+		long value;
+		switch (kind) {
+			case INTEGER_INDEXED:
+				mGL.glGetIntegeri_v(pname, index, mInts, 0);
+				value = packInts(mInts[0], 0);
+				break;
+			case INTEGER64:
+				mGL.glGetInteger64v(pname, mLongs, 0);
+				value = mLongs[0];
+				break;
+			case INTEGER64_INDEXED:
+				mGL.glGetInteger64i_v(pname, index, mLongs, 0);
+				value = mLongs[0];
+				break;
+			case FLOAT:
+				mGL.glGetFloatv(pname, mFloats, 0);
+				value = Float.floatToRawIntBits(mFloats[0]) & 0xFFFFFFFFL;
+				break;
+			default:
+				mGL.glGetIntegerv(pname, mInts, 0);
+				value = packInts(mInts[0], mInts[1]);
+		}
+		mQueryTime += System.nanoTime() - start;
+		return value;
+	}
+
+	// Query with the error check following immediately (per call mode), returns the table slot
+	private int query(long key, byte kind, int index, int pname) {
+		mInts[0] = mInts[1] = 0;
+		mLongs[0] = 0;
+		mFloats[0] = 0.0f;
+		long value = issue(kind, index, pname);
+		if (checkError() != GL_NO_ERROR) {
+			mFailedQueries++;
+			return put(key, value, INVALID);
+		}
+		return put(key, value, VALID);
+	}
+
+	// Queues a query for the next batch (deferred mode), queries already cached or queued are skipped
+	private void queue(byte kind, int index, int pname) {
+		long key = key(kind, index, pname);
+		if (mStates[find(key)] != EMPTY) {
+			return;
+		}
+		if (mBatchSize == mBatchCapacity) {
+			flush();
+		}
+		mMisses++;
+		put(key, 0, PENDING);
+		mBatchKinds[mBatchSize] = kind;
+		mBatchIndices[mBatchSize] = index;
+		mBatchNames[mBatchSize] = pname;
+		mBatchKeys[mBatchSize] = key;
+		mBatchSize++;
+	}
+
+	public void queueIntegerv(int pname) {
+		queue(INTEGER, 0, pname);
+	}
+
+	public void queueIntegeri_v(int target, int index) {
+		queue(INTEGER_INDEXED, index, target);
+	}
+
+	public void queueInteger64v(int pname) {
+		queue(INTEGER64, 0, pname);
+	}
+
+	public void queueInteger64i_v(int target, int index) {
+		queue(INTEGER64_INDEXED, index, target);
+	}
+
+	public void queueFloatv(int pname) {
+		queue(FLOAT, 0, pname);
+	}
+
+	// Issues the queries [first, last) of the pending batch into their value slots
+	private void issueBatch(int first, int last) {
+		for (int i = first; i < last; i++) {
+			mInts[0] = mInts[1] = 0;
+			mLongs[0] = 0;
+			mFloats[0] = 0.0f;
+			mBatchValues[i] = issue(mBatchKinds[i], mBatchIndices[i], mBatchNames[i]);
+		}
+	}
+
+	private void storeBatch(int first, int last, byte state) {
+		for (int i = first; i < last; i++) {
+			put(mBatchKeys[i], mBatchValues[i], (byte) (state | FRESH));
+		}
+	}
+
+	// Finds the failing queries of [first, last), the range is known to contain at least one
+	private void bisect(int first, int last, int depth) {
+		mMaxBisectionDepth = Math.max(mMaxBisectionDepth, depth);
+		if (last - first == 1) {
+			mFailedQueries++;
+			storeBatch(first, last, INVALID);
+			return;
+		}
+		final int mid = (first + last) >>> 1;
+		mReissuedQueries += mid - first;
+		issueBatch(first, mid);
+		if (checkError() == GL_NO_ERROR) {
+			storeBatch(first, mid, VALID);
+			// Error must be in the second half, no need to check it on its own
+			bisect(mid, last, depth + 1);
+			return;
+		}
+		bisect(first, mid, depth + 1);
+		mReissuedQueries += last - mid;
+		issueBatch(mid, last);
+		if (checkError() == GL_NO_ERROR) {
+			storeBatch(mid, last, VALID);
+		} else {
+			bisect(mid, last, depth + 1);
+		}
+	}
+
+	// Issues all queued queries with a single error check
+	public void flush() {
+		if (mBatchSize == 0) {
+			return;
+		}
+		final int size = mBatchSize;
+		mBatchSize = 0;
+		mBatches++;
+		mBatchedQueries += size;
+		mMaxBatchSize = Math.max(mMaxBatchSize, size);
+		issueBatch(0, size);
+		if (checkError() == GL_NO_ERROR) {
+			storeBatch(0, size, VALID);
+		} else {
+			bisect(0, size, 1);
+		}
+	}
+
+	private static long packInts(int value0, int value1) {
+		return ((long) value1 << 32) | (value0 & 0xFFFFFFFFL);
+	}
+
+	// Fills values[0] and values[1] (values must hold at least two ints), returns false if the query failed
+	public boolean getIntegerv(int pname, int[] values) {
+		long key = key(INTEGER, 0, pname);
+		int slot = lookup(key);
+		if (slot >= 0) {
+			values[0] = (int) mValues[slot];
+			values[1] = (int) (mValues[slot] >>> 32);
+			return mStates[slot] == VALID;
+		}
+		slot = query(key, INTEGER, 0, pname);
+		values[0] = (int) mValues[slot];
+		values[1] = (int) (mValues[slot] >>> 32);
+		return mStates[slot] == VALID;
+	}
+
+	public boolean getIntegeri_v(int target, int index, int[] values) {
+		long key = key(INTEGER_INDEXED, index, target);
+		int slot = lookup(key);
+		if (slot >= 0) {
+			values[0] = (int) mValues[slot];
+			return mStates[slot] == VALID;
+		}
+		slot = query(key, INTEGER_INDEXED, index, target);
+		values[0] = (int) mValues[slot];
+		return mStates[slot] == VALID;
+	}
+
+	public boolean getInteger64v(int pname, long[] values) {
+		long key = key(INTEGER64, 0, pname);
+		int slot = lookup(key);
+		if (slot >= 0) {
+			values[0] = mValues[slot];
+			return mStates[slot] == VALID;
+		}
+		slot = query(key, INTEGER64, 0, pname);
+		values[0] = mValues[slot];
+		return mStates[slot] == VALID;
+	}
+
+	public boolean getInteger64i_v(int target, int index, long[] values) {
+		long key = key(INTEGER64_INDEXED, index, target);
+		int slot = lookup(key);
+		if (slot >= 0) {
+			values[0] = mValues[slot];
+			return mStates[slot] == VALID;
+		}
+		slot = query(key, INTEGER64_INDEXED, index, target);
+		values[0] = mValues[slot];
+		return mStates[slot] == VALID;
+	}
+
+	public boolean getFloatv(int pname, float[] values) {
+		long key = key(FLOAT, 0, pname);
+		int slot = lookup(key);
+		if (slot >= 0) {
+			values[0] = Float.intBitsToFloat((int) mValues[slot]);
+			return mStates[slot] == VALID;
+		}
+		slot = query(key, FLOAT, 0, pname);
+		values[0] = Float.intBitsToFloat((int) mValues[slot]);
+		return mStates[slot] == VALID;
+	}
+
+}
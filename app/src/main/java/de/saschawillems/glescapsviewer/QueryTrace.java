@@ -0,0 +1,52 @@
+/*
+*
+* OpenGL ES hardware capability viewer and database
+*
+* Copyright (C) 2011-2018 by Sascha Willems (www.saschawillems.de)
+*
+* This code is free software, you can redistribute it and/or
+* modify it under the terms of the GNU Lesser General Public
+* License version 3 as published by the Free Software Foundation.
+*
+* Please review the following information to ensure the GNU Lesser
+* General Public License version 3 requirements will be met:
+* http://opensource.org/licenses/lgpl-3.0.html
+*
+* The code is distributed WITHOUT ANY WARRANTY; without even the
+* implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+* PURPOSE.  See the GNU LGPL 3.0 for more details.
+*
+*/
+
+package de.saschawillems.glescapsviewer;
+
+// Binary trace of GL/EGL queries and their results, written by RecordingQueryBackend and served by ReplayQueryBackend
+//
+// Layout : magic, version, then one record per query, each starting with its opcode
+// A GL_ERROR record holds the result of glGetError and belongs to the query recorded before it
+final class QueryTrace {
+
+	static final int MAGIC = 0x474C5154; // "GLQT"
+	static final int VERSION = 1;
+
+	static final byte GL_GET_STRING = 1;        // int name, string
+	static final byte GL_GET_INTEGERV = 2;      // int pname, int count, int[count] values
+	static final byte GL_GET_INTEGERI_V = 3;    // int target, int index, int value
+	static final byte GL_GET_INTEGER64V = 4;    // int pname, long value
+	static final byte GL_GET_INTEGER64I_V = 5;  // int target, int index, long value
+	static final byte GL_GET_FLOATV = 6;        // int pname, int count, float[count] values
+	static final byte GL_ERROR = 7;             // int error
+	static final byte EGL_INITIALIZE = 8;       // boolean result
+	static final byte EGL_QUERY_STRING = 9;     // int name, string
+	static final byte EGL_CONFIG_COUNT = 10;    // int count
+	static final byte EGL_CONFIG_ATTRIB = 11;   // int config, int attribute, boolean result, int value
+
+	private QueryTrace() {
+	}
+
+	// Key of a query in the replay tables
+	static long key(byte opcode, int index, int name) {
+		return ((long) opcode << 56) | ((long) (index & 0xFFFFFF) << 32) | (name & 0xFFFFFFFFL);
+	}
+
+}
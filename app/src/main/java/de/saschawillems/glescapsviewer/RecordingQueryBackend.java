@@ -0,0 +1,207 @@
+/*
+*
+* OpenGL ES hardware capability viewer and database
+*
+* Copyright (C) 2011-2018 by Sascha Willems (www.saschawillems.de)
+*
+* This code is free software, you can redistribute it and/or
+* modify it under the terms of the GNU Lesser General Public
+* License version 3 as published by the Free Software Foundation.
+*
+* Please review the following information to ensure the GNU Lesser
+* General Public License version 3 requirements will be met:
+* http://opensource.org/licenses/lgpl-3.0.html
+*
+* The code is distributed WITHOUT ANY WARRANTY; without even the
+* implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+* PURPOSE.  See the GNU LGPL 3.0 for more details.
+*
+*/
+
+package de.saschawillems.glescapsviewer;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+// Passes all queries to the wrapped backends and records them along with their results to a query trace
+// Recording errors are not propagated into the capture, the trace is just incomplete then (see getError())
+class RecordingQueryBackend implements GlQueryBackend, EglQueryBackend, Closeable {
+
+	private final GlQueryBackend mGL;
+	private final EglQueryBackend mEGL;
+	private final DataOutputStream mOut;
+	private IOException mError;
+
+	public RecordingQueryBackend(GlQueryBackend gl, EglQueryBackend egl, OutputStream out) throws IOException {
+		mGL = gl;
+		mEGL = egl;
+		mOut = new DataOutputStream(new BufferedOutputStream(out));
+		mOut.writeInt(QueryTrace.MAGIC);
+		mOut.writeByte(QueryTrace.VERSION);
+	}
+
+	public IOException getError() {
+		return mError;
+	}
+
+	@Override
+	public void close() throws IOException {
+		mOut.close();
+	}
+
+	private void writeString(String value) throws IOException {
+		mOut.writeBoolean(value != null);
+		if (value != null) {
+			mOut.writeUTF(value);
+		}
+	}
+
+	@Override
+	public String glGetString(int name) {
+		String result = mGL.glGetString(name);
+		try {
+			mOut.writeByte(QueryTrace.GL_GET_STRING);
+			mOut.writeInt(name);
+			writeString(result);
+		} catch (IOException e) {
+			mError = e;
+		}
+		return result;
+	}
+
+	@Override
+	public void glGetIntegerv(int pname, int[] params, int offset) {
+		mGL.glGetIntegerv(pname, params, offset);
+		try {
+			mOut.writeByte(QueryTrace.GL_GET_INTEGERV);
+			mOut.writeInt(pname);
+			mOut.writeInt(params.length - offset);
+			for (int i = offset; i < params.length; i++) {
+				mOut.writeInt(params[i]);
+			}
+		} catch (IOException e) {
+			mError = e;
+		}
+	}
+
+	@Override
+	public void glGetIntegeri_v(int target, int index, int[] data, int offset) {
+		mGL.glGetIntegeri_v(target, index, data, offset);
+		try {
+			mOut.writeByte(QueryTrace.GL_GET_INTEGERI_V);
+			mOut.writeInt(target);
+			mOut.writeInt(index);
+			mOut.writeInt(data[offset]);
+		} catch (IOException e) {
+			mError = e;
+		}
+	}
+
+	@Override
+	public void glGetInteger64v(int pname, long[] params, int offset) {
+		mGL.glGetInteger64v(pname, params, offset);
+		try {
+			mOut.writeByte(QueryTrace.GL_GET_INTEGER64V);
+			mOut.writeInt(pname);
+			mOut.writeLong(params[offset]);
+		} catch (IOException e) {
+			mError = e;
+		}
+	}
+
+	@Override
+	public void glGetInteger64i_v(int target, int index, long[] data, int offset) {
+		mGL.glGetInteger64i_v(target, index, data, offset);
+		try {
+			mOut.writeByte(QueryTrace.GL_GET_INTEGER64I_V);
+			mOut.writeInt(target);
+			mOut.writeInt(index);
+			mOut.writeLong(data[offset]);
+		} catch (IOException e) {
+			mError = e;
+		}
+	}
+
+	@Override
+	public void glGetFloatv(int pname, float[] params, int offset) {
+		mGL.glGetFloatv(pname, params, offset);
+		try {
+			mOut.writeByte(QueryTrace.GL_GET_FLOATV);
+			mOut.writeInt(pname);
+			mOut.writeInt(params.length - offset);
+			for (int i = offset; i < params.length; i++) {
+				mOut.writeFloat(params[i]);
+			}
+		} catch (IOException e) {
+			mError = e;
+		}
+	}
+
+	@Override
+	public int glGetError() {
+		int result = mGL.glGetError();
+		try {
+			mOut.writeByte(QueryTrace.GL_ERROR);
+			mOut.writeInt(result);
+		} catch (IOException e) {
+			mError = e;
+		}
+		return result;
+	}
+
+	@Override
+	public boolean eglInitialize() {
+		boolean result = mEGL.eglInitialize();
+		try {
+			mOut.writeByte(QueryTrace.EGL_INITIALIZE);
+			mOut.writeBoolean(result);
+		} catch (IOException e) {
+			mError = e;
+		}
+		return result;
+	}
+
+	@Override
+	public String eglQueryString(int name) {
+		String result = mEGL.eglQueryString(name);
+		try {
+			mOut.writeByte(QueryTrace.EGL_QUERY_STRING);
+			mOut.writeInt(name);
+			writeString(result);
+		} catch (IOException e) {
+			mError = e;
+		}
+		return result;
+	}
+
+	@Override
+	public int eglGetConfigCount() {
+		int result = mEGL.eglGetConfigCount();
+		try {
+			mOut.writeByte(QueryTrace.EGL_CONFIG_COUNT);
+			mOut.writeInt(result);
+		} catch (IOException e) {
+			mError = e;
+		}
+		return result;
+	}
+
+	@Override
+	public boolean eglGetConfigAttrib(int config, int attribute, int[] value) {
+		boolean result = mEGL.eglGetConfigAttrib(config, attribute, value);
+		try {
+			mOut.writeByte(QueryTrace.EGL_CONFIG_ATTRIB);
+			mOut.writeInt(config);
+			mOut.writeInt(attribute);
+			mOut.writeBoolean(result);
+			mOut.writeInt(value[0]);
+		} catch (IOException e) {
+			mError = e;
+		}
+		return result;
+	}
+
+}
@@ -0,0 +1,245 @@
+/*
+*
+* OpenGL ES hardware capability viewer and database
+*
+* Copyright (C) 2011-2018 by Sascha Willems (www.saschawillems.de)
+*
+* This code is free software, you can redistribute it and/or
+* modify it under the terms of the GNU Lesser General Public
+* License version 3 as published by the Free Software Foundation.
+*
+* Please review the following information to ensure the GNU Lesser
+* General Public License version 3 requirements will be met:
+* http://opensource.org/licenses/lgpl-3.0.html
+*
+* The code is distributed WITHOUT ANY WARRANTY; without even the
+* implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+* PURPOSE.  See the GNU LGPL 3.0 for more details.
+*
+*/
+
+package de.saschawillems.glescapsviewer;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+
+// Serves GL/EGL queries from a recorded query trace, no GL context or device required
+// Queries are looked up by name (not by position in the trace), so captures that issue queries
+// in a different order or skip some of them still replay correctly
+// Queries that are not part of the trace behave like unsupported enums (GL_INVALID_ENUM)
+class ReplayQueryBackend implements GlQueryBackend, EglQueryBackend {
+
+	private static final int GL_NO_ERROR = 0;
+	private static final int GL_INVALID_ENUM = 0x0500;
+
+	private static class Result {
+		Object value;
+		boolean success;
+		int error = GL_NO_ERROR;
+	}
+
+	private final HashMap<Long, Result> mResults = new HashMap<Long, Result>();
+	private boolean mEGLInitialized = false;
+	private int mEGLConfigCount = 0;
+	private int mPendingError = GL_NO_ERROR;
+	private int mQueryCount = 0;
+
+	public ReplayQueryBackend(InputStream in) throws IOException {
+		DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+		if (data.readInt() != QueryTrace.MAGIC) {
+			throw new IOException("Not a query trace");
+		}
+		int version = data.readUnsignedByte();
+		if (version != QueryTrace.VERSION) {
+			throw new IOException("Unsupported query trace version " + version);
+		}
+
+		Result last = null;
+		while (true) {
+			int opcode;
+			try {
+				opcode = data.readUnsignedByte();
+			} catch (EOFException e) {
+				break;
+			}
+			Result result = new Result();
+			long key;
+			switch (opcode) {
+				case QueryTrace.GL_GET_STRING:
+				case QueryTrace.EGL_QUERY_STRING: {
+					int name = data.readInt();
+					key = QueryTrace.key((byte) opcode, 0, name);
+					result.value = data.readBoolean() ? data.readUTF() : null;
+					break;
+				}
+				case QueryTrace.GL_GET_INTEGERV: {
+					int pname = data.readInt();
+					int[] values = new int[data.readInt()];
+					for (int i = 0; i < values.length; i++) {
+						values[i] = data.readInt();
+					}
+					key = QueryTrace.key((byte) opcode, 0, pname);
+					result.value = values;
+					break;
+				}
+				case QueryTrace.GL_GET_INTEGERI_V: {
+					int target = data.readInt();
+					int index = data.readInt();
+					key = QueryTrace.key((byte) opcode, index, target);
+					result.value = data.readInt();
+					break;
+				}
+				case QueryTrace.GL_GET_INTEGER64V: {
+					int pname = data.readInt();
+					key = QueryTrace.key((byte) opcode, 0, pname);
+					result.value = data.readLong();
+					break;
+				}
+				case QueryTrace.GL_GET_INTEGER64I_V: {
+					int target = data.readInt();
+					int index = data.readInt();
+					key = QueryTrace.key((byte) opcode, index, target);
+					result.value = data.readLong();
+					break;
+				}
+				case QueryTrace.GL_GET_FLOATV: {
+					int pname = data.readInt();
+					float[] values = new float[data.readInt()];
+					for (int i = 0; i < values.length; i++) {
+						values[i] = data.readFloat();
+					}
+					key = QueryTrace.key((byte) opcode, 0, pname);
+					result.value = values;
+					break;
+				}
+				case QueryTrace.GL_ERROR: {
+					int error = data.readInt();
+					// Only the first error after a query is reported, as with GL's sticky error flag
+					if (last != null && last.error == GL_NO_ERROR) {
+						last.error = error;
+					}
+					continue;
+				}
+				case QueryTrace.EGL_INITIALIZE:
+					mEGLInitialized = data.readBoolean();
+					continue;
+				case QueryTrace.EGL_CONFIG_COUNT:
+					mEGLConfigCount = data.readInt();
+					continue;
+				case QueryTrace.EGL_CONFIG_ATTRIB: {
+					int config = data.readInt();
+					int attribute = data.readInt();
+					key = QueryTrace.key((byte) opcode, config, attribute);
+					result.success = data.readBoolean();
+					result.value = data.readInt();
+					break;
+				}
+				default:
+					throw new IOException("Invalid query trace opcode " + opcode);
+			}
+			mResults.put(key, result);
+			last = result;
+		}
+	}
+
+	// Number of queries served so far
+	public int getQueryCount() {
+		return mQueryCount;
+	}
+
+	private Result serve(byte opcode, int index, int name) {
+		mQueryCount++;
+		Result result = mResults.get(QueryTrace.key(opcode, index, name));
+		int error = (result != null) ? result.error : GL_INVALID_ENUM;
+		if (mPendingError == GL_NO_ERROR) {
+			mPendingError = error;
+		}
+		return result;
+	}
+
+	@Override
+	public String glGetString(int name) {
+		Result result = serve(QueryTrace.GL_GET_STRING, 0, name);
+		return (result != null) ? (String) result.value : null;
+	}
+
+	@Override
+	public void glGetIntegerv(int pname, int[] params, int offset) {
+		Result result = serve(QueryTrace.GL_GET_INTEGERV, 0, pname);
+		if (result != null) {
+			int[] values = (int[]) result.value;
+			System.arraycopy(values, 0, params, offset, Math.min(values.length, params.length - offset));
+		}
+	}
+
+	@Override
+	public void glGetIntegeri_v(int target, int index, int[] data, int offset) {
+		Result result = serve(QueryTrace.GL_GET_INTEGERI_V, index, target);
+		if (result != null) {
+			data[offset] = (Integer) result.value;
+		}
+	}
+
+	@Override
+	public void glGetInteger64v(int pname, long[] params, int offset) {
+		Result result = serve(QueryTrace.GL_GET_INTEGER64V, 0, pname);
+		if (result != null) {
+			params[offset] = (Long) result.value;
+		}
+	}
+
+	@Override
+	public void glGetInteger64i_v(int target, int index, long[] data, int offset) {
+		Result result = serve(QueryTrace.GL_GET_INTEGER64I_V, index, target);
+		if (result != null) {
+			data[offset] = (Long) result.value;
+		}
+	}
+
+	@Override
+	public void glGetFloatv(int pname, float[] params, int offset) {
+		Result result = serve(QueryTrace.GL_GET_FLOATV, 0, pname);
+		if (result != null) {
+			float[] values = (float[]) result.value;
+			System.arraycopy(values, 0, params, offset, Math.min(values.length, params.length - offset));
+		}
+	}
+
+	@Override
+	public int glGetError() {
+		int error = mPendingError;
+		mPendingError = GL_NO_ERROR;
+		return error;
+	}
+
+	@Override
+	public boolean eglInitialize() {
+		return mEGLInitialized;
+	}
+
+	@Override
+	public String eglQueryString(int name) {
+		Result result = mResults.get(QueryTrace.key(QueryTrace.EGL_QUERY_STRING, 0, name));
+		return (result != null) ? (String) result.value : null;
+	}
+
+	@Override
+	public int eglGetConfigCount() {
+		return mEGLConfigCount;
+	}
+
+	@Override
+	public boolean eglGetConfigAttrib(int config, int attribute, int[] value) {
+		Result result = mResults.get(QueryTrace.key(QueryTrace.EGL_CONFIG_ATTRIB, config, attribute));
+		if (result == null) {
+			return false;
+		}
+		value[0] = (Integer) result.value;
+		return result.success;
+	}
+
+}
@@ -0,0 +1,165 @@
+/*
+*
+* OpenGL ES hardware capability viewer and database
+*
+* Copyright (C) 2011-2018 by Sascha Willems (www.saschawillems.de)
+*
+* This code is free software, you can redistribute it and/or
+* modify it under the terms of the GNU Lesser General Public
+* License version 3 as published by the Free Software Foundation.
+*
+* Please review the following information to ensure the GNU Lesser
+* General Public License version 3 requirements will be met:
+* http://opensource.org/licenses/lgpl-3.0.html
+*
+* The code is distributed WITHOUT ANY WARRANTY; without even the
+* implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+* PURPOSE.  See the GNU LGPL 3.0 for more details.
+*
+*/
+
+package de.saschawillems.glescapsviewer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Adler32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+// Deflate compression of uploaded reports with a preset dictionary
+// Reports mostly consist of the same extension, cap and tag names on every device, so a dictionary holding
+// that vocabulary (in report order, as written by the compact ReportEncoder) lets even the first occurrence
+// of a name be encoded as a back reference
+// The dictionary is built from the generated extension and cap tables, it is identified by its version and
+// its Adler-32 checksum (also stored in the zlib header of each stream), so encoder and decoder have to be
+// built from the same spec files
+final class ReportCompression {
+
+	// Bump when changing the way the dictionary is built
+	static final int DICTIONARY_VERSION = 1;
+
+	static final String CONTENT_ENCODING = "deflate";
+	// Header with the dictionary id, sent with the report check and with compressed uploads
+	// Servers that can decode reports compressed with this dictionary echo it in the report check response
+	static final String DICTIONARY_HEADER = "X-Report-Dictionary";
+
+	// Deflate can only reference the last 32k - 262 bytes of the dictionary (window size minus lookahead)
+	private static final int MAX_DICTIONARY_SIZE = 32768 - 262;
+
+	private static byte[] sDictionary;
+	private static String sDictionaryId;
+
+	private ReportCompression() {
+	}
+
+	static synchronized byte[] dictionary() {
+		if (sDictionary == null) {
+			sDictionary = buildDictionary();
+			Adler32 adler = new Adler32();
+			adler.update(sDictionary, 0, sDictionary.length);
+			sDictionaryId = DICTIONARY_VERSION + "-" + String.format("%08x", adler.getValue());
+		}
+		return sDictionary;
+	}
+
+	// Version and checksum, e.g. "1-5e3a0c1f"
+	static synchronized String dictionaryId() {
+		dictionary();
+		return sDictionaryId;
+	}
+
+	// Deflate prefers short distances, so the most frequent strings go last: the report skeleton, then the
+	// caps (present in every report) and the extensions before them
+	// Extension and cap runs are in the same order as in reports, so matches can span consecutive elements
+	private static byte[] buildDictionary() {
+		StringBuilder sb = new StringBuilder();
+		for (int id = 0; id < ExtensionTables.COUNT; id++) {
+			sb.append("<extension>").append(ExtensionTables.name(id)).append("</extension>");
+		}
+		final int capCount = CapTables.SECTION_OFFSET[CapTables.SECTION_COUNT];
+		for (int cap = 0; cap < capCount; cap++) {
+			for (int i = 0; i < CapTables.COUNT[cap]; i++) {
+				sb.append("</cap><cap name=\"").append(CapTables.name(cap));
+				if (CapTables.COUNT[cap] > 1) {
+					sb.append('[').append(i).append(']');
+				}
+				sb.append("\">");
+			}
+		}
+
+		// Data only, the backends are never used
+		ReportEncoder encoder = new ReportEncoder(true);
+		encoder.encode(new GLESInfo(null, null), "");
+		sb.append(new String(encoder.buffer(), 0, encoder.length(), StandardCharsets.UTF_8));
+
+		final byte[] bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
+		if (bytes.length <= MAX_DICTIONARY_SIZE) {
+			return bytes;
+		}
+		byte[] tail = new byte[MAX_DICTIONARY_SIZE];
+		System.arraycopy(bytes, bytes.length - tail.length, tail, 0, tail.length);
+		return tail;
+	}
+
+	// Compressing stream on top of out, closing it finishes the zlib stream and closes out
+	static OutputStream encoder(OutputStream out) {
+		final Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+		deflater.setDictionary(dictionary());
+		return new DeflaterOutputStream(out, deflater, 8192) {
+			@Override
+			public void close() throws IOException {
+				try {
+					super.close();
+				} finally {
+					deflater.end();
+				}
+			}
+		};
+	}
+
+	// Decodes a stream written by encoder(), also accepts streams without a preset dictionary
+	static void decode(InputStream in, OutputStream out) throws IOException {
+		final Inflater inflater = new Inflater();
+		final byte[] input = new byte[8192];
+		final byte[] output = new byte[8192];
+		try {
+			while (!inflater.finished()) {
+				if (inflater.needsInput()) {
+					final int read = in.read(input);
+					if (read < 0) {
+						throw new ZipException("Unexpected end of compressed report");
+					}
+					inflater.setInput(input, 0, read);
+				}
+				final int count = inflater.inflate(output);
+				out.write(output, 0, count);
+				if (count == 0 && inflater.needsDictionary()) {
+					final byte[] dictionary = dictionary();
+					Adler32 adler = new Adler32();
+					adler.update(dictionary, 0, dictionary.length);
+					if (inflater.getAdler() != (int) adler.getValue()) {
+						throw new ZipException("Unknown report dictionary " + String.format("%08x", inflater.getAdler()));
+					}
+					inflater.setDictionary(dictionary);
+				}
+			}
+		} catch (DataFormatException e) {
+			throw new ZipException(e.getMessage());
+		} finally {
+			inflater.end();
+		}
+	}
+
+	static byte[] decode(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		decode(in, out);
+		return out.toByteArray();
+	}
+
+}
@@ -0,0 +1,365 @@
+/*
+*
+* OpenGL ES hardware capability viewer and database
+*
+* Copyright (C) 2011-2018 by Sascha Willems (www.saschawillems.de)
+*
+* This code is free software, you can redistribute it and/or
+* modify it under the terms of the GNU Lesser General Public
+* License version 3 as published by the Free Software Foundation.
+*
+* Please review the following information to ensure the GNU Lesser
+* General Public License version 3 requirements will be met:
+* http://opensource.org/licenses/lgpl-3.0.html
+*
+* The code is distributed WITHOUT ANY WARRANTY; without even the
+* implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+* PURPOSE.  See the GNU LGPL 3.0 for more details.
+*
+*/
+
+package de.saschawillems.glescapsviewer;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+// Structural diff of two reports (e.g. two driver builds of the same device)
+// All parts are compared by a single sorted merge over their canonical order: extensions by dictionary id
+// and name, formats by name, caps by slot (both reports share the generated cap layout) and EGL configs
+// by config id, so a diff runs in linear time and only allocates for actual changes
+// Changes are stored as struct-of-arrays, write() emits them as tab separated lines for tooling
+class ReportDiff {
+
+	public static final byte ADDED = 0;
+	public static final byte REMOVED = 1;
+	public static final byte CHANGED = 2;
+
+	// Categories of changes, CATEGORY_NAMES is the column text in write()
+	public static final byte IMPLEMENTATION = 0;
+	public static final byte EXTENSION = 1;
+	public static final byte EGL_EXTENSION = 2;
+	public static final byte COMPRESSED_FORMAT = 3;
+	public static final byte SHADER_BINARY_FORMAT = 4;
+	public static final byte PROGRAM_BINARY_FORMAT = 5;
+	public static final byte CAP = 6;
+	public static final byte EGL_CONFIG = 7;
+
+	public static final String[] CATEGORY_NAMES = {"implementation", "extension", "eglextension", "compressedformat", "binaryshaderformat", "binaryprogramformat", "cap", "eglconfig"};
+	private static final char[] KIND_SYMBOLS = {'+', '-', '~'};
+
+	// Report tags of the cap sections (index is the cap table section)
+	private static final String[] CAP_SECTION_NAMES = {"es20caps", "es30caps", "es31caps", "es32caps"};
+
+	private int mCount;
+	private byte[] mCategory = new byte[16];
+	private byte[] mKind = new byte[16];
+	private String[] mKey = new String[16];
+	private String[] mOld = new String[16];
+	private String[] mNew = new String[16];
+
+	// Scratch for the EGL config merge
+	private int[] mOrderA = new int[0];
+	private int[] mOrderB = new int[0];
+	private long[] mKeys = new long[0];
+
+	// Changes from a to b
+	public static ReportDiff diff(GLESInfo a, GLESInfo b) {
+		ReportDiff diff = new ReportDiff();
+		diff.compare(a, b);
+		return diff;
+	}
+
+	// Replaces the changes with the ones from a to b, lets bulk comparisons reuse one instance
+	public void compare(GLESInfo a, GLESInfo b) {
+		clear();
+
+		compareText("vendor", a.mVendor, b.mVendor);
+		compareText("renderer", a.mRenderer, b.mRenderer);
+		compareText("version", a.mVersion, b.mVersion);
+		compareText("shadinglanguageversion", a.mShadingLanguageVersion, b.mShadingLanguageVersion);
+		compareText("egl/vendor", a.mEGLVendor, b.mEGLVendor);
+		compareText("egl/version", a.mEGLVersion, b.mEGLVersion);
+		compareText("egl/clientapis", a.mEGLClientAPIs, b.mEGLClientAPIs);
+		compareText("os", a.mDeviceOS, b.mDeviceOS);
+
+		compareExtensions(EXTENSION, a.mExtensions, b.mExtensions);
+		compareExtensions(EGL_EXTENSION, a.mEGLExtensions, b.mEGLExtensions);
+
+		compareFormats(COMPRESSED_FORMAT, a.mGLCompressedFormats, b.mGLCompressedFormats);
+		compareFormats(SHADER_BINARY_FORMAT, a.mGLShaderBinaryFormats, b.mGLShaderBinaryFormats);
+		compareFormats(PROGRAM_BINARY_FORMAT, a.mGLProgramBinaryFormats, b.mGLProgramBinaryFormats);
+
+		compareCaps(a.mGLES20Caps, b.mGLES20Caps);
+		compareCaps(a.mGLES30Caps, b.mGLES30Caps);
+		compareCaps(a.mGLES31Caps, b.mGLES31Caps);
+		compareCaps(a.mGLES32Caps, b.mGLES32Caps);
+
+		compareConfigs(a.mEGLConfigs, b.mEGLConfigs);
+	}
+
+	public void clear() {
+		Arrays.fill(mKey, 0, mCount, null);
+		Arrays.fill(mOld, 0, mCount, null);
+		Arrays.fill(mNew, 0, mCount, null);
+		mCount = 0;
+	}
+
+	public int size() {
+		return mCount;
+	}
+
+	public boolean isEmpty() {
+		return mCount == 0;
+	}
+
+	public byte category(int change) {
+		return mCategory[change];
+	}
+
+	public byte kind(int change) {
+		return mKind[change];
+	}
+
+	public String key(int change) {
+		return mKey[change];
+	}
+
+	// Old value, null for added entries
+	public String oldValue(int change) {
+		return mOld[change];
+	}
+
+	// New value, null for removed entries
+	public String newValue(int change) {
+		return mNew[change];
+	}
+
+	// Number of changes of a category
+	public int count(byte category) {
+		int count = 0;
+		for (int i = 0; i < mCount; i++) {
+			if (mCategory[i] == category) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private void add(byte category, byte kind, String key, String oldValue, String newValue) {
+		if (mCount == mKind.length) {
+			final int capacity = mCount * 2;
+			mCategory = Arrays.copyOf(mCategory, capacity);
+			mKind = Arrays.copyOf(mKind, capacity);
+			mKey = Arrays.copyOf(mKey, capacity);
+			mOld = Arrays.copyOf(mOld, capacity);
+			mNew = Arrays.copyOf(mNew, capacity);
+		}
+		mCategory[mCount] = category;
+		mKind[mCount] = kind;
+		mKey[mCount] = key;
+		mOld[mCount] = oldValue;
+		mNew[mCount] = newValue;
+		mCount++;
+	}
+
+	private void compareText(String key, String a, String b) {
+		if (a == null ? b != null : !a.equals(b)) {
+			add(IMPLEMENTATION, CHANGED, key, a, b);
+		}
+	}
+
+	// Known extensions merged by id (ids are in name order), unknown names by name
+	private void compareExtensions(byte category, ExtensionSet a, ExtensionSet b) {
+		if (a.equals(b)) {
+			return;
+		}
+		int idA = a.nextId(0);
+		int idB = b.nextId(0);
+		while (idA != ExtensionSet.NOT_FOUND || idB != ExtensionSet.NOT_FOUND) {
+			if (idA == idB) {
+				idA = a.nextId(idA + 1);
+				idB = b.nextId(idB + 1);
+			} else if (idB == ExtensionSet.NOT_FOUND || (idA != ExtensionSet.NOT_FOUND && idA < idB)) {
+				add(category, REMOVED, ExtensionTables.name(idA), null, null);
+				idA = a.nextId(idA + 1);
+			} else {
+				add(category, ADDED, ExtensionTables.name(idB), null, null);
+				idB = b.nextId(idB + 1);
+			}
+		}
+		int i = 0;
+		int j = 0;
+		while (i < a.unknownCount() || j < b.unknownCount()) {
+			final int cmp = i == a.unknownCount() ? 1 : j == b.unknownCount() ? -1 : a.unknown(i).compareTo(b.unknown(j));
+			if (cmp == 0) {
+				i++;
+				j++;
+			} else if (cmp < 0) {
+				add(category, REMOVED, a.unknown(i++), null, null);
+			} else {
+				add(category, ADDED, b.unknown(j++), null, null);
+			}
+		}
+	}
+
+	// Format lists are in query order, the merge runs over sorted copies
+	private void compareFormats(byte category, List<String> a, List<String> b) {
+		if (a.equals(b)) {
+			return;
+		}
+		final String[] sortedA = a.toArray(new String[0]);
+		final String[] sortedB = b.toArray(new String[0]);
+		Arrays.sort(sortedA);
+		Arrays.sort(sortedB);
+		int i = 0;
+		int j = 0;
+		while (i < sortedA.length || j < sortedB.length) {
+			final int cmp = i == sortedA.length ? 1 : j == sortedB.length ? -1 : sortedA[i].compareTo(sortedB[j]);
+			if (cmp == 0) {
+				i++;
+				j++;
+			} else if (cmp < 0) {
+				add(category, REMOVED, sortedA[i++], null, null);
+			} else {
+				add(category, ADDED, sortedB[j++], null, null);
+			}
+		}
+	}
+
+	// Stores of the same section share the slot layout, unsupported sections have no slots
+	private void compareCaps(CapStore a, CapStore b) {
+		final String section = CAP_SECTION_NAMES[a.mSection];
+		final int slotCount = Math.max(a.size(), b.size());
+		for (int slot = 0; slot < slotCount; slot++) {
+			final boolean validA = slot < a.size() && a.isValid(slot);
+			final boolean validB = slot < b.size() && b.isValid(slot);
+			if (!validA && !validB) {
+				continue;
+			}
+			if (!validB) {
+				add(CAP, REMOVED, section + "/" + a.name(slot), a.valueText(slot), null);
+			} else if (!validA) {
+				add(CAP, ADDED, section + "/" + b.name(slot), null, b.valueText(slot));
+			} else if (!sameValue(a, b, slot)) {
+				add(CAP, CHANGED, section + "/" + a.name(slot), a.valueText(slot), b.valueText(slot));
+			}
+		}
+	}
+
+	private static boolean sameValue(CapStore a, CapStore b, int slot) {
+		switch (a.type(slot)) {
+			case CapTables.TYPE_INT64:
+				return a.getLong(slot) == b.getLong(slot);
+			case CapTables.TYPE_FLOAT:
+				return Float.floatToIntBits(a.getFloat(slot)) == Float.floatToIntBits(b.getFloat(slot));
+			case CapTables.TYPE_RANGE:
+				return a.getRangeMin(slot) == b.getRangeMin(slot) && a.getRangeMax(slot) == b.getRangeMax(slot);
+			default:
+				return a.getInt(slot) == b.getInt(slot);
+		}
+	}
+
+	// Configs are matched by EGL_CONFIG_ID, matched configs report each changed attribute
+	private void compareConfigs(EGLConfigTable a, EGLConfigTable b) {
+		final int countA = a != null ? a.size() : 0;
+		final int countB = b != null ? b.size() : 0;
+		mOrderA = sortById(a, countA, mOrderA);
+		mOrderB = sortById(b, countB, mOrderB);
+		int i = 0;
+		int j = 0;
+		while (i < countA || j < countB) {
+			final int configA = i < countA ? mOrderA[i] : -1;
+			final int configB = j < countB ? mOrderB[j] : -1;
+			final int idA = configA >= 0 ? a.get(EGLConfigTable.CONFIG_ID, configA) : 0;
+			final int idB = configB >= 0 ? b.get(EGLConfigTable.CONFIG_ID, configB) : 0;
+			if (configB < 0 || (configA >= 0 && idA < idB)) {
+				add(EGL_CONFIG, REMOVED, "config " + idA, null, null);
+				i++;
+			} else if (configA < 0 || idB < idA) {
+				add(EGL_CONFIG, ADDED, "config " + idB, null, null);
+				j++;
+			} else {
+				for (int column = 0; column < EGLConfigTable.COLUMN_COUNT; column++) {
+					final int valueA = a.get(column, configA);
+					final int valueB = b.get(column, configB);
+					if (valueA != valueB) {
+						add(EGL_CONFIG, CHANGED, "config " + idA + "/" + EGLConfigTable.ATTRIBUTE_NAMES[column], String.valueOf(valueA), String.valueOf(valueB));
+					}
+				}
+				i++;
+				j++;
+			}
+		}
+	}
+
+	// Config indices in config id order, sorted as packed (id, index) keys so equal ids keep their report order
+	private int[] sortById(EGLConfigTable configs, int count, int[] order) {
+		if (order.length < count) {
+			order = new int[count];
+		}
+		if (mKeys.length < count) {
+			mKeys = new long[count];
+		}
+		for (int i = 0; i < count; i++) {
+			mKeys[i] = ((long) configs.get(EGLConfigTable.CONFIG_ID, i) << 32) | i;
+		}
+		Arrays.sort(mKeys, 0, count);
+		for (int i = 0; i < count; i++) {
+			order[i] = (int) mKeys[i];
+		}
+		return order;
+	}
+
+	// One line per change: category, kind (+ added, - removed, ~ changed), key, old value, new value
+	// Tab separated, tabs, line breaks and backslashes in values are escaped
+	public void write(Appendable out) throws IOException {
+		for (int i = 0; i < mCount; i++) {
+			out.append(CATEGORY_NAMES[mCategory[i]]).append('\t');
+			out.append(KIND_SYMBOLS[mKind[i]]).append('\t');
+			appendEscaped(out, mKey[i]);
+			out.append('\t');
+			appendEscaped(out, mOld[i]);
+			out.append('\t');
+			appendEscaped(out, mNew[i]);
+			out.append('\n');
+		}
+	}
+
+	private static void appendEscaped(Appendable out, String s) throws IOException {
+		if (s == null) {
+			return;
+		}
+		for (int i = 0; i < s.length(); i++) {
+			final char c = s.charAt(i);
+			switch (c) {
+				case '\t':
+					out.append("\\t");
+					break;
+				case '\n':
+					out.append("\\n");
+					break;
+				case '\r':
+					out.append("\\r");
+					break;
+				case '\\':
+					out.append("\\\\");
+					break;
+				default:
+					out.append(c);
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		try {
+			write(sb);
+		} catch (IOException e) {
+			// Not thrown by StringBuilder
+		}
+		return sb.toString();
+	}
+
+}
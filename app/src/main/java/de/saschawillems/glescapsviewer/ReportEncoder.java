@@ -0,0 +1,556 @@
+/*
+*
+* OpenGL ES hardware capability viewer and database
+*
+* Copyright (C) 2011-2018 by Sascha Willems (www.saschawillems.de)
+*
+* This code is free software, you can redistribute it and/or
+* modify it under the terms of the GNU Lesser General Public
+* License version 3 as published by the Free Software Foundation.
+*
+* Please review the following information to ensure the GNU Lesser
+* General Public License version 3 requirements will be met:
+* http://opensource.org/licenses/lgpl-3.0.html
+*
+* The code is distributed WITHOUT ANY WARRANTY; without even the
+* implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+* PURPOSE.  See the GNU LGPL 3.0 for more details.
+*
+*/
+
+package de.saschawillems.glescapsviewer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+// XML encoder for reports (report version 6)
+// Writes pre-encoded tag names, UTF-8 text and numbers straight into a reusable byte buffer, so encoding
+// a report does not allocate apart from growing the buffer (and non-integral floats, see writeFloat)
+// The indented layout matches the one of the Android XmlSerializer with indent-output, compact mode
+// leaves out all line breaks and indentation
+// Uses no Android APIs, so it also runs on a plain JVM (e.g. for re-exporting stored reports)
+final class ReportEncoder {
+
+	// Buffer size when streaming, the buffer is written to the stream whenever it is full
+	private static final int STREAM_BUFFER_SIZE = 8192;
+
+	private static final byte[] DECLARATION = ascii("<?xml version='1.0' standalone='yes' ?>");
+	private static final byte[] NEWLINE = ascii("\r\n");
+	private static final byte[] INDENT = ascii("  ");
+	private static final byte[] EMPTY_TAG_END = ascii(" />");
+	private static final byte[] UNKNOWN = ascii("unknown");
+	private static final byte[] ENTITY_AMP = ascii("&amp;");
+	private static final byte[] ENTITY_LT = ascii("&lt;");
+	private static final byte[] ENTITY_GT = ascii("&gt;");
+	private static final byte[] ENTITY_QUOT = ascii("&quot;");
+	private static final byte[] MIN_LONG = ascii(String.valueOf(Long.MIN_VALUE));
+
+	// Tag and attribute names
+	private static final byte[] REPORT = ascii("report");
+	private static final byte[] SUBMITTER = ascii("submitter");
+	private static final byte[] DESCRIPTION = ascii("description");
+	private static final byte[] REPORT_VERSION = ascii("reportversion");
+	private static final byte[] DEVICE = ascii("device");
+	private static final byte[] SYSTEM = ascii("system");
+	private static final byte[] DEVICE_NAME = ascii("devicename");
+	private static final byte[] OS = ascii("os");
+	private static final byte[] SCREEN_WIDTH = ascii("screenwidth");
+	private static final byte[] SCREEN_HEIGHT = ascii("screenheight");
+	private static final byte[] CPU_SPEED = ascii("cpuspeed");
+	private static final byte[] CPU_CORES = ascii("cpucores");
+	private static final byte[] CPU_ARCH = ascii("cpuarch");
+	private static final byte[] FEATURES = ascii("features");
+	private static final byte[] FEATURE = ascii("feature");
+	private static final byte[] SENSORS = ascii("sensors");
+	private static final byte[] SENSOR = ascii("sensor");
+	private static final byte[] MAX_RANGE = ascii("maxrange");
+	private static final byte[] RESOLUTION = ascii("resolution");
+	private static final byte[] OPENGLES = ascii("opengles");
+	private static final byte[] IMPLEMENTATION = ascii("implementation");
+	private static final byte[] VENDOR = ascii("vendor");
+	private static final byte[] RENDERER = ascii("renderer");
+	private static final byte[] VERSION = ascii("version");
+	private static final byte[] MAJOR_VERSION = ascii("majorversion");
+	private static final byte[] MINOR_VERSION = ascii("minorversion");
+	private static final byte[] SL_VERSION = ascii("shadinglanguageversion");
+	private static final byte[] SL_MAJOR_VERSION = ascii("shadinglanguagemajorversion");
+	private static final byte[] SL_MINOR_VERSION = ascii("shadinglanguageminorversion");
+	private static final byte[] EXTENSIONS = ascii("extensions");
+	private static final byte[] EXTENSION = ascii("extension");
+	private static final byte[] ES20_CAPS = ascii("es20caps");
+	private static final byte[] ES30_CAPS = ascii("es30caps");
+	private static final byte[] ES31_CAPS = ascii("es31caps");
+	private static final byte[] ES32_CAPS = ascii("es32caps");
+	private static final byte[] CAP = ascii("cap");
+	private static final byte[] NAME = ascii("name");
+	private static final byte[] COMPRESSED_FORMATS = ascii("compressedformats");
+	private static final byte[] COMPRESSED_FORMAT = ascii("compressedformat");
+	private static final byte[] BINARY_SHADER_FORMATS = ascii("binaryshaderformats");
+	private static final byte[] BINARY_SHADER_FORMAT = ascii("binaryshaderformat");
+	private static final byte[] BINARY_PROGRAM_FORMATS = ascii("binaryprogramformats");
+	private static final byte[] BINARY_PROGRAM_FORMAT = ascii("binaryprogramformat");
+	private static final byte[] EGL = ascii("egl");
+	private static final byte[] CLIENT_APIS = ascii("clientapis");
+	private static final byte[] CLIENT_API = ascii("clientapi");
+
+	private final boolean mCompact;
+
+	private byte[] mBuffer = new byte[STREAM_BUFFER_SIZE];
+	private int mLength;
+	private OutputStream mOut;
+
+	// Element state, same rules as the XmlSerializer: elements with text close inline, empty elements as " />"
+	private int mDepth;
+	private boolean mPendingStart;
+	private boolean mHasText;
+
+	public ReportEncoder(boolean compact) {
+		mCompact = compact;
+	}
+
+	private static byte[] ascii(String s) {
+		final byte[] bytes = new byte[s.length()];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = (byte) s.charAt(i);
+		}
+		return bytes;
+	}
+
+	// Encodes the report into the buffer, see buffer() and length()
+	public void encode(GLESInfo glesInfo, String submitter) {
+		mOut = null;
+		try {
+			encodeReport(glesInfo, submitter);
+		} catch (IOException e) {
+			// Only thrown by the output stream
+			throw new IllegalStateException(e);
+		}
+	}
+
+	// Streams the report, the stream is flushed but not closed
+	public void encode(GLESInfo glesInfo, String submitter, OutputStream out) throws IOException {
+		mOut = out;
+		try {
+			encodeReport(glesInfo, submitter);
+			out.write(mBuffer, 0, mLength);
+			mLength = 0;
+			out.flush();
+		} finally {
+			mOut = null;
+		}
+	}
+
+	// Encoded report, valid up to length()
+	public byte[] buffer() {
+		return mBuffer;
+	}
+
+	public int length() {
+		return mLength;
+	}
+
+	private void encodeReport(GLESInfo glesInfo, String submitter) throws IOException {
+		mLength = 0;
+		mDepth = 0;
+		mPendingStart = false;
+		mHasText = false;
+
+		write(DECLARATION);
+
+		start(REPORT);
+		attribute(SUBMITTER, submitter);
+		attribute(DESCRIPTION, glesInfo.deviceDescription());
+		attribute(REPORT_VERSION, glesInfo.mReportVersion);
+
+		// Device
+		start(DEVICE);
+
+			start(SYSTEM);
+				element(DEVICE_NAME, glesInfo.mDeviceName);
+				element(OS, glesInfo.mDeviceOS);
+				element(SCREEN_WIDTH, glesInfo.mScreenWidth);
+				element(SCREEN_HEIGHT, glesInfo.mScreenHeight);
+				element(CPU_SPEED, glesInfo.mDeviceCPUSpeed);
+				element(CPU_CORES, glesInfo.mDeviceCPUCores);
+				element(CPU_ARCH, glesInfo.mDeviceCPUArch);
+			end(SYSTEM);
+
+			elements(FEATURES, FEATURE, glesInfo.mDeviceFeatures);
+
+			start(SENSORS);
+			for (int i = 0; i < glesInfo.mDeviceSensors.size(); i++) {
+				final SensorInfo sensor = glesInfo.mDeviceSensors.get(i);
+				start(SENSOR);
+				attribute(MAX_RANGE, sensor.mMaxRange);
+				attribute(RESOLUTION, sensor.mResolution);
+				text(sensor.mName);
+				end(SENSOR);
+			}
+			end(SENSORS);
+
+		end(DEVICE);
+
+		// GLES
+		start(OPENGLES);
+
+			start(IMPLEMENTATION);
+				element(VENDOR, glesInfo.mVendor);
+				element(RENDERER, glesInfo.mRenderer);
+				element(VERSION, glesInfo.mVersion);
+				element(MAJOR_VERSION, glesInfo.mMajorVersion);
+				element(MINOR_VERSION, glesInfo.mMinorVersion);
+				element(SL_VERSION, glesInfo.mShadingLanguageVersion);
+				element(SL_MAJOR_VERSION, glesInfo.mShadingLanguageMajorVersion);
+				element(SL_MINOR_VERSION, glesInfo.mShadingLanguageMinorVersion);
+			end(IMPLEMENTATION);
+
+			extensions(glesInfo.mExtensions);
+
+			caps(ES20_CAPS, glesInfo.mGLES20Caps);
+			caps(ES30_CAPS, glesInfo.mGLES30Caps);
+			caps(ES31_CAPS, glesInfo.mGLES31Caps);
+			caps(ES32_CAPS, glesInfo.mGLES32Caps);
+
+			elements(COMPRESSED_FORMATS, COMPRESSED_FORMAT, glesInfo.mGLCompressedFormats);
+			elements(BINARY_SHADER_FORMATS, BINARY_SHADER_FORMAT, glesInfo.mGLShaderBinaryFormats);
+			elements(BINARY_PROGRAM_FORMATS, BINARY_PROGRAM_FORMAT, glesInfo.mGLProgramBinaryFormats);
+
+		end(OPENGLES);
+
+		// EGL
+		start(EGL);
+
+			start(IMPLEMENTATION);
+				element(VENDOR, glesInfo.mEGLVendor);
+				element(VERSION, glesInfo.mEGLVersion);
+			end(IMPLEMENTATION);
+
+			extensions(glesInfo.mEGLExtensions);
+
+			splitElements(CLIENT_APIS, CLIENT_API, glesInfo.mEGLClientAPIs);
+
+		end(EGL);
+
+		end(REPORT);
+	}
+
+	private void elements(byte[] listTag, byte[] tag, List<String> values) throws IOException {
+		start(listTag);
+		for (int i = 0; i < values.size(); i++) {
+			element(tag, values.get(i));
+		}
+		end(listTag);
+	}
+
+	// Names in driver order (same as ExtensionSet.list()), sets without a known order are written sorted
+	private void extensions(ExtensionSet extensions) throws IOException {
+		if (extensions.source() != null) {
+			splitElements(EXTENSIONS, EXTENSION, extensions.source());
+			return;
+		}
+		start(EXTENSIONS);
+		int id = extensions.nextId(0);
+		int unknown = 0;
+		while (id != ExtensionSet.NOT_FOUND || unknown < extensions.unknownCount()) {
+			if (id != ExtensionSet.NOT_FOUND && (unknown == extensions.unknownCount() || ExtensionTables.name(id).compareTo(extensions.unknown(unknown)) < 0)) {
+				element(EXTENSION, ExtensionTables.name(id));
+				id = extensions.nextId(id + 1);
+			} else {
+				element(EXTENSION, extensions.unknown(unknown++));
+			}
+		}
+		end(EXTENSIONS);
+	}
+
+	// Same values as CapStore.serializedValue(), in the integer form of report version 6
+	private void caps(byte[] listTag, CapStore caps) throws IOException {
+		start(listTag);
+		for (int slot = 0; slot < caps.size(); slot++) {
+			start(CAP);
+			writeAttributeStart(NAME);
+			writeText(CapTables.name(caps.cap(slot)), true);
+			if (caps.index(slot) >= 0) {
+				writeByte('[');
+				writeLong(caps.index(slot));
+				writeByte(']');
+			}
+			writeByte('"');
+			openContent();
+			if (!caps.isValid(slot)) {
+				write(UNKNOWN);
+			} else {
+				writeLong(caps.reportValue(slot));
+			}
+			end(CAP);
+		}
+		end(listTag);
+	}
+
+	// One element per name of a space separated list, split as with String.split(" ") in report version 6
+	// (an empty list gives one empty element, trailing spaces are dropped)
+	private void splitElements(byte[] listTag, byte[] tag, String list) throws IOException {
+		start(listTag);
+		if (list != null) {
+			int end = list.length();
+			while (end > 0 && list.charAt(end - 1) == ' ') {
+				end--;
+			}
+			if (list.isEmpty()) {
+				element(tag, "");
+			}
+			int start = 0;
+			while (start < end) {
+				int next = list.indexOf(' ', start);
+				if (next < 0 || next > end) {
+					next = end;
+				}
+				start(tag);
+				openContent();
+				writeText(list, start, next, false);
+				end(tag);
+				start = next + 1;
+			}
+		}
+		end(listTag);
+	}
+
+	private void start(byte[] name) throws IOException {
+		closeStartTag();
+		newline(mDepth);
+		writeByte('<');
+		write(name);
+		mPendingStart = true;
+		mHasText = false;
+		mDepth++;
+	}
+
+	private void end(byte[] name) throws IOException {
+		mDepth--;
+		if (mPendingStart) {
+			write(EMPTY_TAG_END);
+			mPendingStart = false;
+		} else {
+			if (!mHasText) {
+				newline(mDepth);
+			}
+			writeByte('<');
+			writeByte('/');
+			write(name);
+			writeByte('>');
+		}
+		mHasText = false;
+	}
+
+	private void element(byte[] name, String value) throws IOException {
+		start(name);
+		text(value);
+		end(name);
+	}
+
+	private void element(byte[] name, long value) throws IOException {
+		start(name);
+		openContent();
+		writeLong(value);
+		end(name);
+	}
+
+	private void element(byte[] name, float value) throws IOException {
+		start(name);
+		openContent();
+		writeFloat(value);
+		end(name);
+	}
+
+	// Null strings (e.g. failed glGetString calls) are written as empty text
+	private void text(String value) throws IOException {
+		openContent();
+		if (value != null) {
+			writeText(value, 0, value.length(), false);
+		}
+	}
+
+	private void attribute(byte[] name, String value) throws IOException {
+		writeAttributeStart(name);
+		if (value != null) {
+			writeText(value, true);
+		}
+		writeByte('"');
+	}
+
+	private void attribute(byte[] name, long value) throws IOException {
+		writeAttributeStart(name);
+		writeLong(value);
+		writeByte('"');
+	}
+
+	private void attribute(byte[] name, float value) throws IOException {
+		writeAttributeStart(name);
+		writeFloat(value);
+		writeByte('"');
+	}
+
+	private void writeAttributeStart(byte[] name) throws IOException {
+		writeByte(' ');
+		write(name);
+		writeByte('=');
+		writeByte('"');
+	}
+
+	// Closes the pending start tag, the element now has text content
+	private void openContent() throws IOException {
+		closeStartTag();
+		mHasText = true;
+	}
+
+	private void closeStartTag() throws IOException {
+		if (mPendingStart) {
+			writeByte('>');
+			mPendingStart = false;
+		}
+	}
+
+	private void newline(int depth) throws IOException {
+		if (mCompact) {
+			return;
+		}
+		write(NEWLINE);
+		for (int i = 0; i < depth; i++) {
+			write(INDENT);
+		}
+	}
+
+	private void ensure(int count) throws IOException {
+		if (mLength + count <= mBuffer.length) {
+			return;
+		}
+		if (mOut != null) {
+			mOut.write(mBuffer, 0, mLength);
+			mLength = 0;
+			if (count <= mBuffer.length) {
+				return;
+			}
+		}
+		byte[] buffer = new byte[Math.max(mBuffer.length * 2, mLength + count)];
+		System.arraycopy(mBuffer, 0, buffer, 0, mLength);
+		mBuffer = buffer;
+	}
+
+	private void writeByte(int b) throws IOException {
+		ensure(1);
+		mBuffer[mLength++] = (byte) b;
+	}
+
+	private void write(byte[] bytes) throws IOException {
+		ensure(bytes.length);
+		System.arraycopy(bytes, 0, mBuffer, mLength, bytes.length);
+		mLength += bytes.length;
+	}
+
+	private void writeLong(long value) throws IOException {
+		if (value == Long.MIN_VALUE) {
+			write(MIN_LONG);
+			return;
+		}
+		ensure(20);
+		if (value < 0) {
+			mBuffer[mLength++] = '-';
+			value = -value;
+		}
+		int digits = 1;
+		for (long v = value; v >= 10; v /= 10) {
+			digits++;
+		}
+		int pos = mLength + digits;
+		mLength = pos;
+		do {
+			mBuffer[--pos] = (byte) ('0' + (int) (value % 10));
+			value /= 10;
+		} while (value != 0);
+	}
+
+	// Same text as String.valueOf(float)
+	// Integral values below 10^7 (most float caps and sensor values) are written directly, others use Float.toString()
+	private void writeFloat(float value) throws IOException {
+		if (value == (long) value && Math.abs(value) < 1e7f && (value != 0 || Float.floatToRawIntBits(value) == 0)) {
+			writeLong((long) value);
+			writeByte('.');
+			writeByte('0');
+			return;
+		}
+		final String text = Float.toString(value);
+		writeText(text, 0, text.length(), false);
+	}
+
+	private void writeText(String s, boolean attribute) throws IOException {
+		writeText(s, 0, s.length(), attribute);
+	}
+
+	// UTF-8 with XML escaping, chars that are not allowed in XML 1.0 (control chars, unpaired surrogates)
+	// are replaced with U+FFFD
+	private void writeText(String s, int start, int end, boolean attribute) throws IOException {
+		for (int i = start; i < end; i++) {
+			char c = s.charAt(i);
+			ensure(6);
+			switch (c) {
+				case '&':
+					write(ENTITY_AMP);
+					continue;
+				case '<':
+					write(ENTITY_LT);
+					continue;
+				case '>':
+					write(ENTITY_GT);
+					continue;
+				case '"':
+					if (attribute) {
+						write(ENTITY_QUOT);
+						continue;
+					}
+					break;
+				case '\n':
+				case '\r':
+				case '\t':
+					if (attribute) {
+						// Keeps line breaks and tabs from being normalized to spaces by the parser
+						writeByte('&');
+						writeByte('#');
+						writeLong(c);
+						writeByte(';');
+						continue;
+					}
+					break;
+			}
+			final byte[] b = mBuffer;
+			if (c < 0x20 && c != '\n' && c != '\r' && c != '\t') {
+				writeReplacement();
+			} else if (c < 0x80) {
+				b[mLength++] = (byte) c;
+			} else if (c < 0x800) {
+				b[mLength++] = (byte) (0xC0 | (c >> 6));
+				b[mLength++] = (byte) (0x80 | (c & 0x3F));
+			} else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(s.charAt(i + 1))) {
+				final int cp = Character.toCodePoint(c, s.charAt(++i));
+				b[mLength++] = (byte) (0xF0 | (cp >> 18));
+				b[mLength++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+				b[mLength++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+				b[mLength++] = (byte) (0x80 | (cp & 0x3F));
+			} else if (Character.isSurrogate(c) || c >= 0xFFFE) {
+				writeReplacement();
+			} else {
+				b[mLength++] = (byte) (0xE0 | (c >> 12));
+				b[mLength++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+				b[mLength++] = (byte) (0x80 | (c & 0x3F));
+			}
+		}
+	}
+
+	// U+FFFD
+	private void writeReplacement() throws IOException {
+		ensure(3);
+		mBuffer[mLength++] = (byte) 0xEF;
+		mBuffer[mLength++] = (byte) 0xBF;
+		mBuffer[mLength++] = (byte) 0xBD;
+	}
+
+}
@@ -0,0 +1,215 @@
+/*
+*
+* OpenGL ES hardware capability viewer and database
+*
+* Copyright (C) 2011-2018 by Sascha Willems (www.saschawillems.de)
+*
+* This code is free software, you can redistribute it and/or
+* modify it under the terms of the GNU Lesser General Public
+* License version 3 as published by the Free Software Foundation.
+*
+* Please review the following information to ensure the GNU Lesser
+* General Public License version 3 requirements will be met:
+* http://opensource.org/licenses/lgpl-3.0.html
+*
+* The code is distributed WITHOUT ANY WARRANTY; without even the
+* implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+* PURPOSE.  See the GNU LGPL 3.0 for more details.
+*
+*/
+
+package de.saschawillems.glescapsviewer;
+
+import android.content.Context;
+import android.graphics.Color;
+import android.text.SpannableString;
+import android.text.Spanned;
+import android.text.style.BackgroundColorSpan;
+import android.util.TypedValue;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.LinearLayout;
+import android.widget.TextView;
+
+// Binds a row model (see ReportRows) to the report list
+// Views are only created for visible rows and recycled per row type, binding a row just sets its text
+// A search query filters the rows (see ReportSearchIndex), matches are highlighted when a row is bound
+class ReportListAdapter extends BaseAdapter {
+
+	private static final int HEADER_COLOR = Color.rgb(45, 159, 201);
+	// Background of search matches, readable behind all row text colors
+	private static final int MATCH_COLOR = Color.rgb(110, 80, 0);
+
+	private final Context mContext;
+	private ReportRows mRows = ReportRows.EMPTY;
+	private ReportSearchIndex mIndex = ReportSearchIndex.EMPTY;
+
+	// Normalized search query and the rows shown for it (null if not filtered)
+	private String mQuery = "";
+	private int[] mFiltered;
+
+	// Time spent on the last filter (ns, main thread only)
+	private long mFilterTime = 0;
+
+	// Time spent in getView() since the last resetBindTime() (ns, main thread only)
+	private long mBindTime = 0;
+
+	public ReportListAdapter(Context context) {
+		mContext = context;
+	}
+
+	// The index must have been built for the rows, the current query is applied to them
+	public void setRows(ReportRows rows, ReportSearchIndex index) {
+		mRows = rows;
+		mIndex = index;
+		filter();
+		notifyDataSetChanged();
+	}
+
+	// Filters the rows, shown views are rebound with the new highlights
+	public void setQuery(String query) {
+		mQuery = ReportSearchIndex.normalize(query);
+		filter();
+		notifyDataSetChanged();
+	}
+
+	private void filter() {
+		final long start = System.nanoTime();
+		mFiltered = mIndex.filter(mQuery);
+		mFilterTime = System.nanoTime() - start;
+	}
+
+	public long getFilterTime() {
+		return mFilterTime;
+	}
+
+	public ReportSearchIndex getIndex() {
+		return mIndex;
+	}
+
+	public String getQuery() {
+		return mQuery;
+	}
+
+	public ReportRows getRows() {
+		return mRows;
+	}
+
+	public void resetBindTime() {
+		mBindTime = 0;
+	}
+
+	public long getBindTime() {
+		return mBindTime;
+	}
+
+	@Override
+	public int getCount() {
+		return (mFiltered != null) ? mFiltered.length : mRows.size();
+	}
+
+	private int row(int position) {
+		return (mFiltered != null) ? mFiltered[position] : position;
+	}
+
+	@Override
+	public Object getItem(int position) {
+		return mRows.text(row(position));
+	}
+
+	@Override
+	public long getItemId(int position) {
+		return position;
+	}
+
+	@Override
+	public int getViewTypeCount() {
+		return ReportRows.TYPE_COUNT;
+	}
+
+	@Override
+	public int getItemViewType(int position) {
+		return mRows.type(row(position));
+	}
+
+	// Rows are display only
+	@Override
+	public boolean areAllItemsEnabled() {
+		return false;
+	}
+
+	@Override
+	public boolean isEnabled(int position) {
+		return false;
+	}
+
+	@Override
+	public View getView(int position, View convertView, ViewGroup parent) {
+		final long start = System.nanoTime();
+		final int row = row(position);
+		View view = convertView;
+		if (view == null) {
+			view = createView(mRows.type(row));
+		}
+		((TextView) view.getTag()).setText(mQuery.isEmpty() ? mRows.text(row) : highlight(row));
+		mBindTime += System.nanoTime() - start;
+		return view;
+	}
+
+	// Row text with all occurrences of the query marked, context rows have none
+	private CharSequence highlight(int row) {
+		final String text = mRows.text(row);
+		int match = mIndex.nextMatch(row, mQuery, 0);
+		if (match < 0) {
+			return text;
+		}
+		SpannableString spannable = new SpannableString(text);
+		while (match >= 0) {
+			spannable.setSpan(new BackgroundColorSpan(MATCH_COLOR), match, match + mQuery.length(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+			match = mIndex.nextMatch(row, mQuery, match + mQuery.length());
+		}
+		return spannable;
+	}
+
+	// Styles as in the former table layout, the text view of a row is stored as the view's tag
+	private View createView(int type) {
+		TextView text = new TextView(mContext);
+		switch (type) {
+			case ReportRows.TYPE_HEADER: {
+				text.setTextColor(HEADER_COLOR);
+				text.setTextSize(TypedValue.COMPLEX_UNIT_SP, 16);
+				LinearLayout header = new LinearLayout(mContext);
+				header.setOrientation(LinearLayout.VERTICAL);
+				header.addView(text);
+				View line = new View(mContext);
+				line.setMinimumHeight(2);
+				line.setBackgroundColor(HEADER_COLOR);
+				header.addView(line);
+				View spacer = new View(mContext);
+				spacer.setMinimumHeight(6);
+				spacer.setBackgroundColor(Color.BLACK);
+				header.addView(spacer);
+				header.setTag(text);
+				return header;
+			}
+			case ReportRows.TYPE_CAPTION:
+				text.setTextColor(Color.WHITE);
+				text.setPadding(10, 0, 0, 0);
+				break;
+			case ReportRows.TYPE_NOTE:
+				text.setTextColor(Color.GRAY);
+				text.setPadding(10, 0, 0, 0);
+				break;
+			case ReportRows.TYPE_VALUE:
+				text.setTextColor(Color.GRAY);
+				text.setPadding(25, 0, 0, 0);
+				break;
+			default:
+				break;
+		}
+		text.setTag(text);
+		return text;
+	}
+
+}
@@ -0,0 +1,450 @@
+/*
+*
+* OpenGL ES hardware capability viewer and database
+*
+* Copyright (C) 2011-2018 by Sascha Willems (www.saschawillems.de)
+*
+* This code is free software, you can redistribute it and/or
+* modify it under the terms of the GNU Lesser General Public
+* License version 3 as published by the Free Software Foundation.
+*
+* Please review the following information to ensure the GNU Lesser
+* General Public License version 3 requirements will be met:
+* http://opensource.org/licenses/lgpl-3.0.html
+*
+* The code is distributed WITHOUT ANY WARRANTY; without even the
+* implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+* PURPOSE.  See the GNU LGPL 3.0 for more details.
+*
+*/
+
+package de.saschawillems.glescapsviewer;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+// Streaming reader for XML reports as written by GLESInfo.saveToXML (report version 6)
+// Walks the report/device/opengles/egl structure with a pull parser and fills a GLESInfo element by element,
+// sections a caller does not ask for are skipped without reading their contents
+// One reader (and its parser) can be reused for any number of reports, but is not thread safe
+class ReportReader {
+
+	// Sections for setSections()
+	public static final int SECTION_SYSTEM = 1;
+	public static final int SECTION_FEATURES = 1 << 1;
+	public static final int SECTION_SENSORS = 1 << 2;
+	public static final int SECTION_GLES_IMPLEMENTATION = 1 << 3;
+	public static final int SECTION_GLES_EXTENSIONS = 1 << 4;
+	public static final int SECTION_ES20_CAPS = 1 << 5;
+	public static final int SECTION_ES30_CAPS = 1 << 6;
+	public static final int SECTION_ES31_CAPS = 1 << 7;
+	public static final int SECTION_ES32_CAPS = 1 << 8;
+	public static final int SECTION_FORMATS = 1 << 9;
+	public static final int SECTION_EGL_IMPLEMENTATION = 1 << 10;
+	public static final int SECTION_EGL_EXTENSIONS = 1 << 11;
+	public static final int SECTION_EGL_CLIENT_APIS = 1 << 12;
+	public static final int ALL_SECTIONS = -1;
+
+	// Called for every report of a directory, see readDirectory()
+	public interface Visitor {
+		void report(File file, GLESInfo glesInfo, String submitter);
+		void failed(File file, Exception e);
+	}
+
+	// Slot of each cap name (including the index of indexed caps) per cap table section
+	private static final ArrayList<HashMap<String, Integer>> sCapSlots = new ArrayList<>(Collections.<HashMap<String, Integer>>nCopies(CapTables.SECTION_COUNT, null));
+
+	private final XmlPullParser mParser;
+	private int mSections = ALL_SECTIONS;
+	private String mSubmitter;
+
+	// Scratch lists for extension sets, reused for all reports
+	private int[] mExtensionIds = new int[256];
+	private final ArrayList<String> mUnknownExtensions = new ArrayList<>();
+	private final StringBuilder mExtensionSource = new StringBuilder();
+
+	public ReportReader() throws XmlPullParserException {
+		this(XmlPullParserFactory.newInstance().newPullParser());
+	}
+
+	public ReportReader(XmlPullParser parser) {
+		mParser = parser;
+	}
+
+	private static synchronized HashMap<String, Integer> getCapSlots(int section) {
+		HashMap<String, Integer> slots = sCapSlots.get(section);
+		if (slots == null) {
+			CapStore caps = new CapStore(section);
+			caps.setAvailable(true);
+			slots = new HashMap<>(caps.size() * 2);
+			for (int slot = 0; slot < caps.size(); slot++) {
+				slots.put(caps.name(slot), slot);
+			}
+			sCapSlots.set(section, slots);
+		}
+		return slots;
+	}
+
+	// Sections to read (SECTION_* bits), all others are skipped
+	public void setSections(int sections) {
+		mSections = sections;
+	}
+
+	// Submitter of the last report read
+	public String getSubmitter() {
+		return mSubmitter;
+	}
+
+	public GLESInfo read(InputStream in) throws IOException, XmlPullParserException {
+		mParser.setInput(in, null);
+		mSubmitter = null;
+
+		// Data only, the backends are never used
+		GLESInfo info = new GLESInfo(null, null);
+
+		if (mParser.nextTag() != XmlPullParser.START_TAG || !"report".equals(mParser.getName())) {
+			throw new XmlPullParserException("Not a report");
+		}
+		mSubmitter = mParser.getAttributeValue(null, "submitter");
+		info.mReportVersion = parseInt(mParser.getAttributeValue(null, "reportversion"), 0);
+
+		final int depth = mParser.getDepth();
+		while (nextChild(depth)) {
+			switch (mParser.getName()) {
+				case "device":
+					readDevice(info);
+					break;
+				case "opengles":
+					readGLES(info);
+					break;
+				case "egl":
+					readEGL(info);
+					break;
+				default:
+					skip();
+			}
+		}
+		return info;
+	}
+
+	// Reads all *.xml reports of a directory, entries are streamed, so the directory size does not matter
+	// Returns the number of reports read, reports that fail to parse are passed to Visitor.failed()
+	public int readDirectory(File dir, Visitor visitor) throws IOException {
+		int count = 0;
+		try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir.toPath(), "*.xml")) {
+			for (Path path : entries) {
+				final File file = path.toFile();
+				try (InputStream in = new BufferedInputStream(Files.newInputStream(path), 16 * 1024)) {
+					GLESInfo info = read(in);
+					visitor.report(file, info, mSubmitter);
+					count++;
+				} catch (IOException | XmlPullParserException | RuntimeException e) {
+					visitor.failed(file, e);
+				}
+			}
+		}
+		return count;
+	}
+
+	private boolean wanted(int section) {
+		return (mSections & section) != 0;
+	}
+
+	private void readDevice(GLESInfo info) throws IOException, XmlPullParserException {
+		final int depth = mParser.getDepth();
+		while (nextChild(depth)) {
+			final String name = mParser.getName();
+			if (name.equals("system") && wanted(SECTION_SYSTEM)) {
+				readSystem(info);
+			} else if (name.equals("features") && wanted(SECTION_FEATURES)) {
+				readList(info.mDeviceFeatures);
+			} else if (name.equals("sensors") && wanted(SECTION_SENSORS)) {
+				readSensors(info);
+			} else {
+				skip();
+			}
+		}
+	}
+
+	private void readSystem(GLESInfo info) throws IOException, XmlPullParserException {
+		final int depth = mParser.getDepth();
+		while (nextChild(depth)) {
+			switch (mParser.getName()) {
+				case "devicename":
+					info.mDeviceName = mParser.nextText();
+					break;
+				case "os":
+					info.mDeviceOS = mParser.nextText();
+					break;
+				case "screenwidth":
+					info.mScreenWidth = parseInt(mParser.nextText(), 0);
+					break;
+				case "screenheight":
+					info.mScreenHeight = parseInt(mParser.nextText(), 0);
+					break;
+				case "cpuspeed":
+					info.mDeviceCPUSpeed = parseFloat(mParser.nextText(), 0);
+					break;
+				case "cpucores":
+					info.mDeviceCPUCores = parseInt(mParser.nextText(), 0);
+					break;
+				case "cpuarch":
+					info.mDeviceCPUArch = mParser.nextText();
+					break;
+				default:
+					skip();
+			}
+		}
+	}
+
+	private void readSensors(GLESInfo info) throws IOException, XmlPullParserException {
+		final int depth = mParser.getDepth();
+		while (nextChild(depth)) {
+			if (!mParser.getName().equals("sensor")) {
+				skip();
+				continue;
+			}
+			SensorInfo sensor = new SensorInfo();
+			sensor.mMaxRange = parseFloat(mParser.getAttributeValue(null, "maxrange"), 0);
+			sensor.mResolution = parseFloat(mParser.getAttributeValue(null, "resolution"), 0);
+			sensor.mName = mParser.nextText();
+			info.mDeviceSensors.add(sensor);
+		}
+	}
+
+	private void readGLES(GLESInfo info) throws IOException, XmlPullParserException {
+		final int depth = mParser.getDepth();
+		while (nextChild(depth)) {
+			final String name = mParser.getName();
+			if (name.equals("implementation") && wanted(SECTION_GLES_IMPLEMENTATION)) {
+				readGLESImplementation(info);
+			} else if (name.equals("extensions") && wanted(SECTION_GLES_EXTENSIONS)) {
+				info.mExtensions = readExtensions();
+			} else if (name.equals("es20caps") && wanted(SECTION_ES20_CAPS)) {
+				readCaps(info.mGLES20Caps);
+			} else if (name.equals("es30caps") && wanted(SECTION_ES30_CAPS)) {
+				readCaps(info.mGLES30Caps);
+			} else if (name.equals("es31caps") && wanted(SECTION_ES31_CAPS)) {
+				readCaps(info.mGLES31Caps);
+			} else if (name.equals("es32caps") && wanted(SECTION_ES32_CAPS)) {
+				readCaps(info.mGLES32Caps);
+			} else if (name.equals("compressedformats") && wanted(SECTION_FORMATS)) {
+				readList(info.mGLCompressedFormats);
+			} else if (name.equals("binaryshaderformats") && wanted(SECTION_FORMATS)) {
+				readList(info.mGLShaderBinaryFormats);
+			} else if (name.equals("binaryprogramformats") && wanted(SECTION_FORMATS)) {
+				readList(info.mGLProgramBinaryFormats);
+			} else {
+				skip();
+			}
+		}
+	}
+
+	private void readGLESImplementation(GLESInfo info) throws IOException, XmlPullParserException {
+		final int depth = mParser.getDepth();
+		while (nextChild(depth)) {
+			switch (mParser.getName()) {
+				case "vendor":
+					info.mVendor = mParser.nextText();
+					break;
+				case "renderer":
+					info.mRenderer = mParser.nextText();
+					break;
+				case "version":
+					info.mVersion = mParser.nextText();
+					break;
+				case "majorversion":
+					info.mMajorVersion = parseInt(mParser.nextText(), 0);
+					break;
+				case "minorversion":
+					info.mMinorVersion = parseInt(mParser.nextText(), 0);
+					break;
+				case "shadinglanguageversion":
+					info.mShadingLanguageVersion = mParser.nextText();
+					break;
+				case "shadinglanguagemajorversion":
+					info.mShadingLanguageMajorVersion = parseInt(mParser.nextText(), 0);
+					break;
+				case "shadinglanguageminorversion":
+					info.mShadingLanguageMinorVersion = parseInt(mParser.nextText(), 0);
+					break;
+				default:
+					skip();
+			}
+		}
+	}
+
+	private void readEGL(GLESInfo info) throws IOException, XmlPullParserException {
+		final int depth = mParser.getDepth();
+		while (nextChild(depth)) {
+			final String name = mParser.getName();
+			if (name.equals("implementation") && wanted(SECTION_EGL_IMPLEMENTATION)) {
+				final int implementationDepth = mParser.getDepth();
+				while (nextChild(implementationDepth)) {
+					if (mParser.getName().equals("vendor")) {
+						info.mEGLVendor = mParser.nextText();
+					} else if (mParser.getName().equals("version")) {
+						info.mEGLVersion = mParser.nextText();
+					} else {
+						skip();
+					}
+				}
+				// Reports don't store the EGL state, the version is only set if EGL could be initialized
+				info.mEGLAvailable = info.mEGLVersion != null && !info.mEGLVersion.isEmpty();
+			} else if (name.equals("extensions") && wanted(SECTION_EGL_EXTENSIONS)) {
+				info.mEGLExtensions = readExtensions();
+			} else if (name.equals("clientapis") && wanted(SECTION_EGL_CLIENT_APIS)) {
+				ArrayList<String> apis = new ArrayList<>();
+				readList(apis);
+				StringBuilder sb = new StringBuilder();
+				for (int i = 0; i < apis.size(); i++) {
+					if (i > 0) {
+						sb.append(' ');
+					}
+					sb.append(apis.get(i));
+				}
+				info.mEGLClientAPIs = sb.toString();
+			} else {
+				skip();
+			}
+		}
+	}
+
+	// Text of all child elements
+	private void readList(List<String> list) throws IOException, XmlPullParserException {
+		final int depth = mParser.getDepth();
+		while (nextChild(depth)) {
+			list.add(mParser.nextText());
+		}
+	}
+
+	// Names are interned against the extension dictionary, only unknown names are kept as strings
+	// The names are also joined to the extension string in document order, so re-encoded reports keep the driver order
+	private ExtensionSet readExtensions() throws IOException, XmlPullParserException {
+		int count = 0;
+		mUnknownExtensions.clear();
+		mExtensionSource.setLength(0);
+		final int depth = mParser.getDepth();
+		boolean first = true;
+		while (nextChild(depth)) {
+			final String name = mParser.nextText();
+			if (!first) {
+				mExtensionSource.append(' ');
+			}
+			mExtensionSource.append(name);
+			first = false;
+			if (name.isEmpty()) {
+				continue;
+			}
+			final int id = ExtensionSet.id(name);
+			if (id == ExtensionSet.NOT_FOUND) {
+				mUnknownExtensions.add(name);
+				continue;
+			}
+			if (count == mExtensionIds.length) {
+				mExtensionIds = Arrays.copyOf(mExtensionIds, count * 2);
+			}
+			mExtensionIds[count++] = id;
+		}
+		return ExtensionSet.of(mExtensionIds, count, mUnknownExtensions).withSource(mExtensionSource.toString());
+	}
+
+	// Caps not in this build's spec are ignored, "unknown" and malformed values stay invalid
+	// Reports only store the first value of ranges, so ranges read back as [value, value]
+	private void readCaps(CapStore caps) throws IOException, XmlPullParserException {
+		final HashMap<String, Integer> slots = getCapSlots(caps.mSection);
+		final int depth = mParser.getDepth();
+		while (nextChild(depth)) {
+			final String name = mParser.getAttributeValue(null, "name");
+			final String value = mParser.nextText();
+			caps.setAvailable(true);
+			final Integer slot = name != null ? slots.get(name) : null;
+			if (slot == null || value.equals("unknown")) {
+				continue;
+			}
+			try {
+				switch (caps.type(slot)) {
+					case CapTables.TYPE_INT64:
+						caps.setLong(slot, Long.parseLong(value));
+						break;
+					case CapTables.TYPE_FLOAT:
+						caps.setFloat(slot, Float.parseFloat(value));
+						break;
+					case CapTables.TYPE_RANGE: {
+						final int min = Integer.parseInt(value);
+						caps.setRange(slot, min, min);
+						break;
+					}
+					default:
+						caps.setInt(slot, Integer.parseInt(value));
+				}
+			} catch (NumberFormatException e) {
+				// Left invalid
+			}
+		}
+	}
+
+	// Moves to the next child element of the element at depth, false once the element is closed
+	private boolean nextChild(int depth) throws IOException, XmlPullParserException {
+		while (true) {
+			switch (mParser.next()) {
+				case XmlPullParser.START_TAG:
+					return true;
+				case XmlPullParser.END_TAG:
+					if (mParser.getDepth() == depth) {
+						return false;
+					}
+					break;
+				case XmlPullParser.END_DOCUMENT:
+					throw new XmlPullParserException("Unexpected end of report");
+			}
+		}
+	}
+
+	// Skips the current element including all children
+	private void skip() throws IOException, XmlPullParserException {
+		final int depth = mParser.getDepth();
+		while (true) {
+			switch (mParser.next()) {
+				case XmlPullParser.END_TAG:
+					if (mParser.getDepth() == depth) {
+						return;
+					}
+					break;
+				case XmlPullParser.END_DOCUMENT:
+					throw new XmlPullParserException("Unexpected end of report");
+			}
+		}
+	}
+
+	private static int parseInt(String s, int defaultValue) {
+		try {
+			return s != null ? Integer.parseInt(s.trim()) : defaultValue;
+		} catch (NumberFormatException e) {
+			return defaultValue;
+		}
+	}
+
+	private static float parseFloat(String s, float defaultValue) {
+		try {
+			return s != null ? Float.parseFloat(s.trim()) : defaultValue;
+		} catch (NumberFormatException e) {
+			return defaultValue;
+		}
+	}
+
+}
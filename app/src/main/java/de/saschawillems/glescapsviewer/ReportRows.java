@@ -0,0 +1,286 @@
+/*
+*
+* OpenGL ES hardware capability viewer and database
+*
+* Copyright (C) 2011-2018 by Sascha Willems (www.saschawillems.de)
+*
+* This code is free software, you can redistribute it and/or
+* modify it under the terms of the GNU Lesser General Public
+* License version 3 as published by the Free Software Foundation.
+*
+* Please review the following information to ensure the GNU Lesser
+* General Public License version 3 requirements will be met:
+* http://opensource.org/licenses/lgpl-3.0.html
+*
+* The code is distributed WITHOUT ANY WARRANTY; without even the
+* implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+* PURPOSE.  See the GNU LGPL 3.0 for more details.
+*
+*/
+
+package de.saschawillems.glescapsviewer;
+
+import android.opengl.EGL14;
+
+import java.util.Arrays;
+import java.util.List;
+
+// Flat display model of a report, one entry per list row (row type and text as parallel arrays)
+// Same content and order as the old table layout, the list only creates views for the visible rows
+// Immutable once built, so it is built on a worker thread (see ReportRowsLoader) and handed to the UI as is
+final class ReportRows {
+
+	// Row types, also the view types of the list
+	public static final byte TYPE_SPACER = 0;
+	public static final byte TYPE_HEADER = 1;
+	public static final byte TYPE_CAPTION = 2;
+	public static final byte TYPE_NOTE = 3; // Dimmed caption (e.g. unsupported ES versions)
+	public static final byte TYPE_VALUE = 4;
+	public static final int TYPE_COUNT = 5;
+
+	// Sections in display order, each is built on its own once its part of the capture is done
+	public static final int SECTION_DEVICE = 0;
+	public static final int SECTION_IMPLEMENTATION = 1;
+	public static final int SECTION_EXTENSIONS = 2;
+	public static final int SECTION_FORMATS = 3;
+	public static final int SECTION_ES20_CAPS = 4;
+	public static final int SECTION_ES30_CAPS = 5;
+	public static final int SECTION_ES31_CAPS = 6;
+	public static final int SECTION_ES32_CAPS = 7;
+	public static final int SECTION_EGL = 8;
+	public static final int SECTION_SENSORS = 9;
+	public static final int SECTION_FEATURES = 10;
+	public static final int SECTION_COUNT = 11;
+
+	public static final String[] SECTION_NAMES = {"device", "implementation", "extensions", "formats", "es20caps", "es30caps", "es31caps", "es32caps", "egl", "sensors", "features"};
+
+	public static final ReportRows EMPTY = new ReportRows(new byte[0], new String[0]);
+
+	private final byte[] mTypes;
+	private final String[] mTexts;
+
+	private ReportRows(byte[] types, String[] texts) {
+		mTypes = types;
+		mTexts = texts;
+	}
+
+	public int size() {
+		return mTypes.length;
+	}
+
+	public byte type(int row) {
+		return mTypes[row];
+	}
+
+	public String text(int row) {
+		return mTexts[row];
+	}
+
+	// Collects the rows of one report
+	private static final class Builder {
+		private byte[] mTypes = new byte[1024];
+		private String[] mTexts = new String[1024];
+		private int mCount = 0;
+
+		private void add(byte type, String text) {
+			if (mCount == mTypes.length) {
+				final int capacity = Math.max(16, mCount * 2);
+				mTypes = Arrays.copyOf(mTypes, capacity);
+				mTexts = Arrays.copyOf(mTexts, capacity);
+			}
+			mTypes[mCount] = type;
+			mTexts[mCount] = text;
+			mCount++;
+		}
+
+		private void header(String caption) {
+			add(TYPE_SPACER, "");
+			add(TYPE_HEADER, caption);
+		}
+
+		// Caption row and/or value row, empty parts are left out
+		private void content(String caption, String value) {
+			if (!caption.isEmpty()) {
+				add(TYPE_CAPTION, caption);
+			}
+			if (value != null && !value.isEmpty()) {
+				add(TYPE_VALUE, value);
+			}
+		}
+
+		private void values(String caption, String[] values) {
+			add(TYPE_CAPTION, caption);
+			for (String value : values) {
+				add(TYPE_VALUE, value);
+			}
+		}
+
+		// Format lists show "None" if empty
+		private void formats(String caption, List<String> formats) {
+			add(TYPE_CAPTION, caption);
+			if (formats.isEmpty()) {
+				add(TYPE_VALUE, "None");
+			}
+			for (int i = 0; i < formats.size(); i++) {
+				add(TYPE_VALUE, formats.get(i));
+			}
+		}
+
+		private void caps(String title, String version, CapStore caps) {
+			header(title);
+			if (caps.size() == 0) {
+				add(TYPE_NOTE, "OpenGL ES " + version + " not supported");
+				return;
+			}
+			for (int slot = 0; slot < caps.size(); slot++) {
+				add(TYPE_CAPTION, caps.displayName(slot));
+				add(TYPE_VALUE, caps.valueText(slot));
+			}
+		}
+
+		ReportRows build() {
+			return new ReportRows(Arrays.copyOf(mTypes, mCount), Arrays.copyOf(mTexts, mCount));
+		}
+	}
+
+	public static ReportRows build(GLESInfo glesInfo) {
+		Builder rows = new Builder();
+		for (int section = 0; section < SECTION_COUNT; section++) {
+			addSection(rows, glesInfo, section);
+		}
+		return rows.build();
+	}
+
+	// Rows of a single section, only reads the part of the report captured for it
+	public static ReportRows build(GLESInfo glesInfo, int section) {
+		Builder rows = new Builder();
+		addSection(rows, glesInfo, section);
+		return rows.build();
+	}
+
+	// Sections in display order, null entries (sections that are not ready yet) are left out
+	public static ReportRows concat(ReportRows[] sections) {
+		int count = 0;
+		for (ReportRows section : sections) {
+			count += section != null ? section.size() : 0;
+		}
+		byte[] types = new byte[count];
+		String[] texts = new String[count];
+		int offset = 0;
+		for (ReportRows section : sections) {
+			if (section != null) {
+				System.arraycopy(section.mTypes, 0, types, offset, section.size());
+				System.arraycopy(section.mTexts, 0, texts, offset, section.size());
+				offset += section.size();
+			}
+		}
+		return new ReportRows(types, texts);
+	}
+
+	private static void addSection(Builder rows, GLESInfo glesInfo, int section) {
+		switch (section) {
+			case SECTION_DEVICE:
+				rows.add(TYPE_HEADER, "Device");
+				rows.content("Name", glesInfo.mDeviceName);
+				rows.content("OS", glesInfo.mDeviceOS);
+				rows.content("Screensize", String.valueOf(glesInfo.mScreenWidth) + " x " + String.valueOf(glesInfo.mScreenHeight));
+				rows.content("CPU", String.valueOf(glesInfo.mDeviceCPUCores) + " x " + String.valueOf(glesInfo.mDeviceCPUSpeed) + "MHz (" + glesInfo.mDeviceCPUArch + ")");
+				break;
+			case SECTION_IMPLEMENTATION:
+				rows.header("OpenGL ES");
+				rows.content("Vendor", glesInfo.mVendor);
+				rows.content("Renderer", glesInfo.mRenderer);
+				rows.content("Version", String.valueOf(glesInfo.mMajorVersion) + "." + String.valueOf(glesInfo.mMinorVersion) + " (" + glesInfo.mVersion + ")");
+				rows.content("Shading language version", String.valueOf(glesInfo.mShadingLanguageMajorVersion) + "." + String.valueOf(glesInfo.mShadingLanguageMinorVersion) + " (" + glesInfo.mShadingLanguageVersion + ")");
+				break;
+			case SECTION_EXTENSIONS: {
+				String[] extensions = glesInfo.mExtensions.toArray();
+				rows.values("Extensions (" + String.valueOf(extensions.length) + ")", extensions);
+				break;
+			}
+			case SECTION_FORMATS:
+				// Program binary formats are ES 3.0
+				rows.formats("Compressed formats", glesInfo.mGLCompressedFormats);
+				rows.formats("Shader binary formats", glesInfo.mGLShaderBinaryFormats);
+				rows.formats("Program binary formats", glesInfo.mGLProgramBinaryFormats);
+				break;
+			case SECTION_ES20_CAPS:
+				rows.caps("OpenGL ES 2.0 Caps", "2.0", glesInfo.mGLES20Caps);
+				break;
+			case SECTION_ES30_CAPS:
+				rows.caps("OpenGL ES 3.0 Caps", "3.0", glesInfo.mGLES30Caps);
+				break;
+			case SECTION_ES31_CAPS:
+				rows.caps("OpenGL ES 3.1 Caps", "3.1", glesInfo.mGLES31Caps);
+				break;
+			case SECTION_ES32_CAPS:
+				rows.caps("OpenGL ES 3.2 Caps", "3.2", glesInfo.mGLES32Caps);
+				break;
+			case SECTION_EGL:
+				addEGL(rows, glesInfo);
+				break;
+			case SECTION_SENSORS:
+				rows.header("Device details");
+				rows.add(TYPE_CAPTION, "Sensors (" + String.valueOf(glesInfo.mDeviceSensors.size()) + ")");
+				for (SensorInfo sensor : glesInfo.mDeviceSensors) {
+					rows.add(TYPE_VALUE, sensor.mName);
+					rows.add(TYPE_VALUE, "    Max. Range = " + String.valueOf(sensor.mMaxRange));
+					rows.add(TYPE_VALUE, "    Resolution = " + String.valueOf(sensor.mResolution));
+				}
+				break;
+			case SECTION_FEATURES:
+				rows.add(TYPE_CAPTION, "Features (" + String.valueOf(glesInfo.mDeviceFeatures.size()) + ")");
+				for (String feature : glesInfo.mDeviceFeatures) {
+					rows.add(TYPE_VALUE, feature);
+				}
+				break;
+			default:
+				break;
+		}
+	}
+
+	private static void addEGL(Builder rows, GLESInfo glesInfo) {
+		if (!glesInfo.mEGLAvailable) {
+			// Should never happen, no embedded device without embedded GL
+			rows.header("EGL is not available on this device");
+			return;
+		}
+		rows.header("EGL");
+		rows.content("Vendor", glesInfo.mEGLVendor);
+		rows.content("Version", glesInfo.mEGLVersion);
+
+		String[] clientAPIs = glesInfo.mEGLClientAPIs.split(" ");
+		rows.values("Client APIs (" + String.valueOf(clientAPIs.length) + ")", clientAPIs);
+
+		String[] eglExtensions = glesInfo.mEGLExtensions.toArray();
+		rows.values("Extensions (" + String.valueOf(eglExtensions.length) + ")", eglExtensions);
+
+		EGLConfigTable configs = glesInfo.mEGLConfigs;
+		final int configCount = configs != null ? configs.size() : 0;
+		rows.add(TYPE_CAPTION, "Configurations (" + String.valueOf(configCount) + ")");
+		for (int i = 0; i < configCount; i++) {
+			rows.add(TYPE_NOTE, "Config no. " + String.valueOf(configs.get(EGLConfigTable.CONFIG_ID, i)));
+			rows.add(TYPE_VALUE, configText(configs, i));
+		}
+	}
+
+	// Short config description, e.g. "R8 G8 B8 A8 D24 S8 4x MSAA GLES2, GLES3"
+	static String configText(EGLConfigTable configs, int config) {
+		StringBuilder text = new StringBuilder(64);
+		text.append(" R").append(configs.get(EGLConfigTable.RED_SIZE, config));
+		text.append(" G").append(configs.get(EGLConfigTable.GREEN_SIZE, config));
+		text.append(" B").append(configs.get(EGLConfigTable.BLUE_SIZE, config));
+		text.append(" A").append(configs.get(EGLConfigTable.ALPHA_SIZE, config));
+		text.append(" D").append(configs.get(EGLConfigTable.DEPTH_SIZE, config));
+		text.append(" S").append(configs.get(EGLConfigTable.STENCIL_SIZE, config));
+		if (configs.get(EGLConfigTable.SAMPLES, config) > 0) {
+			text.append(' ').append(configs.get(EGLConfigTable.SAMPLES, config)).append("x MSAA");
+		}
+		text.append(' ').append(EGLConfigTable.apiText(configs.get(EGLConfigTable.RENDERABLE_TYPE, config)));
+		if (configs.get(EGLConfigTable.CONFIG_CAVEAT, config) != EGL14.EGL_NONE) {
+			text.append(" (").append(EGLConfigTable.caveatText(configs.get(EGLConfigTable.CONFIG_CAVEAT, config))).append(')');
+		}
+		return text.toString();
+	}
+
+}
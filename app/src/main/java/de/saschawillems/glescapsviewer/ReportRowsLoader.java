@@ -0,0 +1,218 @@
+/*
+*
+* OpenGL ES hardware capability viewer and database
+*
+* Copyright (C) 2011-2018 by Sascha Willems (www.saschawillems.de)
+*
+* This code is free software, you can redistribute it and/or
+* modify it under the terms of the GNU Lesser General Public
+* License version 3 as published by the Free Software Foundation.
+*
+* Please review the following information to ensure the GNU Lesser
+* General Public License version 3 requirements will be met:
+* http://opensource.org/licenses/lgpl-3.0.html
+*
+* The code is distributed WITHOUT ANY WARRANTY; without even the
+* implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+* PURPOSE.  See the GNU LGPL 3.0 for more details.
+*
+*/
+
+package de.saschawillems.glescapsviewer;
+
+import android.os.Handler;
+import android.util.Log;
+import android.view.Choreographer;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+
+// Builds the row model of a report on a worker thread and binds it to the list on the main thread
+// Build: formatting of all rows (ReportRows.build) and their search index, bind: handing both to the adapter plus the binding of the
+// visible rows in the next frame. Both are timed, the bind stage is what the main thread pays per report
+// Only the latest report is shown, results of builds that were overtaken by a newer report are dropped
+// A capture in progress can also be shown section by section (see CaptureSession.Listener), each section is built
+// once on the worker and the list is rebound with all sections that are ready so far
+class ReportRowsLoader {
+
+	private final ReportListAdapter mAdapter;
+	private final Handler mHandler;
+	private final ExecutorService mExecutor;
+
+	// Generation of the latest load() or beginSections() call, only written on the main thread
+	private volatile int mGeneration = 0;
+
+	// Sections of the progressive load built so far, only used on the worker thread
+	private final ReportRows[] mSections = new ReportRows[ReportRows.SECTION_COUNT];
+
+	// Time at which each section was first shown, relative to the origin passed to beginSections() (ns, main thread)
+	private final long[] mSectionShownTimes = new long[ReportRows.SECTION_COUNT];
+	private long mOrigin = 0;
+	private long mFirstContentTime = 0;
+	private int mSectionsShown = 0;
+
+	// Timings of the last shown report (ns)
+	private long mBuildTime = 0;
+	private long mIndexTime = 0;
+	private long mBindTime = 0;
+	private long mFirstFrameBindTime = 0;
+
+	public ReportRowsLoader(ReportListAdapter adapter, Handler handler) {
+		mAdapter = adapter;
+		mHandler = handler;
+		mExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "ReportRows");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	// Must be called on the main thread, the report must not be modified afterwards
+	public void load(final GLESInfo glesInfo) {
+		final int generation = ++mGeneration;
+		try {
+			mExecutor.execute(new Runnable() {
+				@Override
+				public void run() {
+					final long start = System.nanoTime();
+					final ReportRows rows = ReportRows.build(glesInfo);
+					final long buildTime = System.nanoTime() - start;
+					final ReportSearchIndex index = ReportSearchIndex.build(rows);
+					final long indexTime = System.nanoTime() - start - buildTime;
+					mHandler.post(new Runnable() {
+						@Override
+						public void run() {
+							if (generation == mGeneration) {
+								bind(rows, index, buildTime, indexTime);
+							}
+						}
+					});
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			// Cancelled
+		}
+	}
+
+	// Starts a progressive load, must be called on the main thread before the first loadSection() of the capture
+	// The origin (System.nanoTime()) is the start of the time-to-first-content metric, e.g. the activity's creation
+	public void beginSections(long origin) {
+		final int generation = ++mGeneration;
+		mOrigin = origin;
+		mFirstContentTime = 0;
+		mSectionsShown = 0;
+		Arrays.fill(mSectionShownTimes, 0);
+		try {
+			mExecutor.execute(new Runnable() {
+				@Override
+				public void run() {
+					Arrays.fill(mSections, null);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			// Cancelled
+		}
+	}
+
+	// May be called on any thread once the section's part of the report is complete
+	public void loadSection(final GLESInfo glesInfo, final int section) {
+		final int generation = mGeneration;
+		try {
+			mExecutor.execute(new Runnable() {
+				@Override
+				public void run() {
+					if (generation != mGeneration) {
+						return;
+					}
+					final long start = System.nanoTime();
+					mSections[section] = ReportRows.build(glesInfo, section);
+					final ReportRows rows = ReportRows.concat(mSections);
+					final long buildTime = System.nanoTime() - start;
+					// The index covers all sections shown so far
+					final ReportSearchIndex index = ReportSearchIndex.build(rows);
+					final long indexTime = System.nanoTime() - start - buildTime;
+					mHandler.post(new Runnable() {
+						@Override
+						public void run() {
+							if (generation == mGeneration) {
+								bind(rows, index, buildTime, indexTime);
+								sectionShown(section);
+							}
+						}
+					});
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			// Cancelled
+		}
+	}
+
+	private void sectionShown(int section) {
+		final long time = System.nanoTime() - mOrigin;
+		mSectionShownTimes[section] = time;
+		if (mSectionsShown++ == 0) {
+			mFirstContentTime = time;
+			Log.i("OpenGL ES CapsViewer", "Time to first content: " + time / 1000 + " us (" + ReportRows.SECTION_NAMES[section] + ")");
+		}
+		if (mSectionsShown == ReportRows.SECTION_COUNT) {
+			Log.i("OpenGL ES CapsViewer", "Sections shown: " + sectionStatsText());
+		}
+	}
+
+	// Time from the origin until the first section was shown (ns), 0 if nothing was shown yet
+	public long getFirstContentTime() {
+		return mFirstContentTime;
+	}
+
+	public long getSectionShownTime(int section) {
+		return mSectionShownTimes[section];
+	}
+
+	public String sectionStatsText() {
+		StringBuilder stats = new StringBuilder();
+		stats.append("first content ").append(mFirstContentTime / 1000).append(" us");
+		for (int i = 0; i < ReportRows.SECTION_COUNT; i++) {
+			stats.append(", ").append(ReportRows.SECTION_NAMES[i]).append(' ').append(mSectionShownTimes[i] / 1000).append(" us");
+		}
+		return stats.toString();
+	}
+
+	private void bind(ReportRows rows, ReportSearchIndex index, long buildTime, long indexTime) {
+		final long start = System.nanoTime();
+		mAdapter.resetBindTime();
+		mAdapter.setRows(rows, index);
+		mBuildTime = buildTime;
+		mIndexTime = indexTime;
+		mBindTime = System.nanoTime() - start;
+
+		// Visible rows are bound in the layout pass of the next frame
+		Choreographer.getInstance().postFrameCallback(new Choreographer.FrameCallback() {
+			@Override
+			public void doFrame(long frameTimeNanos) {
+				mHandler.post(new Runnable() {
+					@Override
+					public void run() {
+						mFirstFrameBindTime = mAdapter.getBindTime();
+						Log.i("OpenGL ES CapsViewer", "Report rows: " + statsText());
+					}
+				});
+			}
+		});
+	}
+
+	public void cancel() {
+		mExecutor.shutdownNow();
+		mGeneration++;
+	}
+
+	public String statsText() {
+		return mAdapter.getRows().size() + " rows, build " + mBuildTime / 1000 + " us + index " + mIndexTime / 1000 + " us (worker), bind " + mBindTime / 1000 + " us + " + mFirstFrameBindTime / 1000 + " us for the visible rows (main)";
+	}
+
+}
@@ -0,0 +1,307 @@
+/*
+*
+* OpenGL ES hardware capability viewer and database
+*
+* Copyright (C) 2011-2018 by Sascha Willems (www.saschawillems.de)
+*
+* This code is free software, you can redistribute it and/or
+* modify it under the terms of the GNU Lesser General Public
+* License version 3 as published by the Free Software Foundation.
+*
+* Please review the following information to ensure the GNU Lesser
+* General Public License version 3 requirements will be met:
+* http://opensource.org/licenses/lgpl-3.0.html
+*
+* The code is distributed WITHOUT ANY WARRANTY; without even the
+* implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+* PURPOSE.  See the GNU LGPL 3.0 for more details.
+*
+*/
+
+package de.saschawillems.glescapsviewer;
+
+import java.util.Arrays;
+
+// Substring search over all rows of a report (see ReportRows), built on the worker thread together with the rows
+// The row texts are lowercased and concatenated (each row terminated by 0) and all their suffixes are sorted, so
+// the rows containing a query are a single range of the suffix array found by two binary searches
+// Matches are shown with their context: the section header, the caption of a matching value and the values of a
+// matching caption
+final class ReportSearchIndex {
+
+	// Row terminator, sorts before all text and ends every suffix comparison
+	private static final char END = 0;
+
+	// Ranges below this size are sorted by insertion sort
+	private static final int INSERTION_SORT_SIZE = 16;
+
+	public static final ReportSearchIndex EMPTY = build(ReportRows.EMPTY);
+
+	private final ReportRows mRows;
+	private final char[] mText;
+	private final int[] mRowStart;
+	private final int[] mRowOf;
+	private final int[] mSuffixes;
+
+	// Context of each row: header of its section, caption of a value row (-1 if none)
+	private final int[] mHeader;
+	private final int[] mCaption;
+
+	// Rows marked by the last query, reused (filter() is only called on the main thread)
+	private final boolean[] mMatched;
+	// Occurrences of the last query
+	private int mMatchCount = 0;
+
+	private ReportSearchIndex(ReportRows rows, char[] text, int[] rowStart, int[] rowOf, int[] suffixes, int[] header, int[] caption) {
+		mRows = rows;
+		mText = text;
+		mRowStart = rowStart;
+		mRowOf = rowOf;
+		mSuffixes = suffixes;
+		mHeader = header;
+		mCaption = caption;
+		mMatched = new boolean[rows.size()];
+	}
+
+	// Case is folded per char, so offsets in the index are offsets in the displayed text
+	public static String normalize(String query) {
+		char[] chars = query.toCharArray();
+		for (int i = 0; i < chars.length; i++) {
+			final char c = Character.toLowerCase(chars[i]);
+			chars[i] = (c == END) ? ' ' : c;
+		}
+		return new String(chars);
+	}
+
+	public static ReportSearchIndex build(ReportRows rows) {
+		final int rowCount = rows.size();
+		int length = 0;
+		for (int row = 0; row < rowCount; row++) {
+			length += rows.text(row).length() + 1;
+		}
+
+		char[] text = new char[length];
+		int[] rowStart = new int[rowCount + 1];
+		int[] rowOf = new int[length];
+		int suffixCount = 0;
+		int offset = 0;
+		for (int row = 0; row < rowCount; row++) {
+			final String rowText = rows.text(row);
+			rowStart[row] = offset;
+			for (int i = 0; i < rowText.length(); i++) {
+				char c = Character.toLowerCase(rowText.charAt(i));
+				// Terminators can't be part of the text
+				text[offset + i] = (c == END) ? ' ' : c;
+				rowOf[offset + i] = row;
+			}
+			suffixCount += rowText.length();
+			offset += rowText.length();
+			text[offset] = END;
+			rowOf[offset] = row;
+			offset++;
+		}
+		rowStart[rowCount] = offset;
+
+		int[] suffixes = new int[suffixCount];
+		int suffix = 0;
+		for (int i = 0; i < length; i++) {
+			if (text[i] != END) {
+				suffixes[suffix++] = i;
+			}
+		}
+		sort(text, suffixes, 0, suffixCount, 0);
+
+		int[] header = new int[rowCount];
+		int[] caption = new int[rowCount];
+		int lastHeader = -1;
+		int lastCaption = -1;
+		for (int row = 0; row < rowCount; row++) {
+			switch (rows.type(row)) {
+				case ReportRows.TYPE_HEADER:
+					lastHeader = row;
+					lastCaption = -1;
+					break;
+				case ReportRows.TYPE_CAPTION:
+				case ReportRows.TYPE_NOTE:
+					lastCaption = row;
+					break;
+				default:
+					break;
+			}
+			header[row] = lastHeader;
+			caption[row] = (rows.type(row) == ReportRows.TYPE_VALUE) ? lastCaption : -1;
+		}
+
+		return new ReportSearchIndex(rows, text, rowStart, rowOf, suffixes, header, caption);
+	}
+
+	// Multikey quicksort of the suffixes [lo, hi) that share their first depth chars
+	private static void sort(char[] text, int[] suffixes, int lo, int hi, int depth) {
+		while (hi - lo > INSERTION_SORT_SIZE) {
+			final char pivot = text[suffixes[(lo + hi) >>> 1] + depth];
+			int lt = lo;
+			int gt = hi - 1;
+			int i = lo;
+			while (i <= gt) {
+				final char c = text[suffixes[i] + depth];
+				if (c < pivot) {
+					swap(suffixes, lt++, i++);
+				} else if (c > pivot) {
+					swap(suffixes, i, gt--);
+				} else {
+					i++;
+				}
+			}
+			sort(text, suffixes, lo, lt, depth);
+			sort(text, suffixes, gt + 1, hi, depth);
+			if (pivot == END) {
+				// Suffixes ending here are equal
+				return;
+			}
+			lo = lt;
+			hi = gt + 1;
+			depth++;
+		}
+		for (int i = lo + 1; i < hi; i++) {
+			final int suffix = suffixes[i];
+			int j = i;
+			while ((j > lo) && (compare(text, suffixes[j - 1], suffix, depth) > 0)) {
+				suffixes[j] = suffixes[j - 1];
+				j--;
+			}
+			suffixes[j] = suffix;
+		}
+	}
+
+	private static int compare(char[] text, int a, int b, int depth) {
+		for (int i = depth; ; i++) {
+			final char ca = text[a + i];
+			final char cb = text[b + i];
+			if (ca != cb) {
+				return ca - cb;
+			}
+			if (ca == END) {
+				return 0;
+			}
+		}
+	}
+
+	private static void swap(int[] values, int a, int b) {
+		final int value = values[a];
+		values[a] = values[b];
+		values[b] = value;
+	}
+
+	// Compares the start of a suffix with a (normalized) query, 0 if the suffix starts with the query
+	private int compare(int suffix, String query) {
+		for (int i = 0; i < query.length(); i++) {
+			final char c = mText[suffix + i];
+			final char q = query.charAt(i);
+			if (c != q) {
+				// Also covers the end of the row, which sorts first
+				return c - q;
+			}
+		}
+		return 0;
+	}
+
+	// First suffix that does not sort before the query (upper: first one that sorts after all matches)
+	private int search(String query, boolean upper) {
+		int lo = 0;
+		int hi = mSuffixes.length;
+		while (lo < hi) {
+			final int mid = (lo + hi) >>> 1;
+			final int order = compare(mSuffixes[mid], query);
+			if ((order < 0) || (upper && (order == 0))) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	public ReportRows getRows() {
+		return mRows;
+	}
+
+	// Number of occurrences of a normalized query
+	public int count(String query) {
+		return search(query, true) - search(query, false);
+	}
+
+	// Rows to show for a normalized query (matches plus their context) in display order, null for an empty query
+	// Must be called on one thread only (the main thread)
+	public int[] filter(String query) {
+		mMatchCount = 0;
+		if (query.isEmpty()) {
+			return null;
+		}
+		final int first = search(query, false);
+		final int last = search(query, true);
+		mMatchCount = last - first;
+		if (first == last) {
+			return new int[0];
+		}
+
+		final int rowCount = mRows.size();
+		Arrays.fill(mMatched, false);
+		for (int i = first; i < last; i++) {
+			mMatched[mRowOf[mSuffixes[i]]] = true;
+		}
+
+		int[] visible = new int[rowCount];
+		int count = 0;
+		int lastHeader = -1;
+		int lastCaption = -1;
+		boolean captionMatched = false;
+		for (int row = 0; row < rowCount; row++) {
+			final byte type = mRows.type(row);
+			if ((type == ReportRows.TYPE_CAPTION) || (type == ReportRows.TYPE_NOTE)) {
+				captionMatched = mMatched[row];
+			} else if (type == ReportRows.TYPE_HEADER) {
+				captionMatched = false;
+			}
+			// Values of a matching caption are shown with it
+			final boolean show = mMatched[row] || ((type == ReportRows.TYPE_VALUE) && captionMatched && (mCaption[row] >= 0));
+			if (!show || (type == ReportRows.TYPE_SPACER)) {
+				continue;
+			}
+			final int header = mHeader[row];
+			if ((header >= 0) && (header != lastHeader) && (header != row)) {
+				visible[count++] = header;
+			}
+			lastHeader = header;
+			final int caption = mCaption[row];
+			if ((caption >= 0) && (caption != lastCaption)) {
+				visible[count++] = caption;
+			}
+			lastCaption = ((type == ReportRows.TYPE_CAPTION) || (type == ReportRows.TYPE_NOTE)) ? row : caption;
+			visible[count++] = row;
+		}
+		return Arrays.copyOf(visible, count);
+	}
+
+	// Number of occurrences found by the last filter(), same as count() without searching again
+	public int matchCount() {
+		return mMatchCount;
+	}
+
+	// Offset of the next occurrence of a normalized query in the text of a row at or after from, -1 if none
+	public int nextMatch(int row, String query, int from) {
+		final int start = mRowStart[row];
+		final int end = mRowStart[row + 1] - 1;
+		final int length = query.length();
+		for (int i = start + from; i + length <= end; i++) {
+			int j = 0;
+			while ((j < length) && (mText[i + j] == query.charAt(j))) {
+				j++;
+			}
+			if (j == length) {
+				return i - start;
+			}
+		}
+		return -1;
+	}
+
+}
@@ -0,0 +1,144 @@
+/*
+*
+* OpenGL ES hardware capability viewer and database
+*
+* Copyright (C) 2011-2018 by Sascha Willems (www.saschawillems.de)
+*
+* This code is free software, you can redistribute it and/or
+* modify it under the terms of the GNU Lesser General Public
+* License version 3 as published by the Free Software Foundation.
+*
+* Please review the following information to ensure the GNU Lesser
+* General Public License version 3 requirements will be met:
+* http://opensource.org/licenses/lgpl-3.0.html
+*
+* The code is distributed WITHOUT ANY WARRANTY; without even the
+* implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+* PURPOSE.  See the GNU LGPL 3.0 for more details.
+*
+*/
+
+package de.saschawillems.glescapsviewer;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+// Multipart upload of a report to the database
+// The report is serialized straight into the connection (chunked transfer encoding), so it is never
+// held in memory as a whole, and all text is sent as UTF-8
+// Compressed uploads send the body deflated with the report dictionary (see ReportCompression), only use them
+// once the server announced support for the dictionary (see UploadPipeline), the report is sent exactly once
+class ReportUpload {
+
+	static final String BOUNDARY = "*****";
+	static final String FILENAME = "glescapsviewerreport.xml";
+
+	// Canonical content hash of the report (see ContentHash), lets the server detect duplicates without parsing
+	static final String CONTENT_HASH_HEADER = "X-Report-Content-Hash";
+
+	// Size of the HTTP chunks and of the buffer in front of the connection
+	private static final int CHUNK_SIZE = 8192;
+
+	// Connect and read timeouts (ms), the read timeout also bounds the wait for the server's response
+	static final int CONNECT_TIMEOUT = 15000;
+	static final int READ_TIMEOUT = 30000;
+
+	private static final String LINE_END = "\r\n";
+	private static final String TWO_HYPHENS = "--";
+
+	private final URL mURL;
+	private final boolean mCompress;
+	private int mConnectTimeout = CONNECT_TIMEOUT;
+	private int mReadTimeout = READ_TIMEOUT;
+	private int mResponseCode = -1;
+	private String mResponseMessage = "";
+	private boolean mConnected = false;
+
+	public ReportUpload(URL url, boolean compress) {
+		mURL = url;
+		mCompress = compress;
+	}
+
+	// Replaces the default timeouts (ms)
+	void setTimeouts(int connectTimeout, int readTimeout) {
+		mConnectTimeout = connectTimeout;
+		mReadTimeout = readTimeout;
+	}
+
+	// Sends the report, returns the HTTP response code
+	public int upload(GLESInfo glesInfo, String submitter) throws IOException {
+		HttpURLConnection conn = (HttpURLConnection) mURL.openConnection();
+		try {
+			conn.setConnectTimeout(mConnectTimeout);
+			conn.setReadTimeout(mReadTimeout);
+			conn.setDoInput(true);
+			conn.setDoOutput(true);
+			conn.setUseCaches(false);
+			conn.setChunkedStreamingMode(CHUNK_SIZE);
+			conn.setRequestMethod("POST");
+			conn.setRequestProperty("Connection", "Keep-Alive");
+			conn.setRequestProperty("ENCTYPE", "multipart/form-data");
+			conn.setRequestProperty("Content-Type", "multipart/form-data;boundary=" + BOUNDARY);
+			conn.setRequestProperty("name", FILENAME);
+			conn.setRequestProperty(CONTENT_HASH_HEADER, glesInfo.contentHash());
+			if (mCompress) {
+				conn.setRequestProperty("Content-Encoding", ReportCompression.CONTENT_ENCODING);
+				conn.setRequestProperty(ReportCompression.DICTIONARY_HEADER, ReportCompression.dictionaryId());
+			}
+			conn.connect();
+			mConnected = true;
+
+			// The deflater buffers on its own, whitespace is left out of compressed reports
+			OutputStream out = mCompress ? ReportCompression.encoder(conn.getOutputStream()) : new BufferedOutputStream(conn.getOutputStream(), CHUNK_SIZE);
+			try {
+				writeBody(out, glesInfo, submitter, mCompress);
+			} finally {
+				out.close();
+			}
+
+			mResponseCode = conn.getResponseCode();
+			final String message = conn.getResponseMessage();
+			mResponseMessage = message != null ? message : "";
+			return mResponseCode;
+		} finally {
+			conn.disconnect();
+		}
+	}
+
+	// Multipart body with the report as the only part
+	static void writeBody(OutputStream out, GLESInfo glesInfo, String submitter, boolean compact) throws IOException {
+		writeText(out, TWO_HYPHENS + BOUNDARY + LINE_END);
+		writeText(out, "Content-Disposition: form-data; name=\"data\";filename=\"" + FILENAME + "\"" + LINE_END);
+		writeText(out, LINE_END);
+		new ReportEncoder(compact).encode(glesInfo, submitter, out);
+		writeText(out, LINE_END);
+		writeText(out, TWO_HYPHENS + BOUNDARY + TWO_HYPHENS + LINE_END);
+	}
+
+	private static void writeText(OutputStream out, String text) throws IOException {
+		out.write(text.getBytes(StandardCharsets.UTF_8));
+	}
+
+	// Whether the connection to the server was established, an upload failing before that never reached the server
+	public boolean isConnected() {
+		return mConnected;
+	}
+
+	// Whether the report is sent compressed
+	public boolean isCompressed() {
+		return mCompress;
+	}
+
+	public int getResponseCode() {
+		return mResponseCode;
+	}
+
+	public String getResponseMessage() {
+		return mResponseMessage;
+	}
+
+}
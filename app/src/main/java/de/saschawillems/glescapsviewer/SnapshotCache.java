@@ -0,0 +1,285 @@
+/*
+*
+* OpenGL ES hardware capability viewer and database
+*
+* Copyright (C) 2011-2018 by Sascha Willems (www.saschawillems.de)
+*
+* This code is free software, you can redistribute it and/or
+* modify it under the terms of the GNU Lesser General Public
+* License version 3 as published by the Free Software Foundation.
+*
+* Please review the following information to ensure the GNU Lesser
+* General Public License version 3 requirements will be met:
+* http://opensource.org/licenses/lgpl-3.0.html
+*
+* The code is distributed WITHOUT ANY WARRANTY; without even the
+* implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+* PURPOSE.  See the GNU LGPL 3.0 for more details.
+*
+*/
+
+package de.saschawillems.glescapsviewer;
+
+import android.os.Build;
+import android.util.Log;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+// Persistent cache of the last captured snapshot in a compact binary format
+// Keyed by the build fingerprint (OS updates), so the UI can be filled from the cache at startup while a fresh
+// capture verifies (and if necessary replaces) it in the background
+// Updatable GPU drivers change the GL renderer/version without a new fingerprint, so a loaded snapshot is for
+// display only, it must not be uploaded before update() compared it with the fresh capture
+class SnapshotCache {
+
+	private static final int MAGIC = 0x474C5343; // "GLSC"
+	private static final int VERSION = 3; // 3 : extension strings in driver order
+
+	private final File mFile;
+
+	// Serialized snapshot as loaded from (or last written to) disk
+	private byte[] mCached;
+
+	public SnapshotCache(File file) {
+		mFile = file;
+	}
+
+	// Signature of the generated cap tables, snapshots of other app versions with a different cap spec are discarded
+	private static int layoutSignature() {
+		int signature = Arrays.hashCode(CapTables.SECTION_OFFSET);
+		signature = signature * 31 + Arrays.hashCode(CapTables.ENUM);
+		signature = signature * 31 + Arrays.hashCode(CapTables.TYPE);
+		signature = signature * 31 + Arrays.hashCode(CapTables.COUNT);
+		return signature;
+	}
+
+	// Returns the cached snapshot (not verified against the current driver), null if there is none for this build
+	// (or it can't be read)
+	public GLESInfo load() {
+		if (!mFile.exists()) {
+			return null;
+		}
+		try {
+			byte[] data = new byte[(int) mFile.length()];
+			DataInputStream in = new DataInputStream(new FileInputStream(mFile));
+			try {
+				in.readFully(data);
+			} finally {
+				in.close();
+			}
+			GLESInfo snapshot = deserialize(data);
+			if (snapshot != null) {
+				mCached = data;
+			}
+			return snapshot;
+		} catch (IOException e) {
+			Log.w("OpenGL ES CapsViewer", "Discarding unreadable snapshot cache", e);
+			mFile.delete();
+			return null;
+		}
+	}
+
+	// Verifies the cache against a fresh capture and replaces it if anything changed, returns true if it did
+	public boolean update(GLESInfo snapshot) {
+		byte[] data;
+		try {
+			data = serialize(snapshot);
+		} catch (IOException e) {
+			e.printStackTrace();
+			return true;
+		}
+		if (mCached != null && Arrays.equals(mCached, data)) {
+			return false;
+		}
+		mCached = data;
+
+		// Write to a temporary file first, so an interrupted write never leaves a truncated cache behind
+		File tempFile = new File(mFile.getPath() + ".tmp");
+		try {
+			FileOutputStream out = new FileOutputStream(tempFile);
+			try {
+				out.write(data);
+				out.getFD().sync();
+			} finally {
+				out.close();
+			}
+			if (!tempFile.renameTo(mFile)) {
+				throw new IOException("Could not replace " + mFile.getPath());
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+			tempFile.delete();
+		}
+		return true;
+	}
+
+	private static void writeString(DataOutputStream out, String s) throws IOException {
+		if (s == null) {
+			out.writeInt(-1);
+			return;
+		}
+		byte[] bytes = s.getBytes("UTF-8");
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, "UTF-8");
+	}
+
+	// Extension string in driver order, parse() restores the set (sorted names if the order is not known)
+	private static String extensionString(ExtensionSet extensions) {
+		return (extensions.source() != null) ? extensions.source() : extensions.toString();
+	}
+
+	private static void writeStringList(DataOutputStream out, List<String> list) throws IOException {
+		out.writeInt(list.size());
+		for (String s : list) {
+			writeString(out, s);
+		}
+	}
+
+	private static void readStringList(DataInputStream in, List<String> list) throws IOException {
+		int count = in.readInt();
+		for (int i = 0; i < count; i++) {
+			list.add(readString(in));
+		}
+	}
+
+	static byte[] serialize(GLESInfo info) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 * 1024);
+		DataOutputStream out = new DataOutputStream(bytes);
+
+		// Header (cache key)
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(layoutSignature());
+		writeString(out, Build.FINGERPRINT);
+		writeString(out, info.mRenderer);
+		writeString(out, info.mVersion);
+
+		// OpenGL ES implementation
+		writeString(out, info.mVendor);
+		writeString(out, extensionString(info.mExtensions));
+		out.writeInt(info.mMajorVersion);
+		out.writeInt(info.mMinorVersion);
+		writeString(out, info.mShadingLanguageVersion);
+		out.writeInt(info.mShadingLanguageMajorVersion);
+		out.writeInt(info.mShadingLanguageMinorVersion);
+		info.mGLES20Caps.write(out);
+		info.mGLES30Caps.write(out);
+		info.mGLES31Caps.write(out);
+		info.mGLES32Caps.write(out);
+		writeStringList(out, info.mGLCompressedFormats);
+		writeStringList(out, info.mGLShaderBinaryFormats);
+		writeStringList(out, info.mGLProgramBinaryFormats);
+
+		// EGL
+		out.writeBoolean(info.mEGLAvailable);
+		writeString(out, info.mEGLVendor);
+		writeString(out, info.mEGLVersion);
+		writeString(out, extensionString(info.mEGLExtensions));
+		writeString(out, info.mEGLClientAPIs);
+		out.writeBoolean(info.mEGLConfigs != null);
+		if (info.mEGLConfigs != null) {
+			info.mEGLConfigs.write(out);
+		}
+
+		// Device
+		writeString(out, info.mDeviceName);
+		writeString(out, info.mDeviceOS);
+		out.writeInt(info.mDeviceCPUCores);
+		out.writeFloat(info.mDeviceCPUSpeed);
+		out.writeInt(info.mDeviceTotalRAM);
+		writeString(out, info.mDeviceCPUArch);
+		out.writeInt(info.mScreenWidth);
+		out.writeInt(info.mScreenHeight);
+		writeStringList(out, info.mDeviceFeatures);
+		out.writeInt(info.mDeviceSensors.size());
+		for (SensorInfo sensor : info.mDeviceSensors) {
+			writeString(out, sensor.mName);
+			out.writeFloat(sensor.mMaxRange);
+			out.writeFloat(sensor.mResolution);
+		}
+
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	// Returns null if the snapshot was taken on another build or with another cap table layout
+	static GLESInfo deserialize(byte[] data) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+
+		if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readInt() != layoutSignature()) {
+			return null;
+		}
+		String fingerprint = readString(in);
+		if (fingerprint == null || !fingerprint.equals(Build.FINGERPRINT)) {
+			return null;
+		}
+
+		GLESInfo info = new GLESInfo();
+		info.mRenderer = readString(in);
+		info.mVersion = readString(in);
+
+		info.mVendor = readString(in);
+		info.mExtensions = ExtensionSet.parse(readString(in));
+		info.mMajorVersion = in.readInt();
+		info.mMinorVersion = in.readInt();
+		info.mShadingLanguageVersion = readString(in);
+		info.mShadingLanguageMajorVersion = in.readInt();
+		info.mShadingLanguageMinorVersion = in.readInt();
+		info.mGLES20Caps.read(in);
+		info.mGLES30Caps.read(in);
+		info.mGLES31Caps.read(in);
+		info.mGLES32Caps.read(in);
+		readStringList(in, info.mGLCompressedFormats);
+		readStringList(in, info.mGLShaderBinaryFormats);
+		readStringList(in, info.mGLProgramBinaryFormats);
+
+		info.mEGLAvailable = in.readBoolean();
+		info.mEGLVendor = readString(in);
+		info.mEGLVersion = readString(in);
+		info.mEGLExtensions = ExtensionSet.parse(readString(in));
+		info.mEGLClientAPIs = readString(in);
+		if (in.readBoolean()) {
+			info.mEGLConfigs = EGLConfigTable.read(in);
+		}
+
+		info.mDeviceName = readString(in);
+		info.mDeviceOS = readString(in);
+		info.mDeviceCPUCores = in.readInt();
+		info.mDeviceCPUSpeed = in.readFloat();
+		info.mDeviceTotalRAM = in.readInt();
+		info.mDeviceCPUArch = readString(in);
+		info.mScreenWidth = in.readInt();
+		info.mScreenHeight = in.readInt();
+		readStringList(in, info.mDeviceFeatures);
+		int sensorCount = in.readInt();
+		for (int i = 0; i < sensorCount; i++) {
+			SensorInfo sensor = new SensorInfo();
+			sensor.mName = readString(in);
+			sensor.mMaxRange = in.readFloat();
+			sensor.mResolution = in.readFloat();
+			info.mDeviceSensors.add(sensor);
+		}
+
+		return info;
+	}
+
+}
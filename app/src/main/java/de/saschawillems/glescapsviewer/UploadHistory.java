@@ -0,0 +1,100 @@
+/*
+*
+* OpenGL ES hardware capability viewer and database
+*
+* Copyright (C) 2011-2018 by Sascha Willems (www.saschawillems.de)
+*
+* This code is free software, you can redistribute it and/or
+* modify it under the terms of the GNU Lesser General Public
+* License version 3 as published by the Free Software Foundation.
+*
+* Please review the following information to ensure the GNU Lesser
+* General Public License version 3 requirements will be met:
+* http://opensource.org/licenses/lgpl-3.0.html
+*
+* The code is distributed WITHOUT ANY WARRANTY; without even the
+* implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+* PURPOSE.  See the GNU LGPL 3.0 for more details.
+*
+*/
+
+package de.saschawillems.glescapsviewer;
+
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+
+// Content hashes (see ContentHash) of all reports uploaded from this device, one per line in an append-only file
+// Lets the client reject repeated uploads of the same report without asking the server (works offline)
+// The file is read on first use, so the history should only be used off the main thread (see UploadPipeline)
+class UploadHistory {
+
+	private static final int HASH_LENGTH = 16;
+
+	private final File mFile;
+	private final HashSet<String> mHashes = new HashSet<String>();
+	private boolean mLoaded = false;
+
+	public UploadHistory(File file) {
+		mFile = file;
+	}
+
+	// Lines that are not a complete hash (e.g. an interrupted append) are skipped
+	private void load() {
+		if (mLoaded) {
+			return;
+		}
+		mLoaded = true;
+		if (!mFile.exists()) {
+			return;
+		}
+		try {
+			BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(mFile), StandardCharsets.US_ASCII));
+			try {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					if (line.length() == HASH_LENGTH) {
+						mHashes.add(line);
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		} catch (IOException e) {
+			Log.w("OpenGL ES CapsViewer", "Could not read upload history", e);
+		}
+	}
+
+	public synchronized boolean contains(String hash) {
+		load();
+		return mHashes.contains(hash);
+	}
+
+	// Remembers an uploaded report, returns false if it was already known
+	// Every hash starts a new line, so the next append doesn't continue the partial line of an interrupted one
+	public synchronized boolean add(String hash) {
+		load();
+		if (!mHashes.add(hash)) {
+			return false;
+		}
+		try {
+			FileOutputStream out = new FileOutputStream(mFile, true);
+			try {
+				out.write(("\n" + hash).getBytes(StandardCharsets.US_ASCII));
+			} finally {
+				out.close();
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		return true;
+	}
+
+}
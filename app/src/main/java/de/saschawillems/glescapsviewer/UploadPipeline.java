@@ -0,0 +1,368 @@
+/*
+*
+* OpenGL ES hardware capability viewer and database
+*
+* Copyright (C) 2011-2018 by Sascha Willems (www.saschawillems.de)
+*
+* This code is free software, you can redistribute it and/or
+* modify it under the terms of the GNU Lesser General Public
+* License version 3 as published by the Free Software Foundation.
+*
+* Please review the following information to ensure the GNU Lesser
+* General Public License version 3 requirements will be met:
+* http://opensource.org/licenses/lgpl-3.0.html
+*
+* The code is distributed WITHOUT ANY WARRANTY; without even the
+* implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+* PURPOSE.  See the GNU LGPL 3.0 for more details.
+*
+*/
+
+package de.saschawillems.glescapsviewer;
+
+import android.os.Handler;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+
+// Runs the network side of uploading a report (duplicate check, upload) on a dedicated thread
+// Results are posted to the handler (the main thread), after cancel() no more results are delivered
+// cancel() aborts report checks, but lets an accepted upload run to its end (or into the queue), so a report
+// confirmed by the user is not lost when the activity goes away (e.g. on rotation)
+// The duplicate check is a GET and is retried with exponential backoff, the upload is a POST and is sent
+// only once (a retried upload could be stored twice)
+// Reports that can't be uploaded because the server can't be reached (offline, no DNS, connection refused) go to
+// the upload queue, drain() uploads them once the device is online. Failures after the connection was established
+// are reported instead, the server may have stored the report already
+// Compression is negotiated with the duplicate check: uploads are only compressed once the check response of this
+// pipeline echoed the report dictionary id (see ReportCompression)
+class UploadPipeline {
+
+	// Attempts of idempotent requests and the delay before the first retry (ms), doubled with every retry
+	static final int MAX_ATTEMPTS = 4;
+	static final long RETRY_DELAY = 500;
+
+	public interface Listener {
+		// The report is in the upload history of this device, the server was not asked
+		void alreadyUploaded();
+
+		// Report page of a matching report, null if there is none (or the check failed)
+		void reportChecked(String reportURL);
+
+		void uploadFinished(int responseCode, String responseMessage);
+
+		void uploadFailed(IOException e);
+
+		// The report could not be uploaded and was queued for a later upload
+		void uploadQueued(int queueSize);
+
+		void queueDrained(int uploaded, int remaining);
+	}
+
+	private final String mBaseURL;
+	private final boolean mCompress;
+	private volatile boolean mServerDecompresses = false;
+	private final Executor mResults;
+	private final ExecutorService mExecutor;
+	private final File mQueueFile;
+	private final UploadHistory mHistory;
+	private int mConnectTimeout = ReportUpload.CONNECT_TIMEOUT;
+	private int mReadTimeout = ReportUpload.READ_TIMEOUT;
+
+	private volatile boolean mCancelled = false;
+	private volatile HttpURLConnection mCheckConnection;
+
+	public UploadPipeline(String baseURL, boolean compress, final Handler handler, File queueFile, UploadHistory history) {
+		this(baseURL, compress, new Executor() {
+			@Override
+			public void execute(Runnable result) {
+				handler.post(result);
+			}
+		}, queueFile, history);
+	}
+
+	// Results are run by the given executor instead of a handler (JVM tests)
+	UploadPipeline(String baseURL, boolean compress, Executor results, File queueFile, UploadHistory history) {
+		mBaseURL = baseURL;
+		mCompress = compress;
+		mResults = results;
+		mQueueFile = queueFile;
+		mHistory = history;
+		mExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "ReportUpload");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	// Replaces the default timeouts (ms) of all requests
+	void setTimeouts(int connectTimeout, int readTimeout) {
+		mConnectTimeout = connectTimeout;
+		mReadTimeout = readTimeout;
+	}
+
+	// Asks the server for a report of this device and driver, unless the report is in the upload history
+	public void checkReportPresent(final String description, final String contentHash, final Listener listener) {
+		execute(new Runnable() {
+			@Override
+			public void run() {
+				if (mCancelled) {
+					return;
+				}
+				if (mHistory.contains(contentHash)) {
+					deliver(new Runnable() {
+						@Override
+						public void run() {
+							listener.alreadyUploaded();
+						}
+					});
+					return;
+				}
+				String reportURL = null;
+				try {
+					reportURL = check(description, contentHash);
+				} catch (IOException e) {
+					// An unreachable check doesn't block the upload, the server rejects duplicates as well
+					Log.w("OpenGL ES CapsViewer", "Report check failed", e);
+				} catch (InterruptedException e) {
+					return;
+				}
+				final String result = reportURL;
+				deliver(new Runnable() {
+					@Override
+					public void run() {
+						listener.reportChecked(result);
+					}
+				});
+			}
+		});
+	}
+
+	// Also runs (and is queued on failure) if the pipeline is cancelled in the meantime, only the result is dropped
+	public void upload(final GLESInfo glesInfo, final String submitter, final Listener listener) {
+		execute(new Runnable() {
+			@Override
+			public void run() {
+				final ReportUpload upload;
+				try {
+					upload = newUpload();
+				} catch (final IOException e) {
+					failed(e, listener);
+					return;
+				}
+				try {
+					send(upload, glesInfo, submitter);
+					deliver(new Runnable() {
+						@Override
+						public void run() {
+							listener.uploadFinished(upload.getResponseCode(), upload.getResponseMessage());
+						}
+					});
+				} catch (final IOException e) {
+					if (upload.isConnected()) {
+						failed(e, listener);
+					} else {
+						enqueue(glesInfo, submitter, e, listener);
+					}
+				}
+			}
+		});
+	}
+
+	private void enqueue(GLESInfo glesInfo, String submitter, final IOException uploadError, final Listener listener) {
+		try {
+			final UploadQueue queue = UploadQueue.get(mQueueFile);
+			queue.add(glesInfo, submitter);
+			final int queueSize = queue.size();
+			deliver(new Runnable() {
+				@Override
+				public void run() {
+					listener.uploadQueued(queueSize);
+				}
+			});
+		} catch (IOException e) {
+			Log.w("OpenGL ES CapsViewer", "Could not queue report", e);
+			failed(uploadError, listener);
+		}
+	}
+
+	private void failed(final IOException e, final Listener listener) {
+		deliver(new Runnable() {
+			@Override
+			public void run() {
+				listener.uploadFailed(e);
+			}
+		});
+	}
+
+	// Uploads the queued reports in queue order, stops at the first network or server error (retried with the next drain)
+	// Reports the server rejects (4xx) are dropped, they would block the queue forever
+	// Reports in the upload history are dropped without sending them again (e.g. an upload that failed after
+	// reaching the server, but was stored by a later drain or a manual upload)
+	// Reports that can't be read stay queued (e.g. for a later version that can read them) until they are evicted
+	// cancel() stops the drain after the report being uploaded
+	public void drain(final Listener listener) {
+		execute(new Runnable() {
+			@Override
+			public void run() {
+				int uploaded = 0;
+				int remaining = 0;
+				try {
+					final UploadQueue queue = UploadQueue.get(mQueueFile);
+					UploadQueue.Entry entry;
+					// Last report kept in the queue because it could not be read, the drain continues behind it
+					UploadQueue.Entry kept = null;
+					while (!mCancelled && (entry = queue.next(kept)) != null) {
+						if (mHistory.contains(entry.mContentHash)) {
+							queue.remove(entry);
+							continue;
+						}
+						BinaryReport report;
+						try {
+							report = queue.read(entry);
+						} catch (IOException e) {
+							Log.w("OpenGL ES CapsViewer", "Skipping unreadable queued report " + entry.mContentHash, e);
+							kept = entry;
+							continue;
+						}
+						final ReportUpload upload = newUpload();
+						send(upload, report.getInfo(), report.getSubmitter());
+						final int responseCode = upload.getResponseCode();
+						if (responseCode >= 500) {
+							break;
+						}
+						if (responseCode >= 400) {
+							Log.w("OpenGL ES CapsViewer", "Queued report rejected: " + responseCode + " " + upload.getResponseMessage());
+						} else {
+							uploaded++;
+						}
+						queue.remove(entry);
+					}
+					remaining = queue.size();
+				} catch (IOException e) {
+					Log.w("OpenGL ES CapsViewer", "Draining the upload queue failed", e);
+					return;
+				}
+				final int uploadedCount = uploaded;
+				final int remainingCount = remaining;
+				deliver(new Runnable() {
+					@Override
+					public void run() {
+						listener.queueDrained(uploadedCount, remainingCount);
+					}
+				});
+			}
+		});
+	}
+
+	private ReportUpload newUpload() throws IOException {
+		final ReportUpload upload = new ReportUpload(new URL(mBaseURL + "/gles_uploadreport.php"), mCompress && mServerDecompresses);
+		upload.setTimeouts(mConnectTimeout, mReadTimeout);
+		return upload;
+	}
+
+	// Uploads a report and records it in the upload history if the server stored it
+	private void send(ReportUpload upload, GLESInfo glesInfo, String submitter) throws IOException {
+		upload.upload(glesInfo, submitter);
+		final String responseMessage = upload.getResponseMessage();
+		if (responseMessage.contains("res_uploaded") || responseMessage.contains("res_duplicate")) {
+			mHistory.add(glesInfo.contentHash());
+		}
+	}
+
+	// Aborts the running report check and drops all results, the pipeline can't be used afterwards
+	// Uploads already handed to the pipeline still run (see upload()), drain() stops after the current report
+	public void cancel() {
+		mCancelled = true;
+		mExecutor.shutdown();
+		HttpURLConnection conn = mCheckConnection;
+		if (conn != null) {
+			conn.disconnect();
+		}
+	}
+
+	private void execute(Runnable task) {
+		try {
+			mExecutor.execute(task);
+		} catch (RejectedExecutionException e) {
+			// Cancelled
+		}
+	}
+
+	private void deliver(final Runnable result) {
+		if (mCancelled) {
+			return;
+		}
+		mResults.execute(new Runnable() {
+			@Override
+			public void run() {
+				if (!mCancelled) {
+					result.run();
+				}
+			}
+		});
+	}
+
+	// Retries on I/O errors and server errors (5xx), throws the last error once all attempts failed
+	private String check(String description, String contentHash) throws IOException, InterruptedException {
+		URL url = new URL(mBaseURL + "/gles_checkreport.php?description=" + URLEncoder.encode(description, "utf-8") + "&contenthash=" + contentHash);
+		long delay = RETRY_DELAY;
+		for (int attempt = 1; ; attempt++) {
+			try {
+				return checkOnce(url);
+			} catch (IOException e) {
+				if (mCancelled || attempt == MAX_ATTEMPTS) {
+					throw e;
+				}
+				Log.w("OpenGL ES CapsViewer", "Report check attempt " + attempt + " failed, retrying in " + delay + " ms", e);
+			}
+			Thread.sleep(delay);
+			delay *= 2;
+		}
+	}
+
+	private String checkOnce(URL url) throws IOException {
+		HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+		mCheckConnection = conn;
+		try {
+			if (mCancelled) {
+				throw new IOException("Report check cancelled");
+			}
+			conn.setConnectTimeout(mConnectTimeout);
+			conn.setReadTimeout(mReadTimeout);
+			if (mCompress) {
+				conn.setRequestProperty(ReportCompression.DICTIONARY_HEADER, ReportCompression.dictionaryId());
+			}
+			final int responseCode = conn.getResponseCode();
+			if (responseCode >= 500) {
+				throw new IOException("Server error " + responseCode);
+			}
+			mServerDecompresses = mCompress && ReportCompression.dictionaryId().equals(conn.getHeaderField(ReportCompression.DICTIONARY_HEADER));
+			final String responseMessage = conn.getResponseMessage();
+			if (responseMessage == null) {
+				return null;
+			}
+			String[] responsePart = responseMessage.split(" ");
+			if (responsePart[0].equals("report_present") && responsePart.length > 1) {
+				return mBaseURL + "/gles_generatereport.php?reportID=" + responsePart[1];
+			}
+			return null;
+		} finally {
+			mCheckConnection = null;
+			conn.disconnect();
+		}
+	}
+
+}
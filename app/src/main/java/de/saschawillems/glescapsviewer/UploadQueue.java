@@ -0,0 +1,340 @@
+/*
+*
+* OpenGL ES hardware capability viewer and database
+*
+* Copyright (C) 2011-2018 by Sascha Willems (www.saschawillems.de)
+*
+* This code is free software, you can redistribute it and/or
+* modify it under the terms of the GNU Lesser General Public
+* License version 3 as published by the Free Software Foundation.
+*
+* Please review the following information to ensure the GNU Lesser
+* General Public License version 3 requirements will be met:
+* http://opensource.org/licenses/lgpl-3.0.html
+*
+* The code is distributed WITHOUT ANY WARRANTY; without even the
+* implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+* PURPOSE.  See the GNU LGPL 3.0 for more details.
+*
+*/
+
+package de.saschawillems.glescapsviewer;
+
+import android.util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.zip.CRC32;
+
+// Persistent queue of reports waiting for upload, kept in an append-only journal file
+// Records: type (byte), payload length (int), sequence number (long), payload, CRC-32 of all of these
+// Queued reports are stored as binary reports (see BinaryReport) with their content hash, uploaded (or evicted)
+// reports are marked by an ack record with their sequence number, so the journal is only ever appended to
+// Extension names are stored inline instead of as dictionary ids, so queued reports stay readable after an app
+// update changed the extension dictionary
+// A record torn by process death fails its CRC and is cut off with everything behind it when the journal is
+// opened again. Only the position of pending reports is kept in memory, payloads are read one at a time
+// The queue is bounded (MAX_BYTES, MAX_REPORTS), the oldest reports are evicted first. Once most of the journal
+// consists of acknowledged records it is compacted into a new file that replaces the old one
+class UploadQueue {
+
+	private static final int MAGIC = 0x474C5551; // "GLUQ"
+	private static final int VERSION = 1;
+	private static final int FILE_HEADER_SIZE = 8;
+
+	private static final byte RECORD_REPORT = 1;
+	private static final byte RECORD_ACK = 2;
+	private static final int RECORD_HEADER_SIZE = 1 + 4 + 8;
+	private static final int RECORD_OVERHEAD = RECORD_HEADER_SIZE + 4;
+
+	// Bounds of the pending reports (a binary report is a few kB)
+	static final long MAX_BYTES = 16 * 1024 * 1024;
+	static final int MAX_REPORTS = 4096;
+	private static final int MAX_RECORD_SIZE = 4 * 1024 * 1024;
+
+	// Compaction starts once acknowledged records take up more than this and more than half of the journal
+	private static final long COMPACT_THRESHOLD = 256 * 1024;
+
+	// Position of a pending report in the journal
+	static class Entry {
+		final long mSeq;
+		final long mOffset;
+		final int mLength;
+		final String mContentHash;
+
+		Entry(long seq, long offset, int length, String contentHash) {
+			mSeq = seq;
+			mOffset = offset;
+			mLength = length;
+			mContentHash = contentHash;
+		}
+	}
+
+	// One queue per journal and process, shared by the pipelines of all activity instances
+	private static UploadQueue sQueue;
+
+	private final File mFile;
+	private RandomAccessFile mJournal;
+
+	// Pending reports in queue order
+	private final LinkedHashMap<Long, Entry> mPending = new LinkedHashMap<Long, Entry>();
+	private long mPendingBytes = 0;
+	private long mNextSeq = 1;
+
+	private final CRC32 mCRC = new CRC32();
+
+	UploadQueue(File file) throws IOException {
+		mFile = file;
+		open();
+	}
+
+	// Opens the journal on first use (scans it, so not on the main thread)
+	public static synchronized UploadQueue get(File file) throws IOException {
+		if (sQueue == null || !sQueue.mFile.equals(file)) {
+			sQueue = new UploadQueue(file);
+		}
+		return sQueue;
+	}
+
+	// Scans the journal, rebuilds the pending index and cuts off a torn tail
+	private void open() throws IOException {
+		mJournal = new RandomAccessFile(mFile, "rw");
+		if (mJournal.length() < FILE_HEADER_SIZE || mJournal.readInt() != MAGIC || mJournal.readInt() != VERSION) {
+			reset();
+			return;
+		}
+		final long length = mJournal.length();
+		long offset = FILE_HEADER_SIZE;
+		byte[] header = new byte[RECORD_HEADER_SIZE];
+		byte[] payload = new byte[256];
+		while (offset + RECORD_OVERHEAD <= length) {
+			mJournal.seek(offset);
+			mJournal.readFully(header);
+			final byte type = header[0];
+			final int payloadLength = readInt(header, 1);
+			final long seq = readLong(header, 5);
+			if (payloadLength < 0 || payloadLength > MAX_RECORD_SIZE || offset + RECORD_OVERHEAD + payloadLength > length) {
+				break;
+			}
+			if (payload.length < payloadLength) {
+				payload = new byte[Math.max(payloadLength, payload.length * 2)];
+			}
+			mJournal.readFully(payload, 0, payloadLength);
+			if (mJournal.readInt() != crc(header, payload, payloadLength)) {
+				break;
+			}
+			if (type == RECORD_REPORT) {
+				final int hashLength = payload[0] & 0xFF;
+				addPending(new Entry(seq, offset, payloadLength, new String(payload, 1, hashLength, StandardCharsets.US_ASCII)));
+			} else if (type == RECORD_ACK) {
+				removePending(seq);
+			} else {
+				break;
+			}
+			mNextSeq = Math.max(mNextSeq, seq + 1);
+			offset += RECORD_OVERHEAD + payloadLength;
+		}
+		if (offset < length) {
+			Log.w("OpenGL ES CapsViewer", "Upload queue: dropping " + (length - offset) + " bytes of torn or corrupt journal");
+			mJournal.setLength(offset);
+			mJournal.getFD().sync();
+		}
+		mJournal.seek(offset);
+	}
+
+	private void reset() throws IOException {
+		mJournal.setLength(0);
+		mJournal.writeInt(MAGIC);
+		mJournal.writeInt(VERSION);
+		mJournal.getFD().sync();
+		mPending.clear();
+		mPendingBytes = 0;
+	}
+
+	private static int readInt(byte[] b, int offset) {
+		return ((b[offset] & 0xFF) << 24) | ((b[offset + 1] & 0xFF) << 16) | ((b[offset + 2] & 0xFF) << 8) | (b[offset + 3] & 0xFF);
+	}
+
+	private static long readLong(byte[] b, int offset) {
+		return ((long) readInt(b, offset) << 32) | (readInt(b, offset + 4) & 0xFFFFFFFFL);
+	}
+
+	private int crc(byte[] header, byte[] payload, int payloadLength) {
+		mCRC.reset();
+		mCRC.update(header, 0, RECORD_HEADER_SIZE);
+		mCRC.update(payload, 0, payloadLength);
+		return (int) mCRC.getValue();
+	}
+
+	private void addPending(Entry entry) {
+		mPending.put(entry.mSeq, entry);
+		mPendingBytes += entry.mLength;
+	}
+
+	private Entry removePending(long seq) {
+		Entry entry = mPending.remove(seq);
+		if (entry != null) {
+			mPendingBytes -= entry.mLength;
+		}
+		return entry;
+	}
+
+	// Appends one record with a single write, report records are synced to disk before add() returns
+	private long append(byte type, long seq, byte[] payload, int payloadLength, boolean sync) throws IOException {
+		byte[] record = new byte[RECORD_OVERHEAD + payloadLength];
+		record[0] = type;
+		writeInt(record, 1, payloadLength);
+		writeInt(record, 5, (int) (seq >>> 32));
+		writeInt(record, 9, (int) seq);
+		System.arraycopy(payload, 0, record, RECORD_HEADER_SIZE, payloadLength);
+		mCRC.reset();
+		mCRC.update(record, 0, RECORD_HEADER_SIZE + payloadLength);
+		writeInt(record, RECORD_HEADER_SIZE + payloadLength, (int) mCRC.getValue());
+
+		final long offset = mJournal.length();
+		mJournal.seek(offset);
+		mJournal.write(record);
+		if (sync) {
+			mJournal.getFD().sync();
+		}
+		return offset;
+	}
+
+	private static void writeInt(byte[] b, int offset, int value) {
+		b[offset] = (byte) (value >>> 24);
+		b[offset + 1] = (byte) (value >>> 16);
+		b[offset + 2] = (byte) (value >>> 8);
+		b[offset + 3] = (byte) value;
+	}
+
+	// Queues a report, returns false if a report with the same content is already queued
+	public synchronized boolean add(GLESInfo glesInfo, String submitter) throws IOException {
+		final String contentHash = glesInfo.contentHash();
+		for (Entry entry : mPending.values()) {
+			if (entry.mContentHash.equals(contentHash)) {
+				return false;
+			}
+		}
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(8 * 1024);
+		DataOutputStream out = new DataOutputStream(bytes);
+		final byte[] hash = contentHash.getBytes(StandardCharsets.US_ASCII);
+		out.writeByte(hash.length);
+		out.write(hash);
+		out.write(BinaryReport.write(glesInfo, submitter, 0));
+		out.flush();
+		final int payloadLength = bytes.size();
+		if (payloadLength > MAX_RECORD_SIZE) {
+			throw new IOException("Report too large for the upload queue");
+		}
+
+		// Backpressure: make room by evicting the oldest reports
+		while (!mPending.isEmpty() && (mPending.size() >= MAX_REPORTS || mPendingBytes + payloadLength > MAX_BYTES)) {
+			final Entry oldest = mPending.values().iterator().next();
+			Log.w("OpenGL ES CapsViewer", "Upload queue full, evicting report " + oldest.mContentHash);
+			ack(oldest);
+		}
+
+		final long seq = mNextSeq++;
+		final long offset = append(RECORD_REPORT, seq, bytes.toByteArray(), payloadLength, true);
+		addPending(new Entry(seq, offset, payloadLength, contentHash));
+		return true;
+	}
+
+	public synchronized int size() {
+		return mPending.size();
+	}
+
+	public synchronized boolean isEmpty() {
+		return mPending.isEmpty();
+	}
+
+	// Oldest pending report, null if the queue is empty
+	public synchronized Entry peek() {
+		Iterator<Entry> it = mPending.values().iterator();
+		return it.hasNext() ? it.next() : null;
+	}
+
+	// Pending report queued after the given one (the oldest for null), null if there is none
+	// Lets a drain step over reports it keeps queued, the scan only passes the reports before the given one
+	public synchronized Entry next(Entry previous) {
+		Iterator<Entry> it = mPending.values().iterator();
+		if (previous != null) {
+			while (it.hasNext()) {
+				if (it.next().mSeq == previous.mSeq) {
+					break;
+				}
+			}
+		}
+		return it.hasNext() ? it.next() : null;
+	}
+
+	// Reads a pending report from the journal
+	public synchronized BinaryReport read(Entry entry) throws IOException {
+		byte[] payload = new byte[entry.mLength];
+		mJournal.seek(entry.mOffset + RECORD_HEADER_SIZE);
+		mJournal.readFully(payload);
+		final int hashLength = payload[0] & 0xFF;
+		return BinaryReport.read(payload, 1 + hashLength, payload.length - 1 - hashLength, BinaryReport.ALL_SECTIONS);
+	}
+
+	// Removes an uploaded (or undeliverable) report, compacts the journal if it is mostly acknowledged records
+	public synchronized void remove(Entry entry) throws IOException {
+		ack(entry);
+		final long journalBytes = mJournal.length() - FILE_HEADER_SIZE;
+		final long liveBytes = mPendingBytes + (long) mPending.size() * RECORD_OVERHEAD;
+		if (journalBytes - liveBytes > COMPACT_THRESHOLD && journalBytes - liveBytes > liveBytes) {
+			compact();
+		}
+	}
+
+	private void ack(Entry entry) throws IOException {
+		if (removePending(entry.mSeq) == null) {
+			return;
+		}
+		byte[] payload = new byte[0];
+		// Acks are not synced, a lost ack only means the report is uploaded again (the server detects duplicates)
+		append(RECORD_ACK, entry.mSeq, payload, 0, false);
+	}
+
+	// Copies the pending records into a new journal and swaps it in, a crash before the rename keeps the old journal
+	private void compact() throws IOException {
+		File tempFile = new File(mFile.getPath() + ".tmp");
+		RandomAccessFile compacted = new RandomAccessFile(tempFile, "rw");
+		LinkedHashMap<Long, Entry> moved = new LinkedHashMap<Long, Entry>();
+		try {
+			compacted.setLength(0);
+			compacted.writeInt(MAGIC);
+			compacted.writeInt(VERSION);
+			byte[] record = new byte[0];
+			for (Entry entry : mPending.values()) {
+				final int recordLength = RECORD_OVERHEAD + entry.mLength;
+				if (record.length < recordLength) {
+					record = new byte[Math.max(recordLength, record.length * 2)];
+				}
+				mJournal.seek(entry.mOffset);
+				mJournal.readFully(record, 0, recordLength);
+				moved.put(entry.mSeq, new Entry(entry.mSeq, compacted.getFilePointer(), entry.mLength, entry.mContentHash));
+				compacted.write(record, 0, recordLength);
+			}
+			compacted.getFD().sync();
+		} finally {
+			compacted.close();
+		}
+		if (!tempFile.renameTo(mFile)) {
+			tempFile.delete();
+			throw new IOException("Could not replace " + mFile.getPath());
+		}
+		mJournal.close();
+		mJournal = new RandomAccessFile(mFile, "rw");
+		mPending.clear();
+		mPending.putAll(moved);
+	}
+
+}
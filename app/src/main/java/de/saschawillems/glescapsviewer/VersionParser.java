@@ -0,0 +1,144 @@
+/*
+*
+* OpenGL ES hardware capability viewer and database
+*
+* Copyright (C) 2011-2018 by Sascha Willems (www.saschawillems.de)
+*
+* This code is free software, you can redistribute it and/or
+* modify it under the terms of the GNU Lesser General Public
+* License version 3 as published by the Free Software Foundation.
+*
+* Please review the following information to ensure the GNU Lesser
+* General Public License version 3 requirements will be met:
+* http://opensource.org/licenses/lgpl-3.0.html
+*
+* The code is distributed WITHOUT ANY WARRANTY; without even the
+* implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+* PURPOSE.  See the GNU LGPL 3.0 for more details.
+*
+*/
+
+package de.saschawillems.glescapsviewer;
+
+// Allocation-free tokenizer for GL_VERSION and GL_SHADING_LANGUAGE_VERSION strings, e.g.
+//   "OpenGL ES 3.2 V@415.0 (GIT@I3c1b04a3de, Ia07f6f4ed8) (Date:05/21/19)"
+//   "OpenGL ES 3.2 v1.r26p0-01rel0.526d936ea9da20486773a9aaceecd920"
+//   "OpenGL ES GLSL ES 3.20"
+//   "OpenGL ES 3 V@..." (no minor version)
+// The first purely numeric token is the major version, minor and patch follow separated by '.'
+// Results are packed into a single long, see the accessors below
+final class VersionParser {
+
+	public static final long NOT_FOUND = -1L;
+
+	// Version numbers saturate at 12 bits, suffix offsets at 13 bits
+	private static final int NUMBER_BITS = 12;
+	private static final int NUMBER_MAX = (1 << NUMBER_BITS) - 1;
+	private static final int OFFSET_BITS = 13;
+	private static final int OFFSET_MAX = (1 << OFFSET_BITS) - 1;
+
+	private static final int MINOR_SHIFT = NUMBER_BITS;
+	private static final int PATCH_SHIFT = NUMBER_BITS * 2;
+	private static final int SUFFIX_START_SHIFT = NUMBER_BITS * 3;
+	private static final int SUFFIX_END_SHIFT = NUMBER_BITS * 3 + OFFSET_BITS;
+
+	private VersionParser() {
+	}
+
+	public static long parse(CharSequence s) {
+		return (s != null) ? parse(s, 0, s.length()) : NOT_FOUND;
+	}
+
+	// Parses s[start, end), suffix offsets are relative to s
+	public static long parse(CharSequence s, int start, int end) {
+		int i = start;
+
+		// Major version is the first token made up of digits only (tokens are separated by anything but [A-Za-z0-9_'])
+		int major = -1;
+		while (i < end) {
+			if (!isTokenChar(s.charAt(i))) {
+				i++;
+				continue;
+			}
+			int value = 0;
+			boolean numeric = true;
+			while (i < end && isTokenChar(s.charAt(i))) {
+				final char c = s.charAt(i++);
+				if (isDigit(c)) {
+					value = Math.min(value * 10 + (c - '0'), NUMBER_MAX);
+				} else {
+					numeric = false;
+				}
+			}
+			if (numeric) {
+				major = value;
+				break;
+			}
+		}
+		if (major < 0) {
+			return NOT_FOUND;
+		}
+
+		int minor = 0;
+		int patch = 0;
+		if (i + 1 < end && s.charAt(i) == '.' && isDigit(s.charAt(i + 1))) {
+			for (i++; i < end && isDigit(s.charAt(i)); i++) {
+				minor = Math.min(minor * 10 + (s.charAt(i) - '0'), NUMBER_MAX);
+			}
+			if (i + 1 < end && s.charAt(i) == '.' && isDigit(s.charAt(i + 1))) {
+				for (i++; i < end && isDigit(s.charAt(i)); i++) {
+					patch = Math.min(patch * 10 + (s.charAt(i) - '0'), NUMBER_MAX);
+				}
+			}
+		}
+
+		// Vendor suffix is the remainder of the string without surrounding whitespace
+		while (i < end && s.charAt(i) <= ' ') {
+			i++;
+		}
+		int suffixEnd = end;
+		while (suffixEnd > i && s.charAt(suffixEnd - 1) <= ' ') {
+			suffixEnd--;
+		}
+
+		return major
+			| ((long) minor << MINOR_SHIFT)
+			| ((long) patch << PATCH_SHIFT)
+			| ((long) Math.min(i, OFFSET_MAX) << SUFFIX_START_SHIFT)
+			| ((long) Math.min(suffixEnd, OFFSET_MAX) << SUFFIX_END_SHIFT);
+	}
+
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+
+	private static boolean isTokenChar(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || isDigit(c) || c == '_' || c == '\'';
+	}
+
+	public static boolean isValid(long version) {
+		return version != NOT_FOUND;
+	}
+
+	public static int major(long version) {
+		return (int) version & NUMBER_MAX;
+	}
+
+	public static int minor(long version) {
+		return (int) (version >>> MINOR_SHIFT) & NUMBER_MAX;
+	}
+
+	public static int patch(long version) {
+		return (int) (version >>> PATCH_SHIFT) & NUMBER_MAX;
+	}
+
+	// Start offset of the vendor specific part following the version number
+	public static int suffixStart(long version) {
+		return (int) (version >>> SUFFIX_START_SHIFT) & OFFSET_MAX;
+	}
+
+	public static int suffixEnd(long version) {
+		return (int) (version >>> SUFFIX_END_SHIFT) & OFFSET_MAX;
+	}
+
+}
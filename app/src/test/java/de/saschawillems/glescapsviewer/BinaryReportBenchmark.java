@@ -0,0 +1,52 @@
+/*
+*
+* OpenGL ES hardware capability viewer and database
+*
+* Copyright (C) 2011-2018 by Sascha Willems (www.saschawillems.de)
+*
+* This code is free software, you can redistribute it and/or
+* modify it under the terms of the GNU Lesser General Public
+* License version 3 as published by the Free Software Foundation.
+*
+* Please review the following information to ensure the GNU Lesser
+* General Public License version 3 requirements will be met:
+* http://opensource.org/licenses/lgpl-3.0.html
+*
+* The code is distributed WITHOUT ANY WARRANTY; without even the
+* implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+* PURPOSE.  See the GNU LGPL 3.0 for more details.
+*
+*/
+
+package de.saschawillems.glescapsviewer;
+
+// Decode time of the report fixture as binary report and as XML (target: 10x faster to decode)
+// Not part of the unit tests (timings depend on the machine), run its main() by hand
+public class BinaryReportBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		final int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+		final byte[] xml = BinaryReportTest.readBytes(ReplayCaptureTest.REPORT);
+		final byte[] binary = BinaryReport.write(BinaryReportTest.readXML(xml), "fixture");
+
+		long checksum = 0;
+		long xmlTime = Long.MAX_VALUE;
+		long binaryTime = Long.MAX_VALUE;
+		for (int run = 0; run < 10; run++) {
+			long start = System.nanoTime();
+			for (int i = 0; i < rounds; i++) {
+				checksum += BinaryReportTest.readXML(xml).mExtensions.size();
+			}
+			xmlTime = Math.min(xmlTime, System.nanoTime() - start);
+
+			start = System.nanoTime();
+			for (int i = 0; i < rounds; i++) {
+				checksum += BinaryReport.read(binary, 0, binary.length, BinaryReport.ALL_SECTIONS).getInfo().mExtensions.size();
+			}
+			binaryTime = Math.min(binaryTime, System.nanoTime() - start);
+		}
+		System.out.println("XML " + xml.length + " bytes, " + (xmlTime / rounds / 1000) + " us/report, binary " + binary.length + " bytes, "
+			+ (binaryTime / rounds / 1000) + " us/report, " + ((float) xmlTime / binaryTime) + "x faster (checksum " + checksum + ")");
+	}
+
+}
@@ -0,0 +1,194 @@
+/*
+*
+* OpenGL ES hardware capability viewer and database
+*
+* Copyright (C) 2011-2018 by Sascha Willems (www.saschawillems.de)
+*
+* This code is free software, you can redistribute it and/or
+* modify it under the terms of the GNU Lesser General Public
+* License version 3 as published by the Free Software Foundation.
+*
+* Please review the following information to ensure the GNU Lesser
+* General Public License version 3 requirements will be met:
+* http://opensource.org/licenses/lgpl-3.0.html
+*
+* The code is distributed WITHOUT ANY WARRANTY; without even the
+* implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+* PURPOSE.  See the GNU LGPL 3.0 for more details.
+*
+*/
+
+package de.saschawillems.glescapsviewer;
+
+import org.junit.Test;
+import org.kxml2.io.KXmlParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+// Round trip of a stored report through the binary format: XML -> GLESInfo -> binary -> GLESInfo -> XML
+// Also checks the size against the XML (target: 5x smaller)
+public class BinaryReportTest {
+
+	static GLESInfo readXML(byte[] xml) throws IOException, XmlPullParserException {
+		return new ReportReader(new KXmlParser()).read(new ByteArrayInputStream(xml));
+	}
+
+	static byte[] readBytes(String name) throws IOException {
+		return ReplayCaptureTest.readText(name).getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Test
+	public void roundTripGivesEqualXML() throws Exception {
+		final String xml = ReplayCaptureTest.readText(ReplayCaptureTest.REPORT);
+		final ReportReader reader = new ReportReader(new KXmlParser());
+		final GLESInfo info;
+		try (InputStream in = new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8))) {
+			info = reader.read(in);
+		}
+		assertEquals("fixture", reader.getSubmitter());
+
+		final BinaryReport report = BinaryReport.read(new ByteArrayInputStream(BinaryReport.write(info, reader.getSubmitter())));
+		assertEquals("fixture", report.getSubmitter());
+		assertEquals(xml, report.getInfo().saveToXML(report.getSubmitter()).replace("\r\n", "\n"));
+		assertEquals(info.contentHash(), report.getInfo().contentHash());
+	}
+
+	// The recorded capture has no device info, so the device sections are filled in here
+	@Test
+	public void roundTripWithDeviceInfoGivesEqualXML() throws Exception {
+		final GLESInfo capture = ReplayCaptureTest.replay("querytrace-mali400.bin");
+		capture.mDeviceName = "samsung GT-I9300";
+		capture.mDeviceOS = "4.3";
+		capture.mDeviceCPUCores = 4;
+		capture.mDeviceCPUSpeed = 1.4f;
+		capture.mDeviceTotalRAM = 786;
+		capture.mDeviceCPUArch = "armeabi-v7a";
+		capture.mScreenWidth = 720;
+		capture.mScreenHeight = 1280;
+		capture.mDeviceFeatures.add("android.hardware.camera");
+		capture.mDeviceFeatures.add("android.hardware.touchscreen.multitouch");
+		SensorInfo sensor = new SensorInfo();
+		sensor.mName = "LSM330DLC 3-axis Accelerometer";
+		sensor.mMaxRange = 19.6133f;
+		sensor.mResolution = 0.009576807f;
+		capture.mDeviceSensors.add(sensor);
+		final String xml = capture.saveToXML("Jürgen");
+
+		final BinaryReport report = BinaryReport.read(new ByteArrayInputStream(BinaryReport.write(readXML(xml.getBytes(StandardCharsets.UTF_8)), "Jürgen")));
+		assertEquals(xml, report.getInfo().saveToXML(report.getSubmitter()));
+	}
+
+	// Decode times are compared by BinaryReportBenchmark (not part of the unit tests)
+	@Test
+	public void fiveTimesSmallerThanXML() throws Exception {
+		final byte[] xml = readBytes(ReplayCaptureTest.REPORT);
+		final byte[] binary = BinaryReport.write(readXML(xml), "fixture");
+		assertTrue("Binary report only " + ((float) xml.length / binary.length) + "x smaller", binary.length * 5 <= xml.length);
+	}
+
+	private static void writeVarint(ByteArrayOutputStream out, long value) {
+		while ((value & ~0x7FL) != 0) {
+			out.write((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.write((int) value);
+	}
+
+	// Header of a report written with a dictionary of the given size and signature
+	private static ByteArrayOutputStream header(long dictionarySize, int signature) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		out.write(BinaryReport.MAGIC >>> 24);
+		out.write(BinaryReport.MAGIC >>> 16);
+		out.write(BinaryReport.MAGIC >>> 8);
+		out.write(BinaryReport.MAGIC);
+		writeVarint(out, BinaryReport.FORMAT_VERSION);
+		writeVarint(out, dictionarySize);
+		writeVarint(out, signature & 0xFFFFFFFFL);
+		return out;
+	}
+
+	// GL ES extension section with the given dictionary ids, no inline names and no driver order
+	private static void extensionSection(ByteArrayOutputStream out, int... dictionaryIds) {
+		ByteArrayOutputStream section = new ByteArrayOutputStream();
+		writeVarint(section, dictionaryIds.length);
+		int previous = -1;
+		for (int id : dictionaryIds) {
+			writeVarint(section, id - previous);
+			previous = id;
+		}
+		writeVarint(section, 0);
+		writeVarint(section, 0);
+		writeVarint(out, BinaryReport.SECTION_GLES_EXTENSIONS);
+		writeVarint(out, section.size());
+		out.write(section.toByteArray(), 0, section.size());
+	}
+
+	private static BinaryReport read(ByteArrayOutputStream out) throws IOException {
+		final byte[] data = out.toByteArray();
+		return BinaryReport.read(data, 0, data.length, BinaryReport.ALL_SECTIONS);
+	}
+
+	// Reports written by older versions (a prefix of the dictionary) store later names inline
+	@Test
+	public void readsReportsOfSmallerDictionaries() throws Exception {
+		final GLESInfo capture = ReplayCaptureTest.replay("querytrace-mali400.bin");
+		final String xml = capture.saveToXML("fixture");
+		for (int size : new int[] {0, 1, ExtensionTables.COUNT / 2, ExtensionTables.COUNT - 1, ExtensionTables.COUNT}) {
+			final byte[] data = BinaryReport.write(capture, "fixture", size);
+			final GLESInfo info = BinaryReport.read(data, 0, data.length, BinaryReport.ALL_SECTIONS).getInfo();
+			assertEquals("Dictionary size " + size, xml, info.saveToXML("fixture"));
+			assertEquals(capture.mExtensions.unknownCount(), info.mExtensions.unknownCount());
+		}
+	}
+
+	@Test
+	public void dictionaryIdsFollowSpecOrder() throws Exception {
+		for (int position = 0; position < ExtensionTables.COUNT; position++) {
+			assertEquals(position, ExtensionTables.DICTIONARY_ID[ExtensionTables.BY_DICTIONARY_ID[position]]);
+		}
+		final String first = ExtensionTables.name(ExtensionTables.BY_DICTIONARY_ID[0]);
+		ByteArrayOutputStream out = header(1, BinaryReport.dictionarySignature(1));
+		extensionSection(out, 0);
+		assertEquals(ExtensionSet.parse(first), read(out).getInfo().mExtensions);
+	}
+
+	// A newer dictionary can't be checked, ids within this dictionary are read, all others rejected
+	@Test
+	public void readsReportsOfLargerDictionaries() throws Exception {
+		final int last = ExtensionTables.COUNT - 1;
+		ByteArrayOutputStream out = header(ExtensionTables.COUNT + 10, 0x12345678);
+		extensionSection(out, 0, last);
+		assertEquals(2, read(out).getInfo().mExtensions.size());
+
+		out = header(ExtensionTables.COUNT + 10, 0x12345678);
+		extensionSection(out, 0, ExtensionTables.COUNT + 3);
+		try {
+			read(out);
+			fail("Read an extension id beyond the dictionary");
+		} catch (IOException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("beyond the dictionary"));
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void rejectsReorderedDictionary() throws Exception {
+		read(header(ExtensionTables.COUNT, BinaryReport.dictionarySignature(ExtensionTables.COUNT) + 1));
+	}
+
+	@Test(expected = IOException.class)
+	public void rejectsIdsBeyondWrittenDictionary() throws Exception {
+		ByteArrayOutputStream out = header(ExtensionTables.COUNT, BinaryReport.dictionarySignature(ExtensionTables.COUNT));
+		extensionSection(out, ExtensionTables.COUNT);
+		read(out);
+	}
+
+}
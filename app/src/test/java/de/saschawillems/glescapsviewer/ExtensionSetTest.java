@@ -0,0 +1,228 @@
+/*
+*
+* OpenGL ES hardware capability viewer and database
+*
+* Copyright (C) 2011-2018 by Sascha Willems (www.saschawillems.de)
+*
+* This code is free software, you can redistribute it and/or
+* modify it under the terms of the GNU Lesser General Public
+* License version 3 as published by the Free Software Foundation.
+*
+* Please review the following information to ensure the GNU Lesser
+* General Public License version 3 requirements will be met:
+* http://opensource.org/licenses/lgpl-3.0.html
+*
+* The code is distributed WITHOUT ANY WARRANTY; without even the
+* implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+* PURPOSE.  See the GNU LGPL 3.0 for more details.
+*
+*/
+
+package de.saschawillems.glescapsviewer;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+// Set operations are checked against TreeSets of the same names, known (bitset) and unknown (overflow list) mixed
+public class ExtensionSetTest {
+
+	private static final String[] UNKNOWN = {"GL_AAA_vendor_first", "GL_OES_depth24_unknown", "GL_ZZZ_vendor_last", "EGL_XYZ_private", "GL_MID_vendor"};
+
+	private static String join(Iterable<String> names) {
+		StringBuilder sb = new StringBuilder();
+		for (String name : names) {
+			if (sb.length() > 0) {
+				sb.append(' ');
+			}
+			sb.append(name);
+		}
+		return sb.toString();
+	}
+
+	private static void assertSet(TreeSet<String> expected, ExtensionSet set) {
+		assertArrayEquals(expected.toArray(new String[0]), set.toArray());
+		assertEquals(expected.size(), set.size());
+		assertEquals(expected.isEmpty(), set.isEmpty());
+		for (String name : expected) {
+			assertTrue(name, set.has(name));
+		}
+		assertEquals(ExtensionSet.parse(join(expected)), set);
+	}
+
+	// Random selection of known and unknown names
+	private static TreeSet<String> randomNames(Random random) {
+		TreeSet<String> names = new TreeSet<>();
+		for (int id = 0; id < ExtensionTables.COUNT; id++) {
+			if (random.nextInt(3) == 0) {
+				names.add(ExtensionTables.name(id));
+			}
+		}
+		for (String name : UNKNOWN) {
+			if (random.nextBoolean()) {
+				names.add(name);
+			}
+		}
+		return names;
+	}
+
+	@Test
+	public void parseSplitsKnownAndUnknownNames() {
+		ExtensionSet set = ExtensionSet.parse("GL_OES_depth24 GL_ZZZ_vendor_last  GL_KHR_debug GL_AAA_vendor_first GL_KHR_debug ");
+		assertEquals(4, set.size());
+		assertTrue(set.has("GL_OES_depth24"));
+		assertTrue(set.has(ExtensionSet.id("GL_KHR_debug")));
+		assertFalse(set.has("GL_OES_rgb8_rgba8"));
+		assertFalse(set.has("GL_OES_depth"));
+		assertEquals(2, set.unknownCount());
+		assertEquals("GL_AAA_vendor_first", set.unknown(0));
+		assertEquals("GL_ZZZ_vendor_last", set.unknown(1));
+		assertEquals(ExtensionSet.NOT_FOUND, ExtensionSet.id("GL_ZZZ_vendor_last"));
+		assertEquals(ExtensionSet.id("GL_KHR_debug"), ExtensionSet.id("xGL_KHR_debugx", 1, 13));
+	}
+
+	@Test
+	public void parseOfEmptyLists() {
+		assertTrue(ExtensionSet.parse(null).isEmpty());
+		assertTrue(ExtensionSet.parse("").isEmpty());
+		assertTrue(ExtensionSet.parse("  \t ").isEmpty());
+		assertEquals(ExtensionSet.EMPTY, ExtensionSet.parse(" "));
+		assertFalse(ExtensionSet.EMPTY.has("GL_KHR_debug"));
+		assertFalse(ExtensionSet.EMPTY.has(-1));
+		assertFalse(ExtensionSet.EMPTY.has(ExtensionTables.COUNT));
+	}
+
+	@Test
+	public void namesAreSorted() {
+		Random random = new Random(11);
+		for (int i = 0; i < 50; i++) {
+			TreeSet<String> names = randomNames(random);
+			ArrayList<String> shuffled = new ArrayList<>(names);
+			Collections.shuffle(shuffled, random);
+			ExtensionSet set = ExtensionSet.parse(join(shuffled));
+			assertSet(names, set);
+			assertEquals(join(names), set.toString());
+		}
+	}
+
+	@Test
+	public void setOperationsMatchTreeSets() {
+		Random random = new Random(7);
+		for (int i = 0; i < 200; i++) {
+			TreeSet<String> a = randomNames(random);
+			TreeSet<String> b = randomNames(random);
+			ExtensionSet setA = ExtensionSet.parse(join(a));
+			ExtensionSet setB = ExtensionSet.parse(join(b));
+
+			TreeSet<String> union = new TreeSet<>(a);
+			union.addAll(b);
+			assertSet(union, setA.union(setB));
+
+			TreeSet<String> intersection = new TreeSet<>(a);
+			intersection.retainAll(b);
+			assertSet(intersection, setA.intersection(setB));
+
+			TreeSet<String> difference = new TreeSet<>(a);
+			difference.removeAll(b);
+			assertSet(difference, setA.difference(setB));
+		}
+	}
+
+	@Test
+	public void setOperationsWithEmptySet() {
+		ExtensionSet set = ExtensionSet.parse("GL_KHR_debug GL_AAA_vendor_first");
+		assertEquals(set, set.union(ExtensionSet.EMPTY));
+		assertEquals(set, ExtensionSet.EMPTY.union(set));
+		assertEquals(ExtensionSet.EMPTY, set.intersection(ExtensionSet.EMPTY));
+		assertEquals(set, set.difference(ExtensionSet.EMPTY));
+		assertEquals(ExtensionSet.EMPTY, ExtensionSet.EMPTY.difference(set));
+		assertEquals(ExtensionSet.EMPTY, set.difference(set));
+	}
+
+	@Test
+	public void nextIdWalksKnownIdsInNameOrder() {
+		// All ids, crossing every 64 bit word boundary of the bitset
+		StringBuilder all = new StringBuilder();
+		for (int id = 0; id < ExtensionTables.COUNT; id++) {
+			all.append(ExtensionTables.name(id)).append(' ');
+		}
+		ExtensionSet set = ExtensionSet.parse(all.toString());
+		int expected = 0;
+		String previous = "";
+		for (int id = set.nextId(0); id != ExtensionSet.NOT_FOUND; id = set.nextId(id + 1)) {
+			assertEquals(expected++, id);
+			assertTrue(ExtensionTables.name(id).compareTo(previous) > 0);
+			previous = ExtensionTables.name(id);
+		}
+		assertEquals(ExtensionTables.COUNT, expected);
+
+		ExtensionSet two = ExtensionSet.parse(ExtensionTables.name(0) + " " + ExtensionTables.name(ExtensionTables.COUNT - 1));
+		assertEquals(0, two.nextId(0));
+		assertEquals(ExtensionTables.COUNT - 1, two.nextId(1));
+		assertEquals(ExtensionSet.NOT_FOUND, two.nextId(ExtensionTables.COUNT));
+		assertEquals(ExtensionSet.NOT_FOUND, two.nextId(-1));
+		assertEquals(ExtensionSet.NOT_FOUND, ExtensionSet.EMPTY.nextId(0));
+	}
+
+	@Test
+	public void equalsIgnoresDriverOrder() {
+		ExtensionSet a = ExtensionSet.parse("GL_KHR_debug GL_ZZZ_vendor_last GL_OES_depth24");
+		ExtensionSet b = ExtensionSet.parse("GL_OES_depth24  GL_KHR_debug GL_ZZZ_vendor_last");
+		assertEquals(a, b);
+		assertEquals(a.hashCode(), b.hashCode());
+		assertNotEquals(a.source(), b.source());
+		assertNotEquals(a, ExtensionSet.parse("GL_KHR_debug GL_OES_depth24"));
+		assertNotEquals(a, ExtensionSet.parse("GL_KHR_debug GL_ZZZ_vendor_last"));
+	}
+
+	@Test
+	public void listKeepsDriverOrder() {
+		ExtensionSet set = ExtensionSet.parse("GL_OES_depth24 GL_ZZZ_vendor_last GL_KHR_debug");
+		assertEquals("GL_OES_depth24 GL_ZZZ_vendor_last GL_KHR_debug", set.source());
+		assertArrayEquals(new String[] {"GL_OES_depth24", "GL_ZZZ_vendor_last", "GL_KHR_debug"}, set.list());
+		assertArrayEquals(new String[] {"GL_KHR_debug", "GL_OES_depth24", "GL_ZZZ_vendor_last"}, set.toArray());
+
+		// Split as in report version 6
+		assertArrayEquals(new String[] {""}, ExtensionSet.parse("").list());
+		assertArrayEquals(new String[] {"GL_KHR_debug", "", "GL_OES_depth24"}, ExtensionSet.parse("GL_KHR_debug  GL_OES_depth24 ").list());
+
+		ExtensionSet reordered = set.withSource("GL_ZZZ_vendor_last GL_KHR_debug GL_OES_depth24");
+		assertEquals(set, reordered);
+		assertEquals("GL_ZZZ_vendor_last GL_KHR_debug GL_OES_depth24", reordered.source());
+	}
+
+	@Test
+	public void setOperationsLoseDriverOrder() {
+		ExtensionSet a = ExtensionSet.parse("GL_OES_depth24 GL_KHR_debug");
+		ExtensionSet b = ExtensionSet.parse("GL_ZZZ_vendor_last");
+		assertNull(a.union(b).source());
+		assertNull(a.intersection(b).source());
+		assertNull(a.difference(b).source());
+		assertArrayEquals(new String[] {"GL_KHR_debug", "GL_OES_depth24", "GL_ZZZ_vendor_last"}, a.union(b).list());
+	}
+
+	@Test
+	public void ofBuildsSetFromIds() {
+		int[] ids = {ExtensionSet.id("GL_OES_depth24"), ExtensionSet.id("GL_KHR_debug"), ExtensionSet.id("GL_KHR_debug")};
+		ExtensionSet set = ExtensionSet.of(ids, ids.length, new ArrayList<>(Arrays.asList("GL_ZZZ_vendor_last", "GL_AAA_vendor_first", "GL_ZZZ_vendor_last")));
+		assertEquals(ExtensionSet.parse("GL_ZZZ_vendor_last GL_KHR_debug GL_OES_depth24 GL_AAA_vendor_first"), set);
+		assertNull(set.source());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void ofRejectsInvalidIds() {
+		ExtensionSet.of(new int[] {ExtensionTables.COUNT}, 1, null);
+	}
+
+}
@@ -0,0 +1,66 @@
+/*
+*
+* OpenGL ES hardware capability viewer and database
+*
+* Copyright (C) 2011-2018 by Sascha Willems (www.saschawillems.de)
+*
+* This code is free software, you can redistribute it and/or
+* modify it under the terms of the GNU Lesser General Public
+* License version 3 as published by the Free Software Foundation.
+*
+* Please review the following information to ensure the GNU Lesser
+* General Public License version 3 requirements will be met:
+* http://opensource.org/licenses/lgpl-3.0.html
+*
+* The code is distributed WITHOUT ANY WARRANTY; without even the
+* implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+* PURPOSE.  See the GNU LGPL 3.0 for more details.
+*
+*/
+
+package de.saschawillems.glescapsviewer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class GlEnumRegistryTest {
+
+	@Test
+	public void resolvesReportAndRegistryNames() {
+		assertEquals("GL_ETC1_RGB8_OES", GlEnumRegistry.name(0x8D64));
+		assertEquals(0x8D64, GlEnumRegistry.value("GL_ETC1_RGB8_OES"));
+		assertEquals("GL_COMPRESSED_RGB_S3TC_DXT1", GlEnumRegistry.name(0x83F0));
+		assertEquals("GL_COMPRESSED_RGB_S3TC_DXT1_EXT", GlEnumRegistry.registryName(0x83F0));
+		assertEquals(0x83F0, GlEnumRegistry.value("GL_COMPRESSED_RGB_S3TC_DXT1"));
+		assertEquals(0x83F0, GlEnumRegistry.value("GL_COMPRESSED_RGB_S3TC_DXT1_EXT"));
+	}
+
+	@Test
+	public void resolvesHexNamesOfUnknownEnums() {
+		assertEquals("0x8b8c", GlEnumRegistry.name(0x8B8C));
+		assertNull(GlEnumRegistry.registryName(0x8B8C));
+		assertEquals(0x8B8C, GlEnumRegistry.value("0x8b8c"));
+		assertEquals(0x8B8C, GlEnumRegistry.value("0X8B8C"));
+	}
+
+	// The largest enum value must not collide with NOT_FOUND
+	@Test
+	public void resolvesAllOnesEnum() {
+		final String name = GlEnumRegistry.name(0xFFFFFFFF);
+		assertEquals("0xffffffff", name);
+		assertEquals(0xFFFFFFFFL, GlEnumRegistry.value(name));
+		assertEquals(0xFFFFFFFF, (int) GlEnumRegistry.value(name));
+	}
+
+	@Test
+	public void rejectsUnknownNames() {
+		assertEquals(GlEnumRegistry.NOT_FOUND, GlEnumRegistry.value("GL_NOT_AN_ENUM"));
+		assertEquals(GlEnumRegistry.NOT_FOUND, GlEnumRegistry.value("0x"));
+		assertEquals(GlEnumRegistry.NOT_FOUND, GlEnumRegistry.value("0x123456789"));
+		assertEquals(GlEnumRegistry.NOT_FOUND, GlEnumRegistry.value("0xg1"));
+		assertEquals(GlEnumRegistry.NOT_FOUND, GlEnumRegistry.value(""));
+	}
+
+}
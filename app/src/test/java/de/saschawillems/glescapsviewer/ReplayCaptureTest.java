@@ -0,0 +1,160 @@
+/*
+*
+* OpenGL ES hardware capability viewer and database
+*
+* Copyright (C) 2011-2018 by Sascha Willems (www.saschawillems.de)
+*
+* This code is free software, you can redistribute it and/or
+* modify it under the terms of the GNU Lesser General Public
+* License version 3 as published by the Free Software Foundation.
+*
+* Please review the following information to ensure the GNU Lesser
+* General Public License version 3 requirements will be met:
+* http://opensource.org/licenses/lgpl-3.0.html
+*
+* The code is distributed WITHOUT ANY WARRANTY; without even the
+* implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+* PURPOSE.  See the GNU LGPL 3.0 for more details.
+*
+*/
+
+package de.saschawillems.glescapsviewer;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+// Replays a recorded query trace (Mali-400 MP, OpenGL ES 2.0) through the capture and checks the resulting report
+// Regenerate report-mali400.xml only for intended report changes
+public class ReplayCaptureTest {
+
+	private static final String TRACE = "querytrace-mali400.bin";
+	static final String REPORT = "report-mali400.xml";
+
+	static InputStream resource(String name) {
+		InputStream in = ReplayCaptureTest.class.getResourceAsStream(name);
+		assertNotNull("Missing test resource " + name, in);
+		return in;
+	}
+
+	static GLESInfo replay(String trace) throws IOException {
+		ReplayQueryBackend backend;
+		try (InputStream in = resource(trace)) {
+			backend = new ReplayQueryBackend(in);
+		}
+		GLESInfo info = new GLESInfo(backend, backend);
+		info.getOpenGLImplementationInfo();
+		info.getEGLImplementationInfo();
+		return info;
+	}
+
+	static int slot(CapStore caps, String name) {
+		for (int slot = 0; slot < caps.size(); slot++) {
+			if (caps.name(slot).equals(name)) {
+				return slot;
+			}
+		}
+		throw new AssertionError("No cap " + name);
+	}
+
+	@Test
+	public void replaysImplementationStrings() throws IOException {
+		GLESInfo info = replay(TRACE);
+		assertEquals("ARM", info.mVendor);
+		assertEquals("Mali-400 MP", info.mRenderer);
+		assertEquals("OpenGL ES 2.0", info.mVersion);
+		assertEquals(2, info.mMajorVersion);
+		assertEquals(0, info.mMinorVersion);
+		assertEquals(1, info.mShadingLanguageMajorVersion);
+		assertEquals(0, info.mShadingLanguageMinorVersion);
+		assertEquals(24, info.mExtensions.size());
+		assertTrue(info.mExtensions.has("GL_OES_compressed_ETC1_RGB8_texture"));
+		assertFalse(info.mExtensions.has("GL_EXT_color_buffer_float"));
+	}
+
+	@Test
+	public void replaysCaps() throws IOException {
+		GLESInfo info = replay(TRACE);
+		CapStore caps = info.mGLES20Caps;
+		assertEquals(14, caps.size());
+		assertEquals(4096, caps.getInt(slot(caps, "GL_MAX_TEXTURE_SIZE")));
+		assertEquals(16, caps.getInt(slot(caps, "GL_MAX_VERTEX_ATTRIBS")));
+		assertEquals(0, caps.getInt(slot(caps, "GL_MAX_VERTEX_TEXTURE_IMAGE_UNITS")));
+		assertEquals("4096 x 4096", caps.valueText(slot(caps, "GL_MAX_VIEWPORT_DIMS")));
+		// ES 2.0 context, the ES 3.x sections must not be queried
+		assertEquals(0, info.mGLES30Caps.size());
+		assertEquals(0, info.mGLES31Caps.size());
+		assertEquals(0, info.mGLES32Caps.size());
+	}
+
+	@Test
+	public void replaysFormats() throws IOException {
+		GLESInfo info = replay(TRACE);
+		assertEquals("[GL_ETC1_RGB8_OES]", info.mGLCompressedFormats.toString());
+		assertEquals("[MALI_SHADER_BINARY_ARM]", info.mGLShaderBinaryFormats.toString());
+		assertEquals("[MALI_PROGRAM_BINARY_ARM]", info.mGLProgramBinaryFormats.toString());
+	}
+
+	@Test
+	public void replaysEGL() throws IOException {
+		GLESInfo info = replay(TRACE);
+		assertTrue(info.mEGLAvailable);
+		assertEquals("Android", info.mEGLVendor);
+		assertEquals("1.4 Android META-EGL", info.mEGLVersion);
+		assertEquals("OpenGL_ES", info.mEGLClientAPIs);
+		assertEquals(9, info.mEGLExtensions.size());
+		assertEquals(4, info.mEGLConfigs.size());
+		assertEquals(24, info.mEGLConfigs.get(EGLConfigTable.DEPTH_SIZE, 3));
+		assertEquals(4, info.mEGLConfigs.get(EGLConfigTable.SAMPLES, 3));
+	}
+
+	@Test
+	public void reportMatchesRecordedCapture() throws IOException {
+		GLESInfo info = replay(TRACE);
+		assertEquals(readText(REPORT), normalize(info.saveToXML("fixture")));
+	}
+
+	@Test
+	public void incrementalContentHashMatchesOneShot() throws IOException {
+		// The capture hashes incrementally, stored reports are hashed in one go (ContentHash.of), both must agree
+		// The replay gathers no device info, so that part is left out here
+		GLESInfo info = replay(TRACE);
+		ContentHash expected = new ContentHash();
+		expected.addImplementation(info);
+		expected.addExtensions(info.mExtensions);
+		expected.addFormats(info);
+		expected.addCaps(info.mGLES20Caps);
+		expected.addCaps(info.mGLES30Caps);
+		expected.addCaps(info.mGLES31Caps);
+		expected.addCaps(info.mGLES32Caps);
+		expected.addEGL(info);
+		assertEquals(expected.toString(), info.contentHash());
+		assertEquals(info.contentHash(), replay(TRACE).contentHash());
+	}
+
+	static String readText(String name) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (InputStream in = resource(name)) {
+			byte[] buffer = new byte[4096];
+			int count;
+			while ((count = in.read(buffer)) > 0) {
+				out.write(buffer, 0, count);
+			}
+		}
+		return normalize(new String(out.toByteArray(), StandardCharsets.UTF_8));
+	}
+
+	// The report is written with "\r\n" line breaks, the checked out resource may have either
+	private static String normalize(String text) {
+		return text.replace("\r\n", "\n");
+	}
+
+}
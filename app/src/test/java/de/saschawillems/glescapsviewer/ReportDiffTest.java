@@ -0,0 +1,206 @@
+/*
+*
+* OpenGL ES hardware capability viewer and database
+*
+* Copyright (C) 2011-2018 by Sascha Willems (www.saschawillems.de)
+*
+* This code is free software, you can redistribute it and/or
+* modify it under the terms of the GNU Lesser General Public
+* License version 3 as published by the Free Software Foundation.
+*
+* Please review the following information to ensure the GNU Lesser
+* General Public License version 3 requirements will be met:
+* http://opensource.org/licenses/lgpl-3.0.html
+*
+* The code is distributed WITHOUT ANY WARRANTY; without even the
+* implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+* PURPOSE.  See the GNU LGPL 3.0 for more details.
+*
+*/
+
+package de.saschawillems.glescapsviewer;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+// Diffs the fixture report against modified copies of itself
+public class ReportDiffTest {
+
+	private static GLESInfo fixture() throws Exception {
+		return read(ReplayCaptureTest.readText(ReplayCaptureTest.REPORT));
+	}
+
+	private static GLESInfo read(String xml) throws Exception {
+		return BinaryReportTest.readXML(xml.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String replace(String s, String target, String replacement) {
+		assertTrue(target, s.contains(target));
+		return s.replace(target, replacement);
+	}
+
+	// Index of the change with the given category and key, -1 if there is none
+	private static int find(ReportDiff diff, byte category, String key) {
+		for (int i = 0; i < diff.size(); i++) {
+			if (diff.category(i) == category && diff.key(i).equals(key)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static void assertChange(ReportDiff diff, byte category, byte kind, String key, String oldValue, String newValue) {
+		final int change = find(diff, category, key);
+		assertTrue(key, change >= 0);
+		assertEquals(key, kind, diff.kind(change));
+		assertEquals(key, oldValue, diff.oldValue(change));
+		assertEquals(key, newValue, diff.newValue(change));
+	}
+
+	// Config table with one row per id, all other attributes set to value
+	private static EGLConfigTable configs(int[] ids, int value) {
+		EGLConfigTable configs = new EGLConfigTable(ids.length);
+		for (int config = 0; config < ids.length; config++) {
+			for (int column = 0; column < EGLConfigTable.COLUMN_COUNT; column++) {
+				configs.set(column, config, value);
+			}
+			configs.set(EGLConfigTable.CONFIG_ID, config, ids[config]);
+		}
+		return configs;
+	}
+
+	@Test
+	public void identicalReportsHaveNoChanges() throws Exception {
+		ReportDiff diff = ReportDiff.diff(fixture(), fixture());
+		assertTrue(diff.toString(), diff.isEmpty());
+		assertEquals("", diff.toString());
+	}
+
+	@Test
+	public void extensionsMergedByIdAndUnknownByName() throws Exception {
+		String xml = ReplayCaptureTest.readText(ReplayCaptureTest.REPORT);
+		xml = replace(xml, "<extension>GL_KHR_debug</extension>", "<extension>GL_OES_vertex_array_object</extension><extension>GL_VENDOR_added</extension><extension>GL_VENDOR_shared</extension>");
+		xml = replace(xml, "<extension>EGL_ANDROID_recordable</extension>", "");
+		GLESInfo a = fixture();
+		a.mExtensions = ExtensionSet.parse(a.mExtensions.source() + " GL_VENDOR_removed GL_VENDOR_shared");
+
+		ReportDiff diff = ReportDiff.diff(a, read(xml));
+		assertEquals(diff.toString(), 4, diff.count(ReportDiff.EXTENSION));
+		assertEquals(1, diff.count(ReportDiff.EGL_EXTENSION));
+		assertEquals(diff.toString(), 5, diff.size());
+
+		// Known ids first (in name order), then the unknown names
+		final String[] keys = {"GL_KHR_debug", "GL_OES_vertex_array_object", "GL_VENDOR_added", "GL_VENDOR_removed"};
+		final byte[] kinds = {ReportDiff.REMOVED, ReportDiff.ADDED, ReportDiff.ADDED, ReportDiff.REMOVED};
+		for (int i = 0; i < keys.length; i++) {
+			assertEquals(ReportDiff.EXTENSION, diff.category(i));
+			assertEquals(keys[i], diff.key(i));
+			assertEquals(keys[i], kinds[i], diff.kind(i));
+			assertNull(diff.oldValue(i));
+			assertNull(diff.newValue(i));
+		}
+		assertChange(diff, ReportDiff.EGL_EXTENSION, ReportDiff.REMOVED, "EGL_ANDROID_recordable", null, null);
+	}
+
+	@Test
+	public void formatsMergedIgnoringOrder() throws Exception {
+		String xml = ReplayCaptureTest.readText(ReplayCaptureTest.REPORT);
+		xml = replace(xml, "<compressedformat>GL_ETC1_RGB8_OES</compressedformat>", "<compressedformat>GL_COMPRESSED_RGB8_ETC2</compressedformat><compressedformat>GL_ETC1_RGB8_OES</compressedformat>");
+		xml = replace(xml, "<binaryshaderformat>MALI_SHADER_BINARY_ARM</binaryshaderformat>", "");
+		GLESInfo a = fixture();
+		GLESInfo b = read(xml);
+
+		ReportDiff diff = ReportDiff.diff(a, b);
+		assertEquals(diff.toString(), 2, diff.size());
+		assertChange(diff, ReportDiff.COMPRESSED_FORMAT, ReportDiff.ADDED, "GL_COMPRESSED_RGB8_ETC2", null, null);
+		assertChange(diff, ReportDiff.SHADER_BINARY_FORMAT, ReportDiff.REMOVED, "MALI_SHADER_BINARY_ARM", null, null);
+
+		// Same formats in another order
+		a.mGLCompressedFormats.add(0, "GL_COMPRESSED_RGB8_ETC2");
+		a.mGLShaderBinaryFormats.clear();
+		assertTrue(ReportDiff.diff(a, b).isEmpty());
+	}
+
+	@Test
+	public void capsAddedRemovedAndChanged() throws Exception {
+		String xml = ReplayCaptureTest.readText(ReplayCaptureTest.REPORT);
+		xml = replace(xml, "<cap name=\"GL_MAX_TEXTURE_SIZE\">4096</cap>", "<cap name=\"GL_MAX_TEXTURE_SIZE\">8192</cap>");
+		xml = replace(xml, "<cap name=\"GL_MAX_VARYING_VECTORS\">12</cap>", "");
+		xml = replace(xml, "<es30caps />", "<es30caps><cap name=\"GL_MAX_3D_TEXTURE_SIZE\">2048</cap></es30caps>");
+
+		ReportDiff diff = ReportDiff.diff(fixture(), read(xml));
+		assertEquals(diff.toString(), 3, diff.size());
+		assertEquals(3, diff.count(ReportDiff.CAP));
+		assertChange(diff, ReportDiff.CAP, ReportDiff.CHANGED, "es20caps/GL_MAX_TEXTURE_SIZE", "4096", "8192");
+		assertChange(diff, ReportDiff.CAP, ReportDiff.REMOVED, "es20caps/GL_MAX_VARYING_VECTORS", "12", null);
+		assertChange(diff, ReportDiff.CAP, ReportDiff.ADDED, "es30caps/GL_MAX_3D_TEXTURE_SIZE", null, "2048");
+	}
+
+	@Test
+	public void configsMatchedByConfigId() throws Exception {
+		GLESInfo a = fixture();
+		GLESInfo b = fixture();
+		a.mEGLConfigs = configs(new int[] {3, 1, 2}, 8);
+		b.mEGLConfigs = configs(new int[] {2, 4, 1}, 8);
+		b.mEGLConfigs.set(EGLConfigTable.DEPTH_SIZE, 2, 24);
+
+		ReportDiff diff = ReportDiff.diff(a, b);
+		assertEquals(diff.toString(), 3, diff.size());
+		// In config id order
+		assertEquals("config 1/EGL_DEPTH_SIZE", diff.key(0));
+		assertEquals(ReportDiff.CHANGED, diff.kind(0));
+		assertEquals("8", diff.oldValue(0));
+		assertEquals("24", diff.newValue(0));
+		assertEquals("config 3", diff.key(1));
+		assertEquals(ReportDiff.REMOVED, diff.kind(1));
+		assertEquals("config 4", diff.key(2));
+		assertEquals(ReportDiff.ADDED, diff.kind(2));
+		assertEquals(3, diff.count(ReportDiff.EGL_CONFIG));
+	}
+
+	@Test
+	public void configOrderDoesNotMatter() throws Exception {
+		final int count = 500;
+		final int[] ascending = new int[count];
+		final int[] descending = new int[count];
+		for (int i = 0; i < count; i++) {
+			ascending[i] = i + 1;
+			descending[i] = count - i;
+		}
+		GLESInfo a = fixture();
+		GLESInfo b = fixture();
+		a.mEGLConfigs = configs(ascending, 0);
+		b.mEGLConfigs = configs(descending, 0);
+		assertTrue(ReportDiff.diff(a, b).isEmpty());
+
+		// Reused instance, against a report without configs
+		ReportDiff diff = new ReportDiff();
+		b.mEGLConfigs = null;
+		diff.compare(a, b);
+		assertEquals(count, diff.count(ReportDiff.EGL_CONFIG));
+		for (int i = 0; i < count; i++) {
+			assertEquals("config " + (i + 1), diff.key(i));
+			assertEquals(ReportDiff.REMOVED, diff.kind(i));
+		}
+	}
+
+	@Test
+	public void writeEscapesValues() throws Exception {
+		GLESInfo a = fixture();
+		GLESInfo b = fixture();
+		b.mRenderer = "Mali-400\tMP\\r1\r\n";
+		b.mExtensions = ExtensionSet.parse(a.mExtensions.source().replace("GL_KHR_debug", ""));
+
+		ReportDiff diff = ReportDiff.diff(a, b);
+		assertEquals(
+			"implementation\t~\trenderer\tMali-400 MP\tMali-400\\tMP\\\\r1\\r\\n\n" +
+			"extension\t-\tGL_KHR_debug\t\t\n",
+			diff.toString());
+	}
+
+}
@@ -0,0 +1,94 @@
+/*
+*
+* OpenGL ES hardware capability viewer and database
+*
+* Copyright (C) 2011-2018 by Sascha Willems (www.saschawillems.de)
+*
+* This code is free software, you can redistribute it and/or
+* modify it under the terms of the GNU Lesser General Public
+* License version 3 as published by the Free Software Foundation.
+*
+* Please review the following information to ensure the GNU Lesser
+* General Public License version 3 requirements will be met:
+* http://opensource.org/licenses/lgpl-3.0.html
+*
+* The code is distributed WITHOUT ANY WARRANTY; without even the
+* implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+* PURPOSE.  See the GNU LGPL 3.0 for more details.
+*
+*/
+
+package de.saschawillems.glescapsviewer;
+
+import org.junit.Test;
+import org.kxml2.io.KXmlParser;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ReportReaderTest {
+
+	private static GLESInfo read(String xml, int sections) throws Exception {
+		ReportReader reader = new ReportReader(new KXmlParser());
+		reader.setSections(sections);
+		GLESInfo info = reader.read(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+		assertEquals("fixture", reader.getSubmitter());
+		return info;
+	}
+
+	private static int validCount(CapStore caps) {
+		int count = 0;
+		for (int slot = 0; slot < caps.size(); slot++) {
+			if (caps.isValid(slot)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	@Test
+	public void readsAllSections() throws Exception {
+		GLESInfo info = read(ReplayCaptureTest.readText(ReplayCaptureTest.REPORT), ReportReader.ALL_SECTIONS);
+		assertEquals("Mali-400 MP", info.mRenderer);
+		assertEquals(24, info.mExtensions.size());
+		assertEquals(4096, info.mGLES20Caps.getInt(ReplayCaptureTest.slot(info.mGLES20Caps, "GL_MAX_TEXTURE_SIZE")));
+		assertEquals(1, info.mGLCompressedFormats.size());
+		assertEquals(9, info.mEGLExtensions.size());
+	}
+
+	// Only the ES 3.0 caps are read, all other sections are skipped
+	@Test
+	public void setSectionsSkipsOtherSections() throws Exception {
+		final String xml = ReplayCaptureTest.readText(ReplayCaptureTest.REPORT)
+			.replace("<es30caps />", "<es30caps>\n      <cap name=\"GL_MAX_3D_TEXTURE_SIZE\">2048</cap>\n    </es30caps>");
+		GLESInfo info = read(xml, ReportReader.SECTION_ES30_CAPS);
+
+		assertTrue(info.mGLES30Caps.size() > 0);
+		assertEquals(2048, info.mGLES30Caps.getInt(ReplayCaptureTest.slot(info.mGLES30Caps, "GL_MAX_3D_TEXTURE_SIZE")));
+		assertEquals(1, validCount(info.mGLES30Caps));
+
+		final GLESInfo empty = new GLESInfo(null, null);
+		assertEquals(0, validCount(info.mGLES20Caps));
+		assertEquals(empty.mRenderer, info.mRenderer);
+		assertEquals(empty.mVendor, info.mVendor);
+		assertTrue(info.mExtensions.isEmpty());
+		assertTrue(info.mGLCompressedFormats.isEmpty());
+		assertEquals(empty.mEGLVersion, info.mEGLVersion);
+		assertTrue(info.mEGLExtensions.isEmpty());
+		assertEquals(empty.mDeviceName, info.mDeviceName);
+	}
+
+	@Test
+	public void setSectionsCombinesSections() throws Exception {
+		GLESInfo info = read(ReplayCaptureTest.readText(ReplayCaptureTest.REPORT), ReportReader.SECTION_GLES_EXTENSIONS | ReportReader.SECTION_EGL_IMPLEMENTATION);
+		assertEquals(24, info.mExtensions.size());
+		assertEquals("1.4 Android META-EGL", info.mEGLVersion);
+		assertTrue(info.mEGLExtensions.isEmpty());
+		assertEquals(0, info.mGLES20Caps.size());
+		assertEquals(new GLESInfo(null, null).mRenderer, info.mRenderer);
+	}
+
+}
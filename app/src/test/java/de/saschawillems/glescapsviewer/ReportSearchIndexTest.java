@@ -0,0 +1,202 @@
+/*
+*
+* OpenGL ES hardware capability viewer and database
+*
+* Copyright (C) 2011-2018 by Sascha Willems (www.saschawillems.de)
+*
+* This code is free software, you can redistribute it and/or
+* modify it under the terms of the GNU Lesser General Public
+* License version 3 as published by the Free Software Foundation.
+*
+* Please review the following information to ensure the GNU Lesser
+* General Public License version 3 requirements will be met:
+* http://opensource.org/licenses/lgpl-3.0.html
+*
+* The code is distributed WITHOUT ANY WARRANTY; without even the
+* implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+* PURPOSE.  See the GNU LGPL 3.0 for more details.
+*
+*/
+
+package de.saschawillems.glescapsviewer;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+// Checks the suffix array search against a plain indexOf scan over the rows of the fixture report
+public class ReportSearchIndexTest {
+
+	private ReportRows mRows;
+	private ReportSearchIndex mIndex;
+	// Normalized row texts
+	private String[] mTexts;
+
+	@Before
+	public void setUp() throws Exception {
+		GLESInfo info = BinaryReportTest.readXML(BinaryReportTest.readBytes(ReplayCaptureTest.REPORT));
+		mRows = ReportRows.build(info);
+		mIndex = ReportSearchIndex.build(mRows);
+		mTexts = new String[mRows.size()];
+		for (int row = 0; row < mRows.size(); row++) {
+			mTexts[row] = ReportSearchIndex.normalize(mRows.text(row));
+		}
+	}
+
+	// Occurrences of the query in the text, overlapping ones included
+	private static ArrayList<Integer> occurrences(String text, String query) {
+		ArrayList<Integer> offsets = new ArrayList<>();
+		for (int i = text.indexOf(query); i >= 0; i = text.indexOf(query, i + 1)) {
+			offsets.add(i);
+		}
+		return offsets;
+	}
+
+	private int naiveCount(String query) {
+		int count = 0;
+		for (String text : mTexts) {
+			count += occurrences(text, query).size();
+		}
+		return count;
+	}
+
+	// Matching rows with their context: the header of the section, the caption of a value and the values of a caption
+	private int[] naiveFilter(String query) {
+		ArrayList<Integer> visible = new ArrayList<>();
+		int header = -1;
+		int caption = -1;
+		int shownHeader = -1;
+		int shownCaption = -1;
+		for (int row = 0; row < mRows.size(); row++) {
+			final byte type = mRows.type(row);
+			if (type == ReportRows.TYPE_HEADER) {
+				header = row;
+				caption = -1;
+			} else if ((type == ReportRows.TYPE_CAPTION) || (type == ReportRows.TYPE_NOTE)) {
+				caption = row;
+			}
+			final boolean isValue = type == ReportRows.TYPE_VALUE;
+			final boolean show = mTexts[row].contains(query) || (isValue && (caption >= 0) && mTexts[caption].contains(query));
+			if (!show || (type == ReportRows.TYPE_SPACER)) {
+				continue;
+			}
+			if ((header >= 0) && (header != row) && (header != shownHeader)) {
+				visible.add(header);
+			}
+			shownHeader = header;
+			if (isValue && (caption >= 0) && (caption != shownCaption)) {
+				visible.add(caption);
+			}
+			shownCaption = isValue ? caption : (type == ReportRows.TYPE_HEADER ? -1 : row);
+			visible.add(row);
+		}
+		int[] rows = new int[visible.size()];
+		for (int i = 0; i < rows.length; i++) {
+			rows[i] = visible.get(i);
+		}
+		return rows;
+	}
+
+	private void assertSameAsScan(String query) {
+		assertEquals(query, naiveCount(query), mIndex.count(query));
+		assertArrayEquals(query, naiveFilter(query), mIndex.filter(query));
+		assertEquals(query, naiveCount(query), mIndex.matchCount());
+		for (int row = 0; row < mRows.size(); row++) {
+			ArrayList<Integer> matches = new ArrayList<>();
+			for (int offset = mIndex.nextMatch(row, query, 0); offset >= 0; offset = mIndex.nextMatch(row, query, offset + 1)) {
+				matches.add(offset);
+			}
+			assertEquals(query + " in row " + row, occurrences(mTexts[row], query), matches);
+		}
+	}
+
+	@Test
+	public void emptyQueryShowsAllRows() {
+		assertNull(mIndex.filter(""));
+		assertEquals(0, mIndex.matchCount());
+	}
+
+	@Test
+	public void noMatch() {
+		assertSameAsScan("no such text");
+		assertEquals(0, mIndex.filter("no such text").length);
+		assertEquals(0, mIndex.count("zzz"));
+		assertEquals(0, ReportSearchIndex.EMPTY.count("gl"));
+		assertEquals(0, ReportSearchIndex.EMPTY.filter("gl").length);
+	}
+
+	@Test
+	public void captionMatchShowsItsValues() {
+		final String query = ReportSearchIndex.normalize("Max. texture size");
+		final int[] rows = mIndex.filter(query);
+		assertArrayEquals(naiveFilter(query), rows);
+		assertTrue(rows.length >= 3);
+		assertEquals(ReportRows.TYPE_HEADER, mRows.type(rows[0]));
+		assertEquals(ReportRows.TYPE_CAPTION, mRows.type(rows[1]));
+		assertTrue(mTexts[rows[1]].contains(query));
+		assertEquals(ReportRows.TYPE_VALUE, mRows.type(rows[2]));
+		assertEquals("4096", mRows.text(rows[2]));
+	}
+
+	@Test
+	public void valueMatchShowsItsCaption() {
+		final int[] rows = mIndex.filter("mali-400");
+		assertArrayEquals(naiveFilter("mali-400"), rows);
+		assertTrue(rows.length >= 3);
+		assertEquals(ReportRows.TYPE_HEADER, mRows.type(rows[0]));
+		assertEquals(ReportRows.TYPE_CAPTION, mRows.type(rows[1]));
+		assertEquals("mali-400 mp", mTexts[rows[2]]);
+	}
+
+	@Test
+	public void sameAsScanForFixedQueries() {
+		for (String query : new String[] {"gl", "gl_", "egl_khr_", "4096", "es", "e", " ", "0", "oes_", "android", "caps", "(", ")"}) {
+			assertSameAsScan(query);
+		}
+	}
+
+	// Texts spanning the end of a row and the start of the next one don't match
+	@Test
+	public void noMatchAcrossRowEnd() {
+		for (int row = 0; row + 1 < mRows.size(); row++) {
+			final String text = mTexts[row];
+			final String next = mTexts[row + 1];
+			if (text.isEmpty() || next.isEmpty()) {
+				continue;
+			}
+			final String query = text.substring(Math.max(0, text.length() - 3)) + next.substring(0, Math.min(3, next.length()));
+			assertSameAsScan(query);
+			assertSameAsScan(text + " " + next);
+		}
+	}
+
+	@Test
+	public void sameAsScanForRandomSubstrings() {
+		Random random = new Random(25);
+		for (int i = 0; i < 500; i++) {
+			final String text = mTexts[random.nextInt(mTexts.length)];
+			if (text.isEmpty()) {
+				continue;
+			}
+			final int start = random.nextInt(text.length());
+			final int end = start + 1 + random.nextInt(Math.min(12, text.length() - start));
+			assertSameAsScan(text.substring(start, end));
+		}
+	}
+
+	@Test
+	public void countIgnoresCase() {
+		assertEquals("gl_oes", ReportSearchIndex.normalize("GL_OES"));
+		assertTrue(mIndex.count("gl_oes") > 0);
+		assertEquals(naiveCount("gl_oes"), mIndex.count(ReportSearchIndex.normalize("GL_OES")));
+		assertArrayEquals(naiveFilter("gl_oes"), mIndex.filter(ReportSearchIndex.normalize("GL_oes")));
+	}
+
+}
@@ -0,0 +1,125 @@
+/*
+*
+* OpenGL ES hardware capability viewer and database
+*
+* Copyright (C) 2011-2018 by Sascha Willems (www.saschawillems.de)
+*
+* This code is free software, you can redistribute it and/or
+* modify it under the terms of the GNU Lesser General Public
+* License version 3 as published by the Free Software Foundation.
+*
+* Please review the following information to ensure the GNU Lesser
+* General Public License version 3 requirements will be met:
+* http://opensource.org/licenses/lgpl-3.0.html
+*
+* The code is distributed WITHOUT ANY WARRANTY; without even the
+* implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+* PURPOSE.  See the GNU LGPL 3.0 for more details.
+*
+*/
+
+package de.saschawillems.glescapsviewer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+// Uploads a replayed report to a local stub server and checks the request as received on the wire
+public class ReportUploadTest {
+
+	// Umlaut, CJK, a surrogate pair and characters that need escaping in XML attributes
+	private static final String NICKNAME = "Jürgen 日本 🎮 <&\"☃\">";
+
+	private StubServer mServer;
+	private GLESInfo mReport;
+
+	@Before
+	public void setUp() throws IOException {
+		mServer = new StubServer();
+		mReport = ReplayCaptureTest.replay("querytrace-mali400.bin");
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		mServer.close();
+	}
+
+	private ReportUpload newUpload() throws IOException {
+		return newUpload(false);
+	}
+
+	private ReportUpload newUpload(boolean compress) throws IOException {
+		return new ReportUpload(new URL(mServer.baseURL() + "/gles_uploadreport.php"), compress);
+	}
+
+	// Multipart body as the database expects it, the report is the only part
+	private static byte[] expectedBody(GLESInfo report, String submitter) throws IOException {
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		body.write(("--*****\r\n"
+			+ "Content-Disposition: form-data; name=\"data\";filename=\"glescapsviewerreport.xml\"\r\n"
+			+ "\r\n").getBytes(StandardCharsets.US_ASCII));
+		body.write(report.saveToXML(submitter).getBytes(StandardCharsets.UTF_8));
+		body.write("\r\n--*****--\r\n".getBytes(StandardCharsets.US_ASCII));
+		return body.toByteArray();
+	}
+
+	@Test
+	public void sendsMultipartBodyByteForByte() throws Exception {
+		mServer.enqueue(new StubServer.Response(200, "res_uploaded"));
+		newUpload().upload(mReport, NICKNAME);
+
+		StubServer.Request request = mServer.takeRequest(5000);
+		assertEquals("POST", request.method);
+		assertEquals("/gles_uploadreport.php", request.path);
+		assertEquals("multipart/form-data;boundary=*****", request.header("Content-Type"));
+		assertEquals("chunked", request.header("Transfer-Encoding"));
+		assertEquals(mReport.contentHash(), request.header(ReportUpload.CONTENT_HASH_HEADER));
+		assertEquals(null, request.header("Content-Encoding"));
+		assertArrayEquals(expectedBody(mReport, NICKNAME), request.body);
+	}
+
+	@Test
+	public void encodesNicknameAsUtf8() throws Exception {
+		newUpload().upload(mReport, NICKNAME);
+
+		final String body = new String(mServer.takeRequest(5000).body, StandardCharsets.UTF_8);
+		assertTrue(body, body.contains(" submitter=\"Jürgen 日本 🎮 &lt;&amp;&quot;☃&quot;&gt;\" "));
+	}
+
+	@Test
+	public void reportsServerResponse() throws Exception {
+		mServer.enqueue(new StubServer.Response(200, "res_duplicate"));
+		ReportUpload upload = newUpload();
+		assertEquals(200, upload.upload(mReport, ""));
+		assertEquals(200, upload.getResponseCode());
+		assertEquals("res_duplicate", upload.getResponseMessage());
+		assertEquals(1, mServer.requestCount());
+	}
+
+	// A compressed upload the server can't decode is reported as is, the report is never sent a second time
+	@Test
+	public void sendsCompressedReportOnce() throws Exception {
+		mServer.enqueue(new StubServer.Response(415, "Unsupported Media Type"));
+		ReportUpload upload = newUpload(true);
+		assertEquals(415, upload.upload(mReport, NICKNAME));
+
+		StubServer.Request request = mServer.takeRequest(5000);
+		assertEquals(ReportCompression.CONTENT_ENCODING, request.header("Content-Encoding"));
+		assertEquals(ReportCompression.dictionaryId(), request.header(ReportCompression.DICTIONARY_HEADER));
+		ByteArrayOutputStream plain = new ByteArrayOutputStream();
+		ReportUpload.writeBody(plain, mReport, NICKNAME, true);
+		assertArrayEquals(plain.toByteArray(), ReportCompression.decode(new ByteArrayInputStream(request.body)));
+		assertEquals(1, mServer.requestCount());
+	}
+
+}
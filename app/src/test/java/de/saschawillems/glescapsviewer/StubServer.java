@@ -0,0 +1,255 @@
+/*
+*
+* OpenGL ES hardware capability viewer and database
+*
+* Copyright (C) 2011-2018 by Sascha Willems (www.saschawillems.de)
+*
+* This code is free software, you can redistribute it and/or
+* modify it under the terms of the GNU Lesser General Public
+* License version 3 as published by the Free Software Foundation.
+*
+* Please review the following information to ensure the GNU Lesser
+* General Public License version 3 requirements will be met:
+* http://opensource.org/licenses/lgpl-3.0.html
+*
+* The code is distributed WITHOUT ANY WARRANTY; without even the
+* implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+* PURPOSE.  See the GNU LGPL 3.0 for more details.
+*
+*/
+
+package de.saschawillems.glescapsviewer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Minimal HTTP/1.1 server on the loopback interface for upload tests
+// Unlike com.sun.net.httpserver it lets tests choose the reason phrase (the database answers in it), delay
+// responses and drop connections. Responses are served in the order they were enqueued, 200 OK once none are left
+// Every connection serves a single request and is closed afterwards
+final class StubServer implements Closeable {
+
+	static final class Request {
+		final String method;
+		final String path;
+		final Map<String, String> headers; // Lower case names
+		final byte[] body;
+
+		Request(String method, String path, Map<String, String> headers, byte[] body) {
+			this.method = method;
+			this.path = path;
+			this.headers = headers;
+			this.body = body;
+		}
+
+		String header(String name) {
+			return headers.get(name.toLowerCase(Locale.ROOT));
+		}
+	}
+
+	static final class Response {
+		final int code;
+		final String reason;
+		final Map<String, String> headers = new LinkedHashMap<>();
+		long delay = 0;
+		boolean drop = false;
+
+		Response(int code, String reason) {
+			this.code = code;
+			this.reason = reason;
+		}
+
+		// Waits before answering (ms), the request has been read completely at that point
+		Response delay(long ms) {
+			delay = ms;
+			return this;
+		}
+
+		Response header(String name, String value) {
+			headers.put(name, value);
+			return this;
+		}
+
+		// Closes the connection after reading the request, without any response
+		static Response drop() {
+			Response response = new Response(0, null);
+			response.drop = true;
+			return response;
+		}
+	}
+
+	private final ServerSocket mSocket;
+	private final BlockingQueue<Response> mResponses = new LinkedBlockingQueue<>();
+	private final BlockingQueue<Request> mRequests = new LinkedBlockingQueue<>();
+	private final AtomicInteger mRequestCount = new AtomicInteger();
+	private volatile boolean mClosed = false;
+
+	StubServer() throws IOException {
+		mSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				acceptLoop();
+			}
+		}, "StubServer");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	String baseURL() {
+		return "http://127.0.0.1:" + mSocket.getLocalPort();
+	}
+
+	void enqueue(Response response) {
+		mResponses.add(response);
+	}
+
+	// Next received request, null if there was none within the timeout
+	Request takeRequest(long timeoutMs) throws InterruptedException {
+		return mRequests.poll(timeoutMs, TimeUnit.MILLISECONDS);
+	}
+
+	// Requests read completely so far
+	int requestCount() {
+		return mRequestCount.get();
+	}
+
+	@Override
+	public void close() throws IOException {
+		mClosed = true;
+		mSocket.close();
+	}
+
+	private void acceptLoop() {
+		while (!mClosed) {
+			final Socket socket;
+			try {
+				socket = mSocket.accept();
+			} catch (IOException e) {
+				return;
+			}
+			Thread thread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						serve(socket);
+					} catch (IOException | InterruptedException e) {
+						// Client gone (e.g. timed out or cancelled)
+					} finally {
+						try {
+							socket.close();
+						} catch (IOException e) {
+							// Ignored
+						}
+					}
+				}
+			}, "StubServer connection");
+			thread.setDaemon(true);
+			thread.start();
+		}
+	}
+
+	private void serve(Socket socket) throws IOException, InterruptedException {
+		final InputStream in = socket.getInputStream();
+		final String[] requestLine = readLine(in).split(" ");
+		final Map<String, String> headers = new LinkedHashMap<>();
+		String line;
+		while (!(line = readLine(in)).isEmpty()) {
+			final int colon = line.indexOf(':');
+			headers.put(line.substring(0, colon).trim().toLowerCase(Locale.ROOT), line.substring(colon + 1).trim());
+		}
+		final byte[] body;
+		if ("chunked".equalsIgnoreCase(headers.get("transfer-encoding"))) {
+			body = readChunked(in);
+		} else if (headers.containsKey("content-length")) {
+			body = readFully(in, Integer.parseInt(headers.get("content-length")));
+		} else {
+			body = new byte[0];
+		}
+		mRequests.add(new Request(requestLine[0], requestLine[1], headers, body));
+		mRequestCount.incrementAndGet();
+
+		Response response = mResponses.poll();
+		if (response == null) {
+			response = new Response(200, "OK");
+		}
+		if (response.delay > 0) {
+			Thread.sleep(response.delay);
+		}
+		if (response.drop) {
+			return;
+		}
+		StringBuilder sb = new StringBuilder();
+		sb.append("HTTP/1.1 ").append(response.code).append(' ').append(response.reason).append("\r\n");
+		for (Map.Entry<String, String> header : response.headers.entrySet()) {
+			sb.append(header.getKey()).append(": ").append(header.getValue()).append("\r\n");
+		}
+		sb.append("Content-Length: 0\r\nConnection: close\r\n\r\n");
+		final OutputStream out = socket.getOutputStream();
+		out.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+		out.flush();
+	}
+
+	private static String readLine(InputStream in) throws IOException {
+		ByteArrayOutputStream line = new ByteArrayOutputStream();
+		int b;
+		while ((b = in.read()) != '\n') {
+			if (b < 0) {
+				throw new SocketException("Connection closed");
+			}
+			if (b != '\r') {
+				line.write(b);
+			}
+		}
+		return new String(line.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	private static byte[] readChunked(InputStream in) throws IOException {
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		while (true) {
+			String size = readLine(in);
+			final int extension = size.indexOf(';');
+			if (extension >= 0) {
+				size = size.substring(0, extension);
+			}
+			final int length = Integer.parseInt(size.trim(), 16);
+			if (length == 0) {
+				// Trailers
+				while (!readLine(in).isEmpty()) {
+				}
+				return body.toByteArray();
+			}
+			body.write(readFully(in, length));
+			readLine(in);
+		}
+	}
+
+	private static byte[] readFully(InputStream in, int length) throws IOException {
+		final byte[] data = new byte[length];
+		int pos = 0;
+		while (pos < length) {
+			final int count = in.read(data, pos, length - pos);
+			if (count < 0) {
+				throw new SocketException("Connection closed");
+			}
+			pos += count;
+		}
+		return data;
+	}
+
+}
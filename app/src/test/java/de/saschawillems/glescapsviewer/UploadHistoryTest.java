@@ -0,0 +1,86 @@
+/*
+*
+* OpenGL ES hardware capability viewer and database
+*
+* Copyright (C) 2011-2018 by Sascha Willems (www.saschawillems.de)
+*
+* This code is free software, you can redistribute it and/or
+* modify it under the terms of the GNU Lesser General Public
+* License version 3 as published by the Free Software Foundation.
+*
+* Please review the following information to ensure the GNU Lesser
+* General Public License version 3 requirements will be met:
+* http://opensource.org/licenses/lgpl-3.0.html
+*
+* The code is distributed WITHOUT ANY WARRANTY; without even the
+* implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+* PURPOSE.  See the GNU LGPL 3.0 for more details.
+*
+*/
+
+package de.saschawillems.glescapsviewer;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class UploadHistoryTest {
+
+	private static final String HASH_A = "0123456789abcdef";
+	private static final String HASH_B = "fedcba9876543210";
+
+	private File mFile;
+
+	@Before
+	public void setUp() throws IOException {
+		mFile = new File(Files.createTempDirectory("uploadhistory").toFile(), "uploaded.txt");
+	}
+
+	private void append(String text) throws IOException {
+		try (FileOutputStream out = new FileOutputStream(mFile, true)) {
+			out.write(text.getBytes(StandardCharsets.US_ASCII));
+		}
+	}
+
+	@Test
+	public void addedHashesSurviveReload() {
+		UploadHistory history = new UploadHistory(mFile);
+		assertFalse(history.contains(HASH_A));
+		assertTrue(history.add(HASH_A));
+		assertFalse(history.add(HASH_A));
+		assertTrue(history.add(HASH_B));
+
+		UploadHistory reloaded = new UploadHistory(mFile);
+		assertTrue(reloaded.contains(HASH_A));
+		assertTrue(reloaded.contains(HASH_B));
+	}
+
+	@Test
+	public void fileIsReadOnFirstUse() throws IOException {
+		UploadHistory history = new UploadHistory(mFile);
+		append(HASH_A + "\n");
+		assertTrue(history.contains(HASH_A));
+	}
+
+	@Test
+	public void interruptedAppendDoesNotMergeWithNextHash() throws IOException {
+		append(HASH_A + "\n" + HASH_B.substring(0, 5));
+		UploadHistory history = new UploadHistory(mFile);
+		assertTrue(history.contains(HASH_A));
+		assertFalse(history.contains(HASH_B));
+		assertTrue(history.add(HASH_B));
+
+		UploadHistory reloaded = new UploadHistory(mFile);
+		assertTrue(reloaded.contains(HASH_A));
+		assertTrue(reloaded.contains(HASH_B));
+	}
+
+}
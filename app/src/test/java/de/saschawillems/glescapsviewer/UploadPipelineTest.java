@@ -0,0 +1,362 @@
+/*
+*
+* OpenGL ES hardware capability viewer and database
+*
+* Copyright (C) 2011-2018 by Sascha Willems (www.saschawillems.de)
+*
+* This code is free software, you can redistribute it and/or
+* modify it under the terms of the GNU Lesser General Public
+* License version 3 as published by the Free Software Foundation.
+*
+* Please review the following information to ensure the GNU Lesser
+* General Public License version 3 requirements will be met:
+* http://opensource.org/licenses/lgpl-3.0.html
+*
+* The code is distributed WITHOUT ANY WARRANTY; without even the
+* implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+* PURPOSE.  See the GNU LGPL 3.0 for more details.
+*
+*/
+
+package de.saschawillems.glescapsviewer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+// Runs the upload pipeline against a local stub server that injects latency and failures
+// Results are delivered on the pipeline's thread and recorded as text events
+public class UploadPipelineTest {
+
+	private StubServer mServer;
+	private File mDir;
+	private UploadHistory mHistory;
+	private UploadPipeline mPipeline;
+	private GLESInfo mReport;
+	private final BlockingQueue<String> mEvents = new LinkedBlockingQueue<>();
+
+	private final UploadPipeline.Listener mListener = new UploadPipeline.Listener() {
+		@Override
+		public void alreadyUploaded() {
+			mEvents.add("already uploaded");
+		}
+
+		@Override
+		public void reportChecked(String reportURL) {
+			mEvents.add("checked " + reportURL);
+		}
+
+		@Override
+		public void uploadFinished(int responseCode, String responseMessage) {
+			mEvents.add("finished " + responseCode + " " + responseMessage);
+		}
+
+		@Override
+		public void uploadFailed(IOException e) {
+			mEvents.add("failed " + e);
+		}
+
+		@Override
+		public void uploadQueued(int queueSize) {
+			mEvents.add("queued " + queueSize);
+		}
+
+		@Override
+		public void queueDrained(int uploaded, int remaining) {
+			mEvents.add("drained " + uploaded + " " + remaining);
+		}
+	};
+
+	@Before
+	public void setUp() throws IOException {
+		mServer = new StubServer();
+		mDir = Files.createTempDirectory("uploadpipeline").toFile();
+		mHistory = new UploadHistory(new File(mDir, "history.txt"));
+		mPipeline = newPipeline(mServer.baseURL(), false);
+		// Read back like a queued report, so the content hash covers the (empty) device info as after a real capture
+		final byte[] report = BinaryReport.write(ReplayCaptureTest.replay("querytrace-mali400.bin"), "fixture");
+		mReport = BinaryReport.read(report, 0, report.length, BinaryReport.ALL_SECTIONS).getInfo();
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		mPipeline.cancel();
+		mServer.close();
+	}
+
+	private UploadPipeline newPipeline(String baseURL, boolean compress) {
+		return new UploadPipeline(baseURL, compress, new Executor() {
+			@Override
+			public void execute(Runnable result) {
+				result.run();
+			}
+		}, new File(mDir, "queue.bin"), mHistory);
+	}
+
+	// Base URL of a loopback port nobody listens on, connections are refused
+	private static String unreachableURL() throws IOException {
+		try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+			return "http://127.0.0.1:" + socket.getLocalPort();
+		}
+	}
+
+	private String nextEvent(long timeoutMs) throws InterruptedException {
+		return mEvents.poll(timeoutMs, TimeUnit.MILLISECONDS);
+	}
+
+	@Test
+	public void checkFindsPresentReport() throws Exception {
+		mServer.enqueue(new StubServer.Response(200, "report_present 42"));
+		mPipeline.checkReportPresent("Mali-400 MP", mReport.contentHash(), mListener);
+
+		assertEquals("checked " + mServer.baseURL() + "/gles_generatereport.php?reportID=42", nextEvent(5000));
+		StubServer.Request request = mServer.takeRequest(0);
+		assertEquals("GET", request.method);
+		assertEquals("/gles_checkreport.php?description=Mali-400+MP&contenthash=" + mReport.contentHash(), request.path);
+	}
+
+	@Test
+	public void checkSkipsServerForUploadedReport() throws Exception {
+		mHistory.add(mReport.contentHash());
+		mPipeline.checkReportPresent("Mali-400 MP", mReport.contentHash(), mListener);
+
+		assertEquals("already uploaded", nextEvent(5000));
+		assertEquals(0, mServer.requestCount());
+	}
+
+	@Test
+	public void checkRetriesServerErrorsWithBackoff() throws Exception {
+		mServer.enqueue(new StubServer.Response(503, "Service Unavailable"));
+		mServer.enqueue(new StubServer.Response(500, "Internal Server Error"));
+		mServer.enqueue(new StubServer.Response(200, "report_present 7"));
+		final long start = System.nanoTime();
+		mPipeline.checkReportPresent("Mali-400 MP", mReport.contentHash(), mListener);
+
+		assertEquals("checked " + mServer.baseURL() + "/gles_generatereport.php?reportID=7", nextEvent(10000));
+		final long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		assertEquals(3, mServer.requestCount());
+		assertTrue("Retried after " + elapsed + " ms", elapsed >= UploadPipeline.RETRY_DELAY * 3);
+	}
+
+	@Test
+	public void checkRetriesAfterReadTimeout() throws Exception {
+		mPipeline.setTimeouts(2000, 200);
+		mServer.enqueue(new StubServer.Response(200, "report_present 7").delay(2000));
+		mServer.enqueue(new StubServer.Response(200, "report_present 8"));
+		mPipeline.checkReportPresent("Mali-400 MP", mReport.contentHash(), mListener);
+
+		assertEquals("checked " + mServer.baseURL() + "/gles_generatereport.php?reportID=8", nextEvent(5000));
+		assertEquals(2, mServer.requestCount());
+	}
+
+	@Test
+	public void checkGivesUpAfterMaxAttempts() throws Exception {
+		for (int i = 0; i < UploadPipeline.MAX_ATTEMPTS + 1; i++) {
+			mServer.enqueue(new StubServer.Response(502, "Bad Gateway"));
+		}
+		mPipeline.checkReportPresent("Mali-400 MP", mReport.contentHash(), mListener);
+
+		// A failed check doesn't block the upload
+		assertEquals("checked null", nextEvent(15000));
+		assertEquals(UploadPipeline.MAX_ATTEMPTS, mServer.requestCount());
+	}
+
+	@Test
+	public void uploadDeliversServerResponse() throws Exception {
+		mServer.enqueue(new StubServer.Response(200, "res_uploaded"));
+		mPipeline.upload(mReport, "fixture", mListener);
+
+		assertEquals("finished 200 res_uploaded", nextEvent(5000));
+		assertTrue(mHistory.contains(mReport.contentHash()));
+	}
+
+	@Test
+	public void uploadIsNotRetried() throws Exception {
+		mServer.enqueue(new StubServer.Response(503, "Service Unavailable"));
+		mPipeline.upload(mReport, "fixture", mListener);
+
+		assertEquals("finished 503 Service Unavailable", nextEvent(5000));
+		assertEquals(1, mServer.requestCount());
+		assertFalse(mHistory.contains(mReport.contentHash()));
+	}
+
+	@Test
+	public void unreachableUploadIsQueuedAndDrained() throws Exception {
+		final UploadPipeline offline = newPipeline(unreachableURL(), false);
+		try {
+			offline.upload(mReport, "fixture", mListener);
+			assertEquals("queued 1", nextEvent(5000));
+		} finally {
+			offline.cancel();
+		}
+
+		mServer.enqueue(new StubServer.Response(200, "res_uploaded"));
+		mPipeline.drain(mListener);
+		assertEquals("drained 1 0", nextEvent(5000));
+		assertEquals(1, mServer.requestCount());
+		assertTrue(mHistory.contains(mReport.contentHash()));
+	}
+
+	// Journal with one queued report that is not a binary report (e.g. written by a newer version)
+	private static void writeUnreadableJournal(File file, String contentHash) throws IOException {
+		ByteArrayOutputStream record = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(record);
+		final byte[] payload = ("\u0010" + contentHash + "not a report").getBytes(StandardCharsets.US_ASCII);
+		out.writeByte(1);
+		out.writeInt(payload.length);
+		out.writeLong(1);
+		out.write(payload);
+		CRC32 crc = new CRC32();
+		crc.update(record.toByteArray());
+		out.writeInt((int) crc.getValue());
+		try (DataOutputStream journal = new DataOutputStream(new FileOutputStream(file))) {
+			journal.writeInt(0x474C5551);
+			journal.writeInt(1);
+			journal.write(record.toByteArray());
+		}
+	}
+
+	@Test
+	public void drainKeepsUnreadableReports() throws Exception {
+		final File queueFile = new File(mDir, "queue.bin");
+		writeUnreadableJournal(queueFile, "0123456789abcdef");
+		final UploadQueue queue = UploadQueue.get(queueFile);
+		assertTrue(queue.add(mReport, "fixture"));
+
+		mServer.enqueue(new StubServer.Response(200, "res_uploaded"));
+		mPipeline.drain(mListener);
+		assertEquals("drained 1 1", nextEvent(5000));
+		assertEquals(1, mServer.requestCount());
+		assertEquals("0123456789abcdef", queue.peek().mContentHash);
+
+		// Still there after reopening the journal
+		assertEquals(1, new UploadQueue(queueFile).size());
+	}
+
+	// The server may have stored the report before the connection broke, so it is not queued
+	@Test
+	public void uploadFailingAfterConnectIsReported() throws Exception {
+		mServer.enqueue(StubServer.Response.drop());
+		mPipeline.upload(mReport, "fixture", mListener);
+
+		final String event = nextEvent(5000);
+		assertTrue(event, event.startsWith("failed "));
+		assertEquals(0, UploadQueue.get(new File(mDir, "queue.bin")).size());
+	}
+
+	@Test
+	public void drainSkipsUploadedReports() throws Exception {
+		final UploadPipeline offline = newPipeline(unreachableURL(), false);
+		try {
+			offline.upload(mReport, "fixture", mListener);
+			assertEquals("queued 1", nextEvent(5000));
+		} finally {
+			offline.cancel();
+		}
+		mHistory.add(mReport.contentHash());
+
+		mPipeline.drain(mListener);
+		assertEquals("drained 0 0", nextEvent(5000));
+		assertEquals(0, mServer.requestCount());
+	}
+
+	@Test
+	public void compressesOnlyAfterServerAnnouncedDictionary() throws Exception {
+		final UploadPipeline pipeline = newPipeline(mServer.baseURL(), true);
+		try {
+			pipeline.upload(mReport, "fixture", mListener);
+			assertEquals("finished 200 OK", nextEvent(5000));
+			assertNull(mServer.takeRequest(0).header("Content-Encoding"));
+
+			mServer.enqueue(new StubServer.Response(200, "OK").header(ReportCompression.DICTIONARY_HEADER, ReportCompression.dictionaryId()));
+			pipeline.checkReportPresent("Mali-400 MP", mReport.contentHash(), mListener);
+			assertEquals("checked null", nextEvent(5000));
+			assertEquals(ReportCompression.dictionaryId(), mServer.takeRequest(0).header(ReportCompression.DICTIONARY_HEADER));
+
+			pipeline.upload(mReport, "fixture", mListener);
+			assertEquals("finished 200 OK", nextEvent(5000));
+			assertEquals(ReportCompression.CONTENT_ENCODING, mServer.takeRequest(0).header("Content-Encoding"));
+		} finally {
+			pipeline.cancel();
+		}
+	}
+
+	@Test
+	public void doesNotCompressIfServerIgnoresDictionary() throws Exception {
+		final UploadPipeline pipeline = newPipeline(mServer.baseURL(), true);
+		try {
+			mServer.enqueue(new StubServer.Response(200, "OK").header(ReportCompression.DICTIONARY_HEADER, "0-00000000"));
+			pipeline.checkReportPresent("Mali-400 MP", mReport.contentHash(), mListener);
+			assertEquals("checked null", nextEvent(5000));
+			pipeline.upload(mReport, "fixture", mListener);
+			assertEquals("finished 200 OK", nextEvent(5000));
+
+			mServer.takeRequest(0);
+			assertNull(mServer.takeRequest(0).header("Content-Encoding"));
+			assertEquals(2, mServer.requestCount());
+		} finally {
+			pipeline.cancel();
+		}
+	}
+
+	@Test
+	public void cancelAbortsCheck() throws Exception {
+		mServer.enqueue(new StubServer.Response(200, "report_present 7").delay(5000));
+		mPipeline.checkReportPresent("Mali-400 MP", mReport.contentHash(), mListener);
+		assertNotNull(mServer.takeRequest(5000));
+
+		final long start = System.nanoTime();
+		mPipeline.cancel();
+		assertNull(nextEvent(1000));
+		assertEquals(1, mServer.requestCount());
+		assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 5000);
+	}
+
+	// Cancelling (e.g. the activity is recreated on rotation) drops the result, but not the report
+	@Test
+	public void cancelLetsRunningUploadFinish() throws Exception {
+		mServer.enqueue(new StubServer.Response(200, "res_uploaded").delay(500));
+		mPipeline.upload(mReport, "fixture", mListener);
+		assertNotNull(mServer.takeRequest(5000));
+		mPipeline.cancel();
+
+		final long end = System.currentTimeMillis() + 5000;
+		while (!mHistory.contains(mReport.contentHash()) && System.currentTimeMillis() < end) {
+			Thread.sleep(20);
+		}
+		assertTrue(mHistory.contains(mReport.contentHash()));
+		assertNull(nextEvent(200));
+	}
+
+	@Test
+	public void cancelledPipelineRejectsNewWork() throws Exception {
+		mPipeline.cancel();
+		mPipeline.checkReportPresent("Mali-400 MP", mReport.contentHash(), mListener);
+		mPipeline.upload(mReport, "fixture", mListener);
+
+		assertNull(nextEvent(500));
+		assertEquals(0, mServer.requestCount());
+	}
+
+}
@@ -0,0 +1,218 @@
+/*
+*
+* OpenGL ES hardware capability viewer and database
+*
+* Copyright (C) 2011-2018 by Sascha Willems (www.saschawillems.de)
+*
+* This code is free software, you can redistribute it and/or
+* modify it under the terms of the GNU Lesser General Public
+* License version 3 as published by the Free Software Foundation.
+*
+* Please review the following information to ensure the GNU Lesser
+* General Public License version 3 requirements will be met:
+* http://opensource.org/licenses/lgpl-3.0.html
+*
+* The code is distributed WITHOUT ANY WARRANTY; without even the
+* implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+* PURPOSE.  See the GNU LGPL 3.0 for more details.
+*
+*/
+
+package de.saschawillems.glescapsviewer;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+// Journal recovery, bounds and compaction of the upload queue, reopened with new instances (not UploadQueue.get())
+public class UploadQueueTest {
+
+	private File mFile;
+	private GLESInfo mReport;
+
+	@Before
+	public void setUp() throws Exception {
+		mFile = new File(Files.createTempDirectory("uploadqueue").toFile(), "queue.bin");
+		mReport = BinaryReportTest.readXML(BinaryReportTest.readBytes(ReplayCaptureTest.REPORT));
+	}
+
+	// Queues the fixture under a renderer name of its own (loaded reports hash their content, see GLESInfo.contentHash())
+	private String add(UploadQueue queue, int i) throws IOException {
+		mReport.mRenderer = "Mali-400 MP #" + i;
+		assertTrue(queue.add(mReport, "fixture"));
+		return mReport.contentHash();
+	}
+
+	private static ArrayList<String> hashes(UploadQueue queue) {
+		ArrayList<String> hashes = new ArrayList<>();
+		for (UploadQueue.Entry entry = queue.next(null); entry != null; entry = queue.next(entry)) {
+			hashes.add(entry.mContentHash);
+		}
+		return hashes;
+	}
+
+	private ArrayList<UploadQueue.Entry> entries(UploadQueue queue) {
+		ArrayList<UploadQueue.Entry> entries = new ArrayList<>();
+		for (UploadQueue.Entry entry = queue.next(null); entry != null; entry = queue.next(entry)) {
+			entries.add(entry);
+		}
+		return entries;
+	}
+
+	@Test
+	public void queuedReportsSurviveReopen() throws Exception {
+		UploadQueue queue = new UploadQueue(mFile);
+		assertTrue(queue.isEmpty());
+		assertNull(queue.peek());
+		final String first = add(queue, 1);
+		final String second = add(queue, 2);
+		assertFalse(queue.add(mReport, "fixture"));
+
+		UploadQueue reopened = new UploadQueue(mFile);
+		assertEquals(Arrays.asList(first, second), hashes(reopened));
+		BinaryReport report = reopened.read(reopened.peek());
+		assertEquals("fixture", report.getSubmitter());
+		assertEquals("Mali-400 MP #1", report.getInfo().mRenderer);
+		assertEquals(first, report.getInfo().contentHash());
+	}
+
+	// Queued reports don't depend on the extension dictionary (header: magic, version, dictionary size 0)
+	@Test
+	public void queuedReportsStoreExtensionNamesInline() throws Exception {
+		UploadQueue queue = new UploadQueue(mFile);
+		add(queue, 1);
+		final UploadQueue.Entry entry = queue.peek();
+		byte[] record = new byte[entry.mLength];
+		try (RandomAccessFile journal = new RandomAccessFile(mFile, "r")) {
+			journal.seek(entry.mOffset + 1 + 4 + 8);
+			journal.readFully(record);
+		}
+		final int reportOffset = 1 + (record[0] & 0xFF);
+		assertEquals(BinaryReport.FORMAT_VERSION, record[reportOffset + 4]);
+		assertEquals(0, record[reportOffset + 5]);
+		assertEquals(24, queue.read(entry).getInfo().mExtensions.size());
+	}
+
+	@Test
+	public void tornTailIsCutOff() throws Exception {
+		UploadQueue queue = new UploadQueue(mFile);
+		final String first = add(queue, 1);
+		add(queue, 2);
+		final UploadQueue.Entry second = entries(queue).get(1);
+		try (RandomAccessFile journal = new RandomAccessFile(mFile, "rw")) {
+			journal.setLength(journal.length() - 10);
+		}
+
+		UploadQueue reopened = new UploadQueue(mFile);
+		assertEquals(Arrays.asList(first), hashes(reopened));
+		assertEquals(second.mOffset, mFile.length());
+
+		// Appends continue behind the last intact record
+		final String third = add(reopened, 3);
+		assertEquals(Arrays.asList(first, third), hashes(new UploadQueue(mFile)));
+	}
+
+	@Test
+	public void corruptRecordCutsOffTheRest() throws Exception {
+		UploadQueue queue = new UploadQueue(mFile);
+		final String first = add(queue, 1);
+		add(queue, 2);
+		add(queue, 3);
+		final UploadQueue.Entry second = entries(queue).get(1);
+		try (RandomAccessFile journal = new RandomAccessFile(mFile, "rw")) {
+			final long position = second.mOffset + second.mLength / 2;
+			journal.seek(position);
+			final int b = journal.read();
+			journal.seek(position);
+			journal.write(b ^ 0x01);
+		}
+
+		UploadQueue reopened = new UploadQueue(mFile);
+		assertEquals(Arrays.asList(first), hashes(reopened));
+		assertEquals(second.mOffset, mFile.length());
+	}
+
+	@Test
+	public void evictsOldestBeyondMaxReports() throws Exception {
+		UploadQueue queue = new UploadQueue(mFile);
+		final String first = add(queue, 0);
+		final String second = add(queue, 1);
+		for (int i = 2; i < UploadQueue.MAX_REPORTS; i++) {
+			add(queue, i);
+		}
+		assertEquals(UploadQueue.MAX_REPORTS, queue.size());
+		assertEquals(first, queue.peek().mContentHash);
+
+		final String last = add(queue, UploadQueue.MAX_REPORTS);
+		assertEquals(UploadQueue.MAX_REPORTS, queue.size());
+		assertEquals(second, queue.peek().mContentHash);
+
+		UploadQueue reopened = new UploadQueue(mFile);
+		ArrayList<String> hashes = hashes(reopened);
+		assertEquals(UploadQueue.MAX_REPORTS, hashes.size());
+		assertEquals(second, hashes.get(0));
+		assertEquals(last, hashes.get(hashes.size() - 1));
+	}
+
+	@Test
+	public void evictsOldestBeyondMaxBytes() throws Exception {
+		// Reports of about 1 MB
+		char[] padding = new char[1024 * 1024];
+		Arrays.fill(padding, 'x');
+		mReport.mDeviceFeatures.add(new String(padding));
+
+		UploadQueue queue = new UploadQueue(mFile);
+		ArrayList<String> added = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			added.add(add(queue, i));
+		}
+		final int kept = queue.size();
+		final long reportBytes = queue.peek().mLength;
+		assertTrue(kept < 20);
+		assertTrue(kept * reportBytes <= UploadQueue.MAX_BYTES);
+		assertTrue((kept + 1) * reportBytes > UploadQueue.MAX_BYTES);
+		assertEquals(added.subList(20 - kept, 20), hashes(queue));
+		assertEquals(added.subList(20 - kept, 20), hashes(new UploadQueue(mFile)));
+	}
+
+	@Test
+	public void compactionKeepsPendingReports() throws Exception {
+		UploadQueue queue = new UploadQueue(mFile);
+		ArrayList<String> added = new ArrayList<>();
+		for (int i = 0; i < 600; i++) {
+			added.add(add(queue, i));
+		}
+		final long fullLength = mFile.length();
+
+		// Removing all but the last ten reports crosses the compaction threshold (more than once)
+		for (int i = 0; i < 590; i++) {
+			queue.remove(queue.peek());
+		}
+		assertTrue(mFile.length() + " " + fullLength, mFile.length() < fullLength / 2);
+		assertFalse(new File(mFile.getPath() + ".tmp").exists());
+		assertEquals(added.subList(590, 600), hashes(queue));
+
+		// Reads and appends work on the compacted journal, also after reopening it
+		assertEquals("Mali-400 MP #590", queue.read(queue.peek()).getInfo().mRenderer);
+		final String next = add(queue, 600);
+		UploadQueue reopened = new UploadQueue(mFile);
+		ArrayList<String> expected = new ArrayList<>(added.subList(590, 600));
+		expected.add(next);
+		assertEquals(expected, hashes(reopened));
+		for (UploadQueue.Entry entry : entries(reopened)) {
+			assertEquals(entry.mContentHash, reopened.read(entry).getInfo().contentHash());
+		}
+	}
+
+}
@@ -0,0 +1,59 @@
+/*
+*
+* OpenGL ES hardware capability viewer and database
+*
+* Copyright (C) 2011-2018 by Sascha Willems (www.saschawillems.de)
+*
+* This code is free software, you can redistribute it and/or
+* modify it under the terms of the GNU Lesser General Public
+* License version 3 as published by the Free Software Foundation.
+*
+* Please review the following information to ensure the GNU Lesser
+* General Public License version 3 requirements will be met:
+* http://opensource.org/licenses/lgpl-3.0.html
+*
+* The code is distributed WITHOUT ANY WARRANTY; without even the
+* implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+* PURPOSE.  See the GNU LGPL 3.0 for more details.
+*
+*/
+
+package de.saschawillems.glescapsviewer;
+
+import java.util.NoSuchElementException;
+
+// Micro-benchmark of VersionParser against the Scanner based parsing the viewer used before
+// Not part of the unit tests (timings depend on the machine), run its main() by hand
+public class VersionParserBenchmark {
+
+	public static void main(String[] args) {
+		final int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+		long checksum = 0;
+		long scannerTime = Long.MAX_VALUE;
+		long parserTime = Long.MAX_VALUE;
+		for (int run = 0; run < 5; run++) {
+			long start = System.nanoTime();
+			for (int i = 0; i < rounds; i++) {
+				for (Object[] entry : VersionParserTest.CORPUS) {
+					try {
+						checksum += VersionParserTest.scannerVersion((String) entry[0])[1];
+					} catch (NoSuchElementException e) {
+						checksum--;
+					}
+				}
+			}
+			scannerTime = Math.min(scannerTime, System.nanoTime() - start);
+
+			start = System.nanoTime();
+			for (int i = 0; i < rounds; i++) {
+				for (Object[] entry : VersionParserTest.CORPUS) {
+					checksum += VersionParser.minor(VersionParser.parse((String) entry[0]));
+				}
+			}
+			parserTime = Math.min(parserTime, System.nanoTime() - start);
+		}
+		final int count = rounds * VersionParserTest.CORPUS.length;
+		System.out.println("VersionParser " + (parserTime / count) + " ns/string, Scanner " + (scannerTime / count) + " ns/string (checksum " + checksum + ")");
+	}
+
+}
@@ -0,0 +1,131 @@
+/*
+*
+* OpenGL ES hardware capability viewer and database
+*
+* Copyright (C) 2011-2018 by Sascha Willems (www.saschawillems.de)
+*
+* This code is free software, you can redistribute it and/or
+* modify it under the terms of the GNU Lesser General Public
+* License version 3 as published by the Free Software Foundation.
+*
+* Please review the following information to ensure the GNU Lesser
+* General Public License version 3 requirements will be met:
+* http://opensource.org/licenses/lgpl-3.0.html
+*
+* The code is distributed WITHOUT ANY WARRANTY; without even the
+* implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+* PURPOSE.  See the GNU LGPL 3.0 for more details.
+*
+*/
+
+package de.saschawillems.glescapsviewer;
+
+import org.junit.Test;
+
+import java.util.InputMismatchException;
+import java.util.NoSuchElementException;
+import java.util.Scanner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class VersionParserTest {
+
+	// Vendor strings : GL_VERSION / GL_SHADING_LANGUAGE_VERSION, expected major, minor, patch and vendor suffix
+	static final Object[][] CORPUS = {
+		{"OpenGL ES 3.2 V@415.0 (GIT@I3c1b04a3de, Ia07f6f4ed8) (Date:05/21/19)", 3, 2, 0, "V@415.0 (GIT@I3c1b04a3de, Ia07f6f4ed8) (Date:05/21/19)"},
+		{"OpenGL ES 3.2 v1.r26p0-01rel0.526d936ea9da20486773a9aaceecd920", 3, 2, 0, "v1.r26p0-01rel0.526d936ea9da20486773a9aaceecd920"},
+		{"OpenGL ES 3.1 NVIDIA 361.00", 3, 1, 0, "NVIDIA 361.00"},
+		{"OpenGL ES 3.0 Mesa 10.1.0", 3, 0, 0, "Mesa 10.1.0"},
+		{"OpenGL ES 2.0 build 1.9@2291151", 2, 0, 0, "build 1.9@2291151"},
+		{"OpenGL ES 2.0", 2, 0, 0, ""},
+		{"OpenGL ES 3.2.1 (patch level) ", 3, 2, 1, "(patch level)"},
+		// Missing minor version
+		{"OpenGL ES 3 V@331.0 (GIT@I0b5d1e1e7f)", 3, 0, 0, "V@331.0 (GIT@I0b5d1e1e7f)"},
+		{"OpenGL ES 3", 3, 0, 0, ""},
+		// ES 1.x common (CM) and common lite (CL) profiles
+		{"OpenGL ES-CM 1.1", 1, 1, 0, ""},
+		{"OpenGL ES-CM 1.0 Apple A5", 1, 0, 0, "Apple A5"},
+		{"OpenGL ES-CL 1.1 build 1.5@786078", 1, 1, 0, "build 1.5@786078"},
+		// Shading language versions, the minor version is reported as written ("3.20" is 3 / 20 as in earlier reports)
+		{"OpenGL ES GLSL ES 3.20", 3, 20, 0, ""},
+		{"OpenGL ES GLSL ES 3.10", 3, 10, 0, ""},
+		{"OpenGL ES GLSL ES 1.00", 1, 0, 0, ""},
+		{"OpenGL ES GLSL ES 3.00 build 1.9@2291151", 3, 0, 0, "build 1.9@2291151"},
+	};
+
+	private static final String[] INVALID = {null, "", "   ", "OpenGL ES", "OpenGL ES-CM", "GLSL ES v3"};
+
+	@Test
+	public void parsesCorpus() {
+		for (Object[] entry : CORPUS) {
+			final String s = (String) entry[0];
+			final long version = VersionParser.parse(s);
+			assertTrue(s, VersionParser.isValid(version));
+			assertEquals(s, (int) entry[1], VersionParser.major(version));
+			assertEquals(s, (int) entry[2], VersionParser.minor(version));
+			assertEquals(s, (int) entry[3], VersionParser.patch(version));
+			assertEquals(s, entry[4], s.substring(VersionParser.suffixStart(version), VersionParser.suffixEnd(version)));
+		}
+	}
+
+	@Test
+	public void rejectsStringsWithoutVersion() {
+		for (String s : INVALID) {
+			assertFalse(String.valueOf(s), VersionParser.isValid(VersionParser.parse(s)));
+		}
+	}
+
+	@Test
+	public void parsesSubrange() {
+		final String s = "ES 1.1|ES 3.2";
+		final long version = VersionParser.parse(s, 7, s.length());
+		assertEquals(3, VersionParser.major(version));
+		assertEquals(2, VersionParser.minor(version));
+		assertEquals(s.length(), VersionParser.suffixStart(version));
+	}
+
+	@Test
+	public void saturatesLargeNumbers() {
+		final long version = VersionParser.parse("OpenGL ES 99999.3");
+		assertEquals(4095, VersionParser.major(version));
+		assertEquals(3, VersionParser.minor(version));
+	}
+
+	@Test
+	public void matchesScannerWhereScannerSucceeds() {
+		for (Object[] entry : CORPUS) {
+			final String s = (String) entry[0];
+			final int[] expected;
+			try {
+				expected = scannerVersion(s);
+			} catch (NoSuchElementException e) {
+				// The Scanner path failed on missing minor versions (e.g. "OpenGL ES 3 V@...")
+				continue;
+			}
+			final long version = VersionParser.parse(s);
+			assertEquals(s, expected[0], VersionParser.major(version));
+			assertEquals(s, expected[1], VersionParser.minor(version));
+		}
+	}
+
+	@Test(expected = InputMismatchException.class)
+	public void scannerFailsOnMissingMinorVersion() {
+		scannerVersion("OpenGL ES 3 V@331.0");
+	}
+
+	// Version parsing of earlier versions of the viewer (GLESInfo.extractOpenGLESVersion)
+	static int[] scannerVersion(String versionString) {
+		Scanner scanner = new Scanner(versionString);
+		scanner.useDelimiter("[^\\w']+");
+		while (scanner.hasNext()) {
+			if (scanner.hasNextInt()) {
+				return new int[] {scanner.nextInt(), scanner.nextInt()};
+			}
+			scanner.next();
+		}
+		return new int[] {0, 0};
+	}
+
+}